@@ -45,6 +45,20 @@ android {
         // Habilita ViewBinding para un acceso más seguro a las vistas
         viewBinding = true
     }
+
+    testOptions {
+        unitTests {
+            // Robolectric necesita los recursos para los tests que usan Room
+            isIncludeAndroidResources = true
+            all {
+                // Benchmark de SongDao: ./gradlew testDebugUnitTest --tests "*SongDaoBenchmark" -Pbenchmark.sizes=10000,100000
+                it.systemProperty("benchmark.sizes", project.findProperty("benchmark.sizes") ?: "")
+                it.systemProperty("benchmark.output",
+                    layout.buildDirectory.file("reports/benchmarks/songdao.json").get().asFile.path)
+                it.maxHeapSize = "2g"
+            }
+        }
+    }
 }
 
 dependencies {
@@ -88,6 +102,10 @@ dependencies {
 
     // --- Testing ---
     testImplementation(libs.junit)
+    // Room y LiveData en la JVM (tests con Robolectric y benchmarks)
+    testImplementation("org.robolectric:robolectric:4.14.1")
+    testImplementation("androidx.test:core:1.6.1")
+    testImplementation("androidx.arch.core:core-testing:2.2.0")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
@@ -5,6 +5,7 @@ import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
+import android.util.Log;
 import android.view.View;
 import android.widget.ImageButton;
 import android.widget.ImageView;
@@ -16,24 +17,36 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.cardview.widget.CardView;
-import androidx.lifecycle.Observer;
+import androidx.core.content.ContextCompat;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.example.reproductormp3.database.ReconcileResult;
 import com.example.reproductormp3.models.Song;
+import com.example.reproductormp3.models.SongListItem;
+import com.example.reproductormp3.repository.SongRepository;
 import com.example.reproductormp3.ui.adapters.SongAdapter;
 import com.example.reproductormp3.ui.player.PlayerActivity;
 import com.example.reproductormp3.utils.MediaScanner;
 import com.example.reproductormp3.utils.MusicPlayer;
 import com.example.reproductormp3.utils.PermissionHelper;
+import com.example.reproductormp3.utils.ScanDiff;
+import com.example.reproductormp3.viewmodel.LibraryViewState;
 import com.example.reproductormp3.viewmodel.SongViewModel;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 public class MainActivity extends AppCompatActivity implements SongAdapter.OnSongClickListener {
 
+    private static final String TAG = "MainActivity";
+
+    // Filas por delante cuyas carátulas se precargan (algo más de una pantalla)
+    private static final int ARTWORK_PRELOAD_ROWS = 12;
+
     private SongViewModel songViewModel;
     private RecyclerView recyclerView;
     private SongAdapter adapter;
@@ -51,6 +64,9 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
 
     private boolean hasScanned = false;
     private boolean showingFavorites = false;
+    // Avisar cuántos favoritos hay cuando llegue la lista
+    private boolean announceFavorites = false;
+    private int totalSongs;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -101,6 +117,7 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         adapter = new SongAdapter(this, this);
         recyclerView.setAdapter(adapter);
+        recyclerView.addOnScrollListener(adapter.createArtworkPreloader(ARTWORK_PRELOAD_ROWS));
     }
 
     private void checkPermissions() {
@@ -112,19 +129,21 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
     }
 
     private void checkIfNeedsScan() {
-        Observer<List<Song>> observer = new Observer<List<Song>>() {
-            @Override
-            public void onChanged(List<Song> songs) {
-                songViewModel.getAllSongs().removeObserver(this);
-                if (songs == null || songs.isEmpty()) {
-                    if (!hasScanned) scanAndLoadMusic();
-                } else {
-                    hasScanned = true;
-                    Toast.makeText(MainActivity.this, "✓ " + songs.size() + " canciones", Toast.LENGTH_SHORT).show();
-                }
+        songViewModel.fetchSongsCount().whenCompleteAsync((count, error) -> {
+            if (isDestroyed()) return;
+            if (error != null) {
+                // No se sabe si la biblioteca está vacía: no se escanea por eso
+                Log.e(TAG, "No se pudo contar las canciones", error);
+                Toast.makeText(MainActivity.this, "Error al leer la biblioteca", Toast.LENGTH_LONG).show();
+                return;
             }
-        };
-        songViewModel.getAllSongs().observe(this, observer);
+            if (count == null || count == 0) {
+                if (!hasScanned) scanAndLoadMusic();
+            } else {
+                hasScanned = true;
+                Toast.makeText(MainActivity.this, "✓ " + count + " canciones", Toast.LENGTH_SHORT).show();
+            }
+        }, ContextCompat.getMainExecutor(this));
     }
 
     private void scanAndLoadMusic() {
@@ -146,74 +165,117 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
     }
 
     private void performScan() {
-        new Thread(() -> {
-            try {
-                List<Song> scannedSongs = new MediaScanner(this).scanMusicFiles();
-                if (scannedSongs.isEmpty()) {
-                    runOnUiThread(() -> Toast.makeText(this, "No se encontró música", Toast.LENGTH_LONG).show());
-                    return;
-                }
+        songViewModel.rescanLibrary(new MediaScanner(getApplicationContext()), new SongRepository.OnScanCompleteListener() {
+            @Override
+            public void onComplete(ScanDiff diff, ReconcileResult result) {
+                runOnUiThread(() -> showScanResult(diff, result));
+            }
 
-                runOnUiThread(() -> {
-                    Observer<List<Song>> observer = new Observer<List<Song>>() {
-                        @Override
-                        public void onChanged(List<Song> existing) {
-                            songViewModel.getAllSongs().removeObserver(this);
-                            new Thread(() -> {
-                                int newCount = 0;
-                                if (existing != null && !existing.isEmpty()) {
-                                    for (Song scanned : scannedSongs) {
-                                        boolean exists = false;
-                                        for (Song ex : existing) {
-                                            if (scanned.getPath().equals(ex.getPath())) {
-                                                exists = true;
-                                                break;
-                                            }
-                                        }
-                                        if (!exists) {
-                                            songViewModel.insert(scanned);
-                                            newCount++;
-                                        }
-                                    }
-                                    int count = newCount;
-                                    runOnUiThread(() -> Toast.makeText(MainActivity.this,
-                                            count > 0 ? "✓ " + count + " nuevas" : "✓ Sin nuevas",
-                                            Toast.LENGTH_SHORT).show());
-                                } else {
-                                    songViewModel.insertAll(scannedSongs);
-                                    runOnUiThread(() -> Toast.makeText(MainActivity.this,
-                                            "✓ " + scannedSongs.size() + " encontradas", Toast.LENGTH_SHORT).show());
-                                }
-                            }).start();
-                        }
-                    };
-                    songViewModel.getAllSongs().observe(MainActivity.this, observer);
-                });
-            } catch (Exception e) {
-                runOnUiThread(() -> Toast.makeText(this, "Error: " + e.getMessage(), Toast.LENGTH_LONG).show());
+            @Override
+            public void onError(Exception e) {
+                // Un escaneo cancelado no es un error que mostrar
+                if (e instanceof CancellationException) return;
+                runOnUiThread(() -> Toast.makeText(MainActivity.this, "Error: " + e.getMessage(), Toast.LENGTH_LONG).show());
             }
-        }).start();
+        });
+    }
+
+    private void showScanResult(ScanDiff diff, ReconcileResult result) {
+        if (diff.isFullScan() && result.getTotal() == 0) {
+            Toast.makeText(this, "No se encontró música", Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        String msg;
+        if (result.getInserted() > 0 && result.getInserted() == result.getTotal()) {
+            msg = "✓ " + result.getInserted() + " encontradas";
+        } else if (result.getInserted() > 0) {
+            msg = "✓ " + result.getInserted() + " nuevas";
+        } else {
+            msg = "✓ Sin nuevas";
+        }
+        if (result.getUpdated() > 0) {
+            msg += " · " + result.getUpdated() + " actualizadas";
+        }
+        if (result.getDeleted() > 0) {
+            msg += " · " + result.getDeleted() + " eliminadas";
+        }
+        Toast.makeText(this, msg, Toast.LENGTH_SHORT).show();
     }
 
     private void observeSongs() {
-        songViewModel.getAllSongs().observe(this, songs -> {
-            if (!showingFavorites) {
-                if (songs != null && !songs.isEmpty()) {
-                    adapter.setSongs(songs);
-                    recyclerView.setVisibility(View.VISIBLE);
-                    emptyView.setVisibility(View.GONE);
-                } else {
-                    recyclerView.setVisibility(View.GONE);
-                    emptyView.setVisibility(View.VISIBLE);
-                }
+        // Solo el conteo: las filas de la lista completa las carga el pager por ventanas
+        songViewModel.getTotalSongsCount().observe(this, count -> {
+            totalSongs = count != null ? count : 0;
+            if (songViewModel.getSelection().isPaged()) {
+                updateEmptyView(totalSongs == 0);
             }
         });
+        songViewModel.getViewState().observe(this, this::renderViewState);
+    }
+
+    /**
+     * El estado ya viene calculado: aquí solo se aplica (el adaptador calcula el diff)
+     */
+    private void renderViewState(LibraryViewState state) {
+        if (state.isPaged()) {
+            adapter.setPager(songViewModel.getSongPager());
+            updateEmptyView(totalSongs == 0);
+            return;
+        }
+
+        List<SongListItem> items = state.getItems();
+        if (state.getSelection().getSource() == LibraryViewState.SOURCE_FAVORITES) {
+            if (items.isEmpty()) {
+                // Sin favoritos (o se quitó el último): volver a la lista completa
+                if (announceFavorites) {
+                    Toast.makeText(this, "No hay favoritos", Toast.LENGTH_LONG).show();
+                }
+                announceFavorites = false;
+                showingFavorites = false;
+                updateFavoritesButtonColor();
+                songViewModel.selectSource(LibraryViewState.SOURCE_ALL, 0);
+                return;
+            }
+            if (announceFavorites) {
+                Toast.makeText(this, "❤️ " + items.size() + " favoritos", Toast.LENGTH_SHORT).show();
+                announceFavorites = false;
+            }
+        }
+        adapter.setSongs(items);
+        updateEmptyView(items.isEmpty());
+    }
+
+    private void updateEmptyView(boolean empty) {
+        recyclerView.setVisibility(empty ? View.GONE : View.VISIBLE);
+        emptyView.setVisibility(empty ? View.VISIBLE : View.GONE);
     }
 
     @Override
-    public void onSongClick(Song song, int position) {
-        // Obtener la lista actual (todas o favoritos)
-        List<Song> currentList = adapter.getSongs();
+    public void onSongClick(SongListItem item, int position) {
+        // Las filas son proyecciones ligeras: la cola se lee completa aparte
+        if (adapter.isPaged()) {
+            songViewModel.loadAllSongs(all -> runOnUiThread(() -> playSong(item.getId(), all)));
+        } else {
+            // La cola es la lista que se está viendo, en el mismo orden
+            List<Long> songIds = new ArrayList<>();
+            for (SongListItem song : adapter.getSongs()) {
+                songIds.add(song.getId());
+            }
+            songViewModel.loadSongs(songIds, songs -> runOnUiThread(() -> playSong(item.getId(), songs)));
+        }
+    }
+
+    private void playSong(long songId, List<Song> currentList) {
+        Song song = null;
+        for (Song candidate : currentList) {
+            if (candidate.getId() == songId) {
+                song = candidate;
+                break;
+            }
+        }
+        // Se eliminó mientras se cargaba la cola
+        if (song == null) return;
 
         // Reproducir con playlist completa
         musicPlayer.playWithPlaylist(this, song, currentList);
@@ -224,7 +286,7 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
     private void showMiniPlayer(Song song) {
         miniPlayer.setVisibility(View.VISIBLE);
         miniPlayerTitle.setText(song.getTitle());
-        miniPlayerArtist.setText(song.getArtist());
+        miniPlayerArtist.setText(song.getDisplayArtist());
 
         if (song.getAlbumArtUri() != null && !song.getAlbumArtUri().isEmpty()) {
             Glide.with(this)
@@ -284,7 +346,7 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
     }
 
     @Override
-    public void onMenuClick(Song song, int position) {
+    public void onMenuClick(SongListItem song, int position) {
         String favoriteText = song.isFavorite() ? "Quitar de favoritos" : "Agregar a favoritos";
         String[] options = {favoriteText, "Agregar a lista", "Compartir", "Ver detalles", "Eliminar"};
 
@@ -295,24 +357,20 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
                         case 0: toggleFavorite(song); break;
                         case 1: Toast.makeText(this, "Próximamente", Toast.LENGTH_SHORT).show(); break;
                         case 2: Toast.makeText(this, "Próximamente", Toast.LENGTH_SHORT).show(); break;
-                        case 3: showSongDetails(song); break;
+                        case 3: showSongDetails(song.getId()); break;
                         case 4: confirmDelete(song); break;
                     }
                 })
                 .show();
     }
 
-    private void toggleFavorite(Song song) {
+    private void toggleFavorite(SongListItem song) {
         boolean newStatus = !song.isFavorite();
         song.setFavorite(newStatus);
         songViewModel.toggleFavorite(song.getId(), newStatus);
 
         String msg = newStatus ? "❤️ Agregado a favoritos" : "Removido de favoritos";
         Toast.makeText(this, msg, Toast.LENGTH_SHORT).show();
-
-        if (showingFavorites && !newStatus) {
-            new Handler().postDelayed(this::refreshFavoritesView, 300);
-        }
     }
 
     private void toggleFavoritesView() {
@@ -320,53 +378,15 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
         updateFavoritesButtonColor();
 
         if (showingFavorites) {
-            Observer<List<Song>> observer = new Observer<List<Song>>() {
-                @Override
-                public void onChanged(List<Song> favs) {
-                    songViewModel.getFavoriteSongs().removeObserver(this);
-                    if (favs != null && !favs.isEmpty()) {
-                        adapter.setSongs(favs);
-                        Toast.makeText(MainActivity.this, "❤️ " + favs.size() + " favoritos", Toast.LENGTH_SHORT).show();
-                    } else {
-                        showingFavorites = false;
-                        updateFavoritesButtonColor();
-                        Toast.makeText(MainActivity.this, "No hay favoritos", Toast.LENGTH_LONG).show();
-                    }
-                }
-            };
-            songViewModel.getFavoriteSongs().observe(this, observer);
+            announceFavorites = true;
+            songViewModel.selectSource(LibraryViewState.SOURCE_FAVORITES, 0);
         } else {
-            Observer<List<Song>> observer = new Observer<List<Song>>() {
-                @Override
-                public void onChanged(List<Song> all) {
-                    songViewModel.getAllSongs().removeObserver(this);
-                    if (all != null && !all.isEmpty()) {
-                        adapter.setSongs(all);
-                        Toast.makeText(MainActivity.this, "📚 Todas las canciones", Toast.LENGTH_SHORT).show();
-                    }
-                }
-            };
-            songViewModel.getAllSongs().observe(this, observer);
+            announceFavorites = false;
+            songViewModel.selectSource(LibraryViewState.SOURCE_ALL, 0);
+            Toast.makeText(this, "📚 Todas las canciones", Toast.LENGTH_SHORT).show();
         }
     }
 
-    private void refreshFavoritesView() {
-        Observer<List<Song>> observer = new Observer<List<Song>>() {
-            @Override
-            public void onChanged(List<Song> favs) {
-                songViewModel.getFavoriteSongs().removeObserver(this);
-                if (favs != null && !favs.isEmpty()) {
-                    adapter.setSongs(favs);
-                } else {
-                    showingFavorites = false;
-                    updateFavoritesButtonColor();
-                    observeSongs();
-                }
-            }
-        };
-        songViewModel.getFavoriteSongs().observe(this, observer);
-    }
-
     private void updateFavoritesButtonColor() {
         if (btnFavorites != null) {
             btnFavorites.setColorFilter(getResources().getColor(
@@ -374,10 +394,17 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
         }
     }
 
+    private void showSongDetails(long songId) {
+        // El álbum no está en la fila de la lista: se carga la canción completa
+        songViewModel.loadSong(songId, song -> runOnUiThread(() -> {
+            if (song != null && !isFinishing()) showSongDetails(song);
+        }));
+    }
+
     private void showSongDetails(Song song) {
         String details = "🎵 " + song.getTitle() + "\n\n" +
-                "👤 " + song.getArtist() + "\n" +
-                "💿 " + song.getAlbum() + "\n" +
+                "👤 " + song.getDisplayArtist() + "\n" +
+                "💿 " + song.getDisplayAlbum() + "\n" +
                 "⏱️ " + song.getFormattedDuration();
 
         new AlertDialog.Builder(this)
@@ -387,13 +414,13 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
                 .show();
     }
 
-    private void confirmDelete(Song song) {
+    private void confirmDelete(SongListItem song) {
         new AlertDialog.Builder(this)
                 .setTitle("Eliminar canción")
                 .setMessage("¿Eliminar \"" + song.getTitle() + "\"?\n\nSolo se elimina de Dabri Music.")
                 .setPositiveButton("Eliminar", (d, w) -> {
                     boolean wasFavorite = song.isFavorite();
-                    songViewModel.delete(song);
+                    songViewModel.deleteById(song.getId());
 
                     // Mensaje según si era favorita o no
                     if (wasFavorite) {
@@ -401,11 +428,6 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
                     } else {
                         Toast.makeText(this, "🗑️ Eliminada", Toast.LENGTH_SHORT).show();
                     }
-
-                    // Si estamos viendo favoritos, actualizar la vista
-                    if (showingFavorites) {
-                        new Handler().postDelayed(this::refreshFavoritesView, 300);
-                    }
                 })
                 .setNegativeButton("Cancelar", null)
                 .show();
@@ -424,6 +446,15 @@ public class MainActivity extends AppCompatActivity implements SongAdapter.OnSon
         }
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Guardar las reproducciones acumuladas antes de salir de primer plano
+        if (songViewModel != null) {
+            songViewModel.flushPlayEvents();
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
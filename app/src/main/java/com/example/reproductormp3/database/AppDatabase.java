@@ -3,27 +3,184 @@ package com.example.reproductormp3.database;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import com.example.reproductormp3.models.Album;
+import com.example.reproductormp3.models.Artist;
+import com.example.reproductormp3.models.Genre;
+import com.example.reproductormp3.models.PlayEvent;
+import com.example.reproductormp3.models.Playlist;
+import com.example.reproductormp3.models.PlaylistEntry;
+import com.example.reproductormp3.models.SmartPlaylist;
+import com.example.reproductormp3.models.SmartPlaylistMember;
+import com.example.reproductormp3.models.SmartRule;
 import com.example.reproductormp3.models.Song;
+import com.example.reproductormp3.models.SongFts;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-@Database(entities = {Song.class}, version = 1, exportSchema = false)
+@Database(entities = {Song.class, SongFts.class, Artist.class, Album.class, Genre.class,
+        PlayEvent.class, SmartPlaylist.class, SmartRule.class, SmartPlaylistMember.class,
+        Playlist.class, PlaylistEntry.class}, version = 8, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
 
     public abstract SongDao songDao();
-    // Aquí agregaremos más DAOs en el futuro (PlaylistDao, UserDao, etc.)
+    public abstract PlayEventDao playEventDao();
+    public abstract SmartPlaylistDao smartPlaylistDao();
+    public abstract PlaylistDao playlistDao();
+    public abstract BackupDao backupDao();
+    // Aquí agregaremos más DAOs en el futuro (UserDao, etc.)
 
     private static volatile AppDatabase INSTANCE;
-    private static final int NUMBER_OF_THREADS = 4;
+    // En WAL Android abre hasta 4 conexiones: una queda para el escritor
+    private static final int READER_THREADS = 3;
+
+    public static final DatabaseMetrics databaseMetrics = new DatabaseMetrics();
+
+    // Un único escritor: las escrituras se serializan aquí en lugar de esperar el lock de SQLite
+    public static final DatabaseExecutor databaseWriteExecutor =
+            new DatabaseExecutor("db-writer", 1, databaseMetrics);
+
+    // Lecturas (también las consultas LiveData de Room); en WAL no bloquean al escritor
+    public static final DatabaseExecutor databaseReadExecutor =
+            new DatabaseExecutor("db-reader", READER_THREADS, databaseMetrics);
+
+    // ========== MIGRACIONES ==========
+    // 1 -> 2: índice único en songs.path (se eliminan duplicados conservando el más antiguo)
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("DELETE FROM songs WHERE path IS NOT NULL AND id NOT IN " +
+                    "(SELECT MIN(id) FROM songs WHERE path IS NOT NULL GROUP BY path)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_songs_path` ON `songs` (`path`)");
+        }
+    };
+
+    // 2 -> 3: índice FTS4 (songs_fts) sincronizado con songs mediante triggers
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `songs_fts` USING FTS4(" +
+                    "`title` TEXT, `artist` TEXT, `album` TEXT, " +
+                    "tokenize=unicode61 `remove_diacritics=1`, content=`songs`)");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_songs_fts_BEFORE_UPDATE " +
+                    "BEFORE UPDATE ON `songs` BEGIN DELETE FROM `songs_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_songs_fts_BEFORE_DELETE " +
+                    "BEFORE DELETE ON `songs` BEGIN DELETE FROM `songs_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_songs_fts_AFTER_UPDATE " +
+                    "AFTER UPDATE ON `songs` BEGIN INSERT INTO `songs_fts`(`docid`, `title`, `artist`, `album`) " +
+                    "VALUES (NEW.`rowid`, NEW.`title`, NEW.`artist`, NEW.`album`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_songs_fts_AFTER_INSERT " +
+                    "AFTER INSERT ON `songs` BEGIN INSERT INTO `songs_fts`(`docid`, `title`, `artist`, `album`) " +
+                    "VALUES (NEW.`rowid`, NEW.`title`, NEW.`artist`, NEW.`album`); END");
+            // Indexar las canciones que ya existían
+            db.execSQL("INSERT INTO `songs_fts`(`songs_fts`) VALUES ('rebuild')");
+        }
+    };
+
+    // 3 -> 4: índice (title, id) para la paginación por keyset
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_songs_title_id` ON `songs` (`title`, `id`)");
+        }
+    };
+
+    // 4 -> 5: tablas normalizadas de artistas, álbumes y géneros con contadores
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `artists` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`name` TEXT NOT NULL, `songCount` INTEGER NOT NULL, `totalDuration` INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_artists_name` ON `artists` (`name`)");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `albums` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`name` TEXT NOT NULL, `artist` TEXT, `albumArtUri` TEXT, " +
+                    "`songCount` INTEGER NOT NULL, `totalDuration` INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_albums_name_albumArtUri` " +
+                    "ON `albums` (`name`, `albumArtUri`)");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `genres` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`name` TEXT NOT NULL, `songCount` INTEGER NOT NULL, `totalDuration` INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_genres_name` ON `genres` (`name`)");
 
-    // ExecutorService para operaciones en segundo plano
-    public static final ExecutorService databaseWriteExecutor =
-            Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+            db.execSQL("ALTER TABLE `songs` ADD COLUMN `artistId` INTEGER " +
+                    "REFERENCES `artists`(`id`) ON UPDATE NO ACTION ON DELETE SET NULL");
+            db.execSQL("ALTER TABLE `songs` ADD COLUMN `albumId` INTEGER " +
+                    "REFERENCES `albums`(`id`) ON UPDATE NO ACTION ON DELETE SET NULL");
+            db.execSQL("ALTER TABLE `songs` ADD COLUMN `genreId` INTEGER " +
+                    "REFERENCES `genres`(`id`) ON UPDATE NO ACTION ON DELETE SET NULL");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_songs_artistId` ON `songs` (`artistId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_songs_albumId` ON `songs` (`albumId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_songs_genreId` ON `songs` (`genreId`)");
+
+            LibraryTriggers.backfill(db);
+            LibraryTriggers.create(db);
+        }
+    };
+
+    // 5 -> 6: registro de reproducciones (play_events)
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `play_events` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`songId` INTEGER NOT NULL, `playedAt` INTEGER NOT NULL, " +
+                    "FOREIGN KEY(`songId`) REFERENCES `songs`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_play_events_songId` ON `play_events` (`songId`)");
+        }
+    };
+
+    // 6 -> 7: listas inteligentes (reglas y canciones que las cumplen)
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `smart_playlists` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`name` TEXT NOT NULL, `matchAll` INTEGER NOT NULL, `sortField` TEXT, " +
+                    "`sortDescending` INTEGER NOT NULL, `maxSongs` INTEGER NOT NULL)");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `smart_playlist_rules` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`playlistId` INTEGER NOT NULL, `field` TEXT NOT NULL, `operator` TEXT NOT NULL, `value` TEXT, " +
+                    "FOREIGN KEY(`playlistId`) REFERENCES `smart_playlists`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_smart_playlist_rules_playlistId` " +
+                    "ON `smart_playlist_rules` (`playlistId`)");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `smart_playlist_members` (`playlistId` INTEGER NOT NULL, " +
+                    "`songId` INTEGER NOT NULL, PRIMARY KEY(`playlistId`, `songId`), " +
+                    "FOREIGN KEY(`playlistId`) REFERENCES `smart_playlists`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE , " +
+                    "FOREIGN KEY(`songId`) REFERENCES `songs`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_smart_playlist_members_songId` " +
+                    "ON `smart_playlist_members` (`songId`)");
+        }
+    };
+
+    // 7 -> 8: listas de reproducción del usuario con posiciones con huecos
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `playlists` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`name` TEXT NOT NULL, `dateCreated` INTEGER NOT NULL)");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `playlist_entries` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`playlistId` INTEGER NOT NULL, `songId` INTEGER NOT NULL, `position` INTEGER NOT NULL, " +
+                    "FOREIGN KEY(`playlistId`) REFERENCES `playlists`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE , " +
+                    "FOREIGN KEY(`songId`) REFERENCES `songs`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_playlist_entries_playlistId_position` " +
+                    "ON `playlist_entries` (`playlistId`, `position`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_playlist_entries_songId` " +
+                    "ON `playlist_entries` (`songId`)");
+        }
+    };
+
+    // Los triggers no forman parte del esquema de Room: se aseguran en cada apertura
+    static final Callback LIBRARY_CALLBACK = new Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            LibraryTriggers.create(db);
+        }
+    };
 
     public static AppDatabase getDatabase(final Context context) {
         if (INSTANCE == null) {
@@ -34,6 +191,11 @@ public abstract class AppDatabase extends RoomDatabase {
                                     AppDatabase.class,
                                     "dabri_music_database"
                             )
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5,
+                                    MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8)
+                            .addCallback(LIBRARY_CALLBACK)
+                            .setQueryExecutor(databaseReadExecutor)
+                            .setQueryCallback(databaseMetrics, Runnable::run)
                             .fallbackToDestructiveMigration() // Para desarrollo, elimina esto en producción
                             .build();
                 }
@@ -0,0 +1,86 @@
+package com.example.reproductormp3.database;
+
+import android.database.Cursor;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.example.reproductormp3.models.Playlist;
+
+import java.util.List;
+
+/**
+ * Consultas de la copia de seguridad. La exportación lee con Cursor para no
+ * cargar la biblioteca entera en memoria.
+ */
+@Dao
+public interface BackupDao {
+
+    // ========== EXPORTAR ==========
+    @Query("SELECT path, playCount, lastPlayed, isFavorite FROM songs " +
+            "WHERE playCount > 0 OR lastPlayed > 0 OR isFavorite = 1")
+    Cursor getSongStateCursor();
+
+    @Query("SELECT * FROM playlists ORDER BY id")
+    List<Playlist> getPlaylistsSync();
+
+    @Query("SELECT songs.path FROM playlist_entries JOIN songs ON songs.id = playlist_entries.songId " +
+            "WHERE playlist_entries.playlistId = :playlistId ORDER BY playlist_entries.position")
+    Cursor getPlaylistPathCursor(long playlistId);
+
+    // ========== RESTAURAR ==========
+    /**
+     * Combina con lo que ya hay: nunca baja un contador ni quita un favorito
+     */
+    @Query("UPDATE songs SET playCount = MAX(playCount, :playCount), lastPlayed = MAX(lastPlayed, :lastPlayed), " +
+            "isFavorite = (isFavorite OR :favorite) WHERE path = :path")
+    int restoreSongState(String path, int playCount, long lastPlayed, boolean favorite);
+
+    @Query("SELECT id, path FROM songs WHERE path IN (:paths)")
+    List<SongPathId> getIdsByPaths(List<String> paths);
+
+    // Una lista de la copia es la misma si coinciden nombre y fecha de creación
+    @Query("SELECT id FROM playlists WHERE name = :name AND dateCreated = :dateCreated ORDER BY id LIMIT 1")
+    Long findPlaylistId(String name, long dateCreated);
+
+    @Query("DELETE FROM playlist_entries WHERE playlistId = :playlistId")
+    void clearPlaylist(long playlistId);
+
+    @Query("SELECT id FROM smart_playlists WHERE name = :name ORDER BY id LIMIT 1")
+    Long findSmartPlaylistId(String name);
+
+    /**
+     * Restaura un lote en una transacción; devuelve cuántas rutas existían
+     */
+    @Transaction
+    default int restoreSongStates(List<SongState> states) {
+        int matched = 0;
+        for (SongState state : states) {
+            matched += restoreSongState(state.path, state.playCount, state.lastPlayed, state.favorite);
+        }
+        return matched;
+    }
+
+    /**
+     * Estado de usuario de una canción tal como va en la copia
+     */
+    class SongState {
+        public final String path;
+        public final int playCount;
+        public final long lastPlayed;
+        public final boolean favorite;
+
+        public SongState(String path, int playCount, long lastPlayed, boolean favorite) {
+            this.path = path;
+            this.playCount = playCount;
+            this.lastPlayed = lastPlayed;
+            this.favorite = favorite;
+        }
+    }
+
+    class SongPathId {
+        public long id;
+        public String path;
+    }
+}
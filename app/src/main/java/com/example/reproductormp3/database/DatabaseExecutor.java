@@ -0,0 +1,113 @@
+package com.example.reproductormp3.database;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool de hilos de base de datos con carriles de prioridad: las tareas de
+ * {@link #PRIORITY_UI} salen de la cola antes que las de {@link #PRIORITY_BACKGROUND}
+ * (dentro de un mismo carril se respeta el orden de llegada).
+ * La espera en cola de cada tarea se registra en {@link DatabaseMetrics}.
+ */
+public class DatabaseExecutor extends ThreadPoolExecutor {
+
+    /** Lo que el usuario está esperando (favoritos, borrar, abrir una lista) */
+    public static final int PRIORITY_UI = 0;
+    /** Valor por defecto de {@link #execute(Runnable)} */
+    public static final int PRIORITY_NORMAL = 1;
+    /** Lotes del escaneo, volcado de reproducciones */
+    public static final int PRIORITY_BACKGROUND = 2;
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final String name;
+    private final DatabaseMetrics metrics;
+
+    public DatabaseExecutor(String name, int threads, DatabaseMetrics metrics) {
+        super(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+                new NamedThreadFactory(name));
+        this.name = name;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        if (command instanceof Task) {
+            super.execute(command);
+        } else {
+            execute(PRIORITY_NORMAL, command);
+        }
+    }
+
+    public void execute(int priority, @NonNull Runnable command) {
+        super.execute(new Task(priority, command));
+    }
+
+    public <T> Future<T> submit(int priority, @NonNull Callable<T> callable) {
+        FutureTask<T> future = new FutureTask<>(callable);
+        execute(priority, future);
+        return future;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private final class Task implements Runnable, Comparable<Task> {
+        final int priority;
+        final long sequence = SEQUENCE.getAndIncrement();
+        final long enqueuedAt = SystemClock.elapsedRealtime();
+        final Runnable command;
+
+        Task(int priority, Runnable command) {
+            this.priority = priority;
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            metrics.recordWait(name, priority, SystemClock.elapsedRealtime() - enqueuedAt);
+            metrics.beginTask();
+            try {
+                command.run();
+            } finally {
+                metrics.endTask();
+            }
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.reproductormp3.database;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Métricas de la capa de base de datos:
+ * <ul>
+ *     <li>Espera en cola por executor y prioridad (la registra {@link DatabaseExecutor}).</li>
+ *     <li>Latencia por sentencia SQL, a partir del QueryCallback de Room.</li>
+ * </ul>
+ * Room avisa justo antes de ejecutar cada sentencia pero no cuando termina: la
+ * latencia de una sentencia se cierra con la siguiente del mismo hilo o con el
+ * fin de la tarea del executor que la lanzó. Por eso solo se miden las sentencias
+ * de tareas de {@link DatabaseExecutor}; las de otros hilos (el escaneo, una copia
+ * de seguridad) no tienen un fin que las cierre y se ignoran. Las listas {@code IN (?,?,…)} que
+ * Room expande según el tamaño de la colección se cuentan como una sola sentencia.
+ */
+public class DatabaseMetrics implements RoomDatabase.QueryCallback {
+
+    private static final String TAG = "DatabaseMetrics";
+
+    // Una lista de parámetros: (?), (?,?), ( ?, ? ) ...
+    private static final Pattern BIND_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final String BIND_LIST_KEY = "(?…)";
+
+    private final Map<String, Stat> waits = new HashMap<>();
+    private final Map<String, Stat> queries = new HashMap<>();
+
+    // Sentencia en curso en cada hilo
+    private final ThreadLocal<Running> running = new ThreadLocal<>();
+    // true mientras el hilo corre una tarea de DatabaseExecutor
+    private final ThreadLocal<Boolean> inTask = new ThreadLocal<>();
+
+    private static class Running {
+        final String sql;
+        final long startedAt;
+
+        Running(String sql, long startedAt) {
+            this.sql = sql;
+            this.startedAt = startedAt;
+        }
+    }
+
+    /**
+     * Contador acumulado (milisegundos)
+     */
+    public static class Stat {
+        private int count;
+        private long totalMillis;
+        private long maxMillis;
+
+        void add(long millis) {
+            count++;
+            totalMillis += millis;
+            maxMillis = Math.max(maxMillis, millis);
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public long getMaxMillis() {
+            return maxMillis;
+        }
+
+        @Override
+        public String toString() {
+            return count + "x avg=" + (count > 0 ? totalMillis / count : 0) + "ms max=" + maxMillis + "ms";
+        }
+    }
+
+    // ========== COLA ==========
+    synchronized void recordWait(String executor, int priority, long millis) {
+        stat(waits, executor + "/p" + priority).add(millis);
+    }
+
+    void beginTask() {
+        inTask.set(Boolean.TRUE);
+    }
+
+    void endTask() {
+        closeRunning(SystemClock.elapsedRealtime());
+        inTask.remove();
+    }
+
+    // ========== SENTENCIAS ==========
+    @Override
+    public void onQuery(@NonNull String sqlQuery, @NonNull List<?> bindArgs) {
+        if (inTask.get() == null) return;
+        long now = SystemClock.elapsedRealtime();
+        closeRunning(now);
+        running.set(new Running(sqlQuery, now));
+    }
+
+    private void closeRunning(long now) {
+        Running previous = running.get();
+        if (previous == null) return;
+        running.remove();
+        synchronized (this) {
+            stat(queries, queryKey(previous.sql)).add(now - previous.startedAt);
+        }
+    }
+
+    /**
+     * Clave de una sentencia: el SQL con cada lista de parámetros (de cualquier tamaño)
+     * reducida a {@code (?…)}, para no abrir una entrada por tamaño de lista
+     */
+    static String queryKey(String sql) {
+        if (sql.indexOf('?') < 0) return sql;
+        return BIND_LIST.matcher(sql).replaceAll(BIND_LIST_KEY);
+    }
+
+    private static Stat stat(Map<String, Stat> map, String key) {
+        Stat stat = map.get(key);
+        if (stat == null) {
+            stat = new Stat();
+            map.put(key, stat);
+        }
+        return stat;
+    }
+
+    // ========== CONSULTA ==========
+    public synchronized Map<String, Stat> getQueueWaits() {
+        return new HashMap<>(waits);
+    }
+
+    public synchronized Map<String, Stat> getQueryLatencies() {
+        return new HashMap<>(queries);
+    }
+
+    public synchronized void reset() {
+        waits.clear();
+        queries.clear();
+    }
+
+    public synchronized void log() {
+        for (Map.Entry<String, Stat> entry : waits.entrySet()) {
+            Log.i(TAG, "cola " + entry.getKey() + ": " + entry.getValue());
+        }
+        for (Map.Entry<String, Stat> entry : queries.entrySet()) {
+            Log.i(TAG, entry.getValue() + " " + entry.getKey());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.reproductormp3.database;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Triggers que mantienen las tablas artists, albums y genres:
+ * <ul>
+ *     <li>Si una canción se escribe sin artistId/albumId/genreId, se busca la fila por
+ *     nombre (o se crea) y se enlaza. Un id que ya viene puesto no se toca.</li>
+ *     <li>songCount y totalDuration se ajustan en cada insert/update/delete de songs.</li>
+ *     <li>Las filas que se quedan sin canciones se eliminan.</li>
+ * </ul>
+ * SongDao.reconcile resuelve los ids por lotes antes de escribir, así en los
+ * escaneos los triggers de resolución no llegan a dispararse. Quien cambie etiquetas
+ * de una canción que ya tiene ids debe resolverlos también (o dejarlos en null).
+ * <p>
+ * Dentro de un trigger SQLite usa la política de conflicto de la sentencia de fuera
+ * (el REPLACE o el ABORT de Room), así que aquí no se usa INSERT OR IGNORE: la fila
+ * padre solo se inserta si no existe (INSERT ... WHERE NOT EXISTS) y nunca choca.
+ */
+final class LibraryTriggers {
+
+    private LibraryTriggers() {
+    }
+
+    static void create(SupportSQLiteDatabase db) {
+        createAggregateTriggers(db);
+
+        createResolveTriggers(db, "artist", "artists",
+                "(name, songCount, totalDuration)", "NEW.artist, 0, 0",
+                "name = NEW.artist");
+
+        createResolveTriggers(db, "album", "albums",
+                "(name, artist, albumArtUri, songCount, totalDuration)",
+                "NEW.album, NEW.artist, NEW.albumArtUri, 0, 0",
+                "name = NEW.album AND albumArtUri IS NEW.albumArtUri");
+
+        createResolveTriggers(db, "genre", "genres",
+                "(name, songCount, totalDuration)", "NEW.genre, 0, 0",
+                "name = NEW.genre");
+
+        for (String table : new String[]{"artists", "albums", "genres"}) {
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS " + table + "_cleanup " +
+                    "AFTER UPDATE OF songCount ON " + table + " WHEN NEW.songCount <= 0 BEGIN " +
+                    "DELETE FROM " + table + " WHERE id = NEW.id; END");
+        }
+    }
+
+    private static void createAggregateTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS songs_library_after_insert AFTER INSERT ON songs BEGIN " +
+                adjust("NEW", "+") + " END");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS songs_library_after_delete AFTER DELETE ON songs BEGIN " +
+                adjust("OLD", "-") + " END");
+
+        // Primero se suma a las nuevas y luego se resta a las viejas: si el id no cambia
+        // el contador nunca pasa por 0 (y el trigger de limpieza no borra la fila)
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS songs_library_after_update " +
+                "AFTER UPDATE OF artistId, albumId, genreId, duration ON songs " +
+                "WHEN OLD.artistId IS NOT NEW.artistId OR OLD.albumId IS NOT NEW.albumId " +
+                "OR OLD.genreId IS NOT NEW.genreId OR OLD.duration != NEW.duration BEGIN " +
+                adjust("NEW", "+") + " " + adjust("OLD", "-") + " END");
+    }
+
+    private static String adjust(String row, String sign) {
+        return "UPDATE artists SET songCount = songCount " + sign + " 1, totalDuration = totalDuration "
+                + sign + " " + row + ".duration WHERE id = " + row + ".artistId; " +
+                "UPDATE albums SET songCount = songCount " + sign + " 1, totalDuration = totalDuration "
+                + sign + " " + row + ".duration WHERE id = " + row + ".albumId; " +
+                "UPDATE genres SET songCount = songCount " + sign + " 1, totalDuration = totalDuration "
+                + sign + " " + row + ".duration WHERE id = " + row + ".genreId;";
+    }
+
+    private static void createResolveTriggers(SupportSQLiteDatabase db, String column, String table,
+                                              String columns, String values, String matchParent) {
+        String idColumn = column + "Id";
+        String when = " WHEN NEW." + idColumn + " IS NULL AND NEW." + column + " IS NOT NULL";
+        String body = " BEGIN " +
+                "INSERT INTO " + table + " " + columns + " SELECT " + values +
+                " WHERE NOT EXISTS (SELECT 1 FROM " + table + " WHERE " + matchParent + "); " +
+                "UPDATE songs SET " + idColumn + " = (SELECT id FROM " + table + " WHERE " + matchParent + ") " +
+                "WHERE id = NEW.id; END";
+
+        // Las versiones anteriores también resolvían por nombre con el id puesto
+        // (y con INSERT OR IGNORE): se reemplazan en cada apertura
+        db.execSQL("DROP TRIGGER IF EXISTS songs_resolve_" + column + "_insert");
+        db.execSQL("DROP TRIGGER IF EXISTS songs_resolve_" + column + "_update");
+
+        db.execSQL("CREATE TRIGGER songs_resolve_" + column + "_insert " +
+                "AFTER INSERT ON songs" + when + body);
+
+        db.execSQL("CREATE TRIGGER songs_resolve_" + column + "_update " +
+                "AFTER UPDATE OF " + column + ", " + idColumn + " ON songs" + when + body);
+    }
+
+    /**
+     * Crea las tablas normalizadas a partir de las canciones existentes (migración 4 -> 5)
+     */
+    static void backfill(SupportSQLiteDatabase db) {
+        db.execSQL("INSERT OR IGNORE INTO artists (name, songCount, totalDuration) " +
+                "SELECT DISTINCT artist, 0, 0 FROM songs WHERE artist IS NOT NULL");
+        db.execSQL("INSERT OR IGNORE INTO albums (name, artist, albumArtUri, songCount, totalDuration) " +
+                "SELECT album, MIN(artist), albumArtUri, 0, 0 FROM songs WHERE album IS NOT NULL " +
+                "GROUP BY album, albumArtUri");
+        db.execSQL("INSERT OR IGNORE INTO genres (name, songCount, totalDuration) " +
+                "SELECT DISTINCT genre, 0, 0 FROM songs WHERE genre IS NOT NULL");
+
+        db.execSQL("UPDATE songs SET " +
+                "artistId = (SELECT id FROM artists WHERE name = songs.artist), " +
+                "albumId = (SELECT id FROM albums WHERE name = songs.album AND albumArtUri IS songs.albumArtUri), " +
+                "genreId = (SELECT id FROM genres WHERE name = songs.genre)");
+
+        for (String column : new String[]{"artist", "album", "genre"}) {
+            String table = column + "s";
+            db.execSQL("UPDATE " + table + " SET " +
+                    "songCount = (SELECT COUNT(*) FROM songs WHERE " + column + "Id = " + table + ".id), " +
+                    "totalDuration = (SELECT IFNULL(SUM(duration), 0) FROM songs WHERE " + column + "Id = " + table + ".id)");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.reproductormp3.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.example.reproductormp3.models.PlayEvent;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Dao
+public interface PlayEventDao {
+
+    // ========== INSERTAR ==========
+    @Insert
+    void insertAll(List<PlayEvent> events);
+
+    // ========== CONSULTAS ==========
+    @Query("SELECT IFNULL(MAX(id), 0) FROM play_events")
+    long getLastEventId();
+
+    @Query("SELECT COUNT(*) FROM play_events WHERE songId = :songId")
+    int getPlayCount(long songId);
+
+    @Query("SELECT id FROM songs WHERE id IN (:songIds)")
+    List<Long> getExistingSongIds(List<Long> songIds);
+
+    // ========== ACUMULADOS ==========
+    /**
+     * Suma a songs los eventos con id mayor que {@code afterId}, en una sola sentencia
+     * (una fila actualizada por canción, sin importar cuántas veces se reprodujo)
+     */
+    @Query("UPDATE songs SET " +
+            "playCount = playCount + (SELECT COUNT(*) FROM play_events e " +
+            "WHERE e.songId = songs.id AND e.id > :afterId), " +
+            "lastPlayed = MAX(lastPlayed, (SELECT MAX(e.playedAt) FROM play_events e " +
+            "WHERE e.songId = songs.id AND e.id > :afterId)) " +
+            "WHERE id IN (SELECT songId FROM play_events WHERE id > :afterId)")
+    int rollUpSince(long afterId);
+
+    /**
+     * Guarda un lote de eventos y actualiza los contadores en la misma transacción.
+     * Los eventos de canciones que ya no existen se descartan: la clave foránea
+     * haría fallar el lote entero.
+     */
+    @Transaction
+    default int appendAndRollUp(List<PlayEvent> events) {
+        Set<Long> songIds = new HashSet<>();
+        for (PlayEvent event : events) {
+            songIds.add(event.getSongId());
+        }
+        List<Long> pending = new ArrayList<>(songIds);
+        Set<Long> existing = new HashSet<>();
+        for (int i = 0; i < pending.size(); i += SongDao.MAX_BIND_PARAMETERS) {
+            existing.addAll(getExistingSongIds(
+                    pending.subList(i, Math.min(i + SongDao.MAX_BIND_PARAMETERS, pending.size()))));
+        }
+        List<PlayEvent> kept = new ArrayList<>(events.size());
+        for (PlayEvent event : events) {
+            if (existing.contains(event.getSongId())) kept.add(event);
+        }
+        if (kept.isEmpty()) return 0;
+
+        long afterId = getLastEventId();
+        insertAll(kept);
+        return rollUpSince(afterId);
+    }
+}
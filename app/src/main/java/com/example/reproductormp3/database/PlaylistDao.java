@@ -0,0 +1,161 @@
+package com.example.reproductormp3.database;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Delete;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import androidx.room.Update;
+
+import com.example.reproductormp3.models.Playlist;
+import com.example.reproductormp3.models.PlaylistEntry;
+import com.example.reproductormp3.models.PlaylistSong;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Dao
+public interface PlaylistDao {
+
+    // ========== LISTAS ==========
+    @Insert
+    long insertPlaylist(Playlist playlist);
+
+    @Update
+    void updatePlaylist(Playlist playlist);
+
+    @Delete
+    void deletePlaylist(Playlist playlist);
+
+    @Query("SELECT * FROM playlists ORDER BY name")
+    LiveData<List<Playlist>> getPlaylists();
+
+    @Query("SELECT COUNT(*) FROM playlist_entries WHERE playlistId = :playlistId")
+    LiveData<Integer> getEntryCount(long playlistId);
+
+    // ========== ENTRADAS ==========
+    @Query("SELECT playlist_entries.id AS entryId, songs.* FROM playlist_entries " +
+            "JOIN songs ON songs.id = playlist_entries.songId " +
+            "WHERE playlist_entries.playlistId = :playlistId ORDER BY playlist_entries.position")
+    LiveData<List<PlaylistSong>> getPlaylistSongs(long playlistId);
+
+    @Insert
+    long insertEntry(PlaylistEntry entry);
+
+    @Insert
+    void insertEntries(List<PlaylistEntry> entries);
+
+    @Query("DELETE FROM playlist_entries WHERE id = :entryId")
+    void deleteEntry(long entryId);
+
+    @Query("UPDATE playlist_entries SET position = :position WHERE id = :entryId")
+    void updatePosition(long entryId, long position);
+
+    @Query("SELECT MAX(position) FROM playlist_entries WHERE playlistId = :playlistId")
+    Long getLastPosition(long playlistId);
+
+    /**
+     * Posiciones a partir del índice {@code offset} sin contar {@code excludedEntryId}
+     * (recorre el índice (playlistId, position), no la tabla)
+     */
+    @Query("SELECT position FROM playlist_entries WHERE playlistId = :playlistId AND id != :excludedEntryId " +
+            "ORDER BY position LIMIT :limit OFFSET :offset")
+    List<Long> getPositionsAt(long playlistId, long excludedEntryId, int offset, int limit);
+
+    @Query("SELECT id FROM playlist_entries WHERE playlistId = :playlistId ORDER BY position")
+    List<Long> getEntryIdsInOrder(long playlistId);
+
+    @Query("SELECT id FROM songs WHERE albumId = :albumId ORDER BY title, id")
+    List<Long> getSongIdsByAlbumId(long albumId);
+
+    @Query("SELECT id FROM songs WHERE artistId = :artistId ORDER BY album, title, id")
+    List<Long> getSongIdsByArtistId(long artistId);
+
+    // ========== OPERACIONES ==========
+    /**
+     * Agrega las canciones al final en una sola transacción
+     */
+    @Transaction
+    default void appendSongs(long playlistId, List<Long> songIds) {
+        Long last = getLastPosition(playlistId);
+        long position = last != null ? last : 0;
+        List<PlaylistEntry> entries = new ArrayList<>(songIds.size());
+        for (Long songId : songIds) {
+            Long next = PlaylistPositions.between(position, null);
+            if (next == null) {
+                // Final de la lista agotado: renumerar y seguir desde el nuevo último
+                insertEntries(entries);
+                entries.clear();
+                rebalance(playlistId);
+                next = PlaylistPositions.between(getLastPosition(playlistId), null);
+            }
+            position = next;
+            entries.add(new PlaylistEntry(playlistId, songId, position));
+        }
+        insertEntries(entries);
+    }
+
+    @Transaction
+    default void appendAlbum(long playlistId, long albumId) {
+        appendSongs(playlistId, getSongIdsByAlbumId(albumId));
+    }
+
+    @Transaction
+    default void appendArtist(long playlistId, long artistId) {
+        appendSongs(playlistId, getSongIdsByArtistId(artistId));
+    }
+
+    /**
+     * Inserta una canción para que quede en {@code index}; escribe una sola fila
+     */
+    @Transaction
+    default long insertSongAt(long playlistId, long songId, int index) {
+        long position = positionForIndex(playlistId, 0, index);
+        return insertEntry(new PlaylistEntry(playlistId, songId, position));
+    }
+
+    /**
+     * Mueve una entrada para que quede en {@code toIndex}; escribe una sola fila
+     */
+    @Transaction
+    default void moveEntry(long playlistId, long entryId, int toIndex) {
+        updatePosition(entryId, positionForIndex(playlistId, entryId, toIndex));
+    }
+
+    /**
+     * Posición libre para que una entrada quede en {@code index} (sin contar
+     * {@code excludedEntryId}); renumera la lista si no queda hueco
+     */
+    default long positionForIndex(long playlistId, long excludedEntryId, int index) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Long before = null;
+            Long after;
+            if (index > 0) {
+                List<Long> neighbours = getPositionsAt(playlistId, excludedEntryId, index - 1, 2);
+                before = neighbours.isEmpty() ? getLastPosition(playlistId) : neighbours.get(0);
+                after = neighbours.size() > 1 ? neighbours.get(1) : null;
+            } else {
+                List<Long> first = getPositionsAt(playlistId, excludedEntryId, 0, 1);
+                after = first.isEmpty() ? null : first.get(0);
+            }
+            Long position = PlaylistPositions.between(before, after);
+            if (position != null) {
+                return position;
+            }
+            rebalance(playlistId);
+        }
+        throw new IllegalStateException("Sin hueco tras renumerar la lista " + playlistId);
+    }
+
+    /**
+     * Vuelve a separar las posiciones de toda la lista (caso raro)
+     */
+    @Transaction
+    default void rebalance(long playlistId) {
+        List<Long> entryIds = getEntryIdsInOrder(playlistId);
+        for (int i = 0; i < entryIds.size(); i++) {
+            updatePosition(entryIds.get(i), PlaylistPositions.atIndex(i));
+        }
+    }
+}
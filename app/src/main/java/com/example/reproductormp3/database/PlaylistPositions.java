@@ -0,0 +1,45 @@
+package com.example.reproductormp3.database;
+
+/**
+ * Claves de orden con huecos para playlist_entries. Las entradas nuevas se separan
+ * {@link #GAP}; mover o insertar toma el punto medio entre las vecinas, así que
+ * solo se escribe la fila movida. Cuando dos vecinas quedan pegadas (tras unas 20
+ * inserciones en el mismo hueco) la lista se renumera una vez.
+ */
+public final class PlaylistPositions {
+
+    public static final long GAP = 1L << 20;
+
+    private PlaylistPositions() {
+    }
+
+    /**
+     * Posición entre {@code before} y {@code after} (null = extremo de la lista),
+     * o null si no queda hueco y hay que renumerar
+     */
+    public static Long between(Long before, Long after) {
+        if (before == null && after == null) {
+            return GAP;
+        }
+        if (before == null) {
+            return after > Long.MIN_VALUE + GAP ? after - GAP : midpoint(Long.MIN_VALUE, after);
+        }
+        if (after == null) {
+            return before < Long.MAX_VALUE - GAP ? before + GAP : midpoint(before, Long.MAX_VALUE);
+        }
+        return midpoint(before, after);
+    }
+
+    /**
+     * Posición de la entrada {@code index} (desde 0) al renumerar
+     */
+    public static long atIndex(int index) {
+        return (index + 1) * GAP;
+    }
+
+    private static Long midpoint(long low, long high) {
+        // Sin desbordar: low + (high - low) / 2 puede desbordar con signos distintos
+        long middle = (low >> 1) + (high >> 1) + (low & high & 1);
+        return middle > low && middle < high ? middle : null;
+    }
+}
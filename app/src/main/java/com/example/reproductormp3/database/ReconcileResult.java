@@ -0,0 +1,84 @@
+package com.example.reproductormp3.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conteo de cambios aplicados por {@link SongDao#reconcile}
+ */
+public class ReconcileResult {
+
+    private int inserted;
+    private int updated;
+    private int deleted;
+    private int unchanged;
+    private final List<Long> changedSongIds = new ArrayList<>();
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * Ids de las canciones insertadas o actualizadas (las eliminadas no tienen id que seguir)
+     */
+    public List<Long> getChangedSongIds() {
+        return changedSongIds;
+    }
+
+    public void addChangedSongIds(List<Long> songIds) {
+        changedSongIds.addAll(songIds);
+    }
+
+    public void addInserted(int count) {
+        inserted += count;
+    }
+
+    public void addUpdated(int count) {
+        updated += count;
+    }
+
+    public void addDeleted(int count) {
+        deleted += count;
+    }
+
+    public void addUnchanged(int count) {
+        unchanged += count;
+    }
+
+    /**
+     * Acumula el resultado de otro lote
+     */
+    public void add(ReconcileResult other) {
+        inserted += other.inserted;
+        updated += other.updated;
+        deleted += other.deleted;
+        unchanged += other.unchanged;
+        changedSongIds.addAll(other.changedSongIds);
+    }
+
+    public int getTotal() {
+        return inserted + updated + unchanged;
+    }
+
+    @Override
+    public String toString() {
+        return "ReconcileResult{" +
+                "inserted=" + inserted +
+                ", updated=" + updated +
+                ", deleted=" + deleted +
+                ", unchanged=" + unchanged +
+                '}';
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.reproductormp3.database;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Delete;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.RawQuery;
+import androidx.room.Transaction;
+import androidx.room.Update;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import com.example.reproductormp3.models.SmartPlaylist;
+import com.example.reproductormp3.models.SmartPlaylistMember;
+import com.example.reproductormp3.models.SmartRule;
+import com.example.reproductormp3.models.Song;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Dao
+public interface SmartPlaylistDao {
+
+    // ========== LISTAS Y REGLAS ==========
+    @Insert
+    long insertPlaylist(SmartPlaylist playlist);
+
+    @Update
+    void updatePlaylist(SmartPlaylist playlist);
+
+    @Delete
+    void deletePlaylist(SmartPlaylist playlist);
+
+    @Insert
+    void insertRules(List<SmartRule> rules);
+
+    @Query("DELETE FROM smart_playlist_rules WHERE playlistId = :playlistId")
+    void deleteRules(long playlistId);
+
+    @Query("SELECT * FROM smart_playlists ORDER BY name")
+    LiveData<List<SmartPlaylist>> getPlaylists();
+
+    @Query("SELECT * FROM smart_playlists")
+    List<SmartPlaylist> getPlaylistsSync();
+
+    @Query("SELECT * FROM smart_playlist_rules WHERE playlistId = :playlistId ORDER BY id")
+    List<SmartRule> getRules(long playlistId);
+
+    // ========== PERTENENCIA ==========
+    @RawQuery
+    List<Long> getMatchingSongIds(SupportSQLiteQuery query);
+
+    @RawQuery(observedEntities = {Song.class, SmartPlaylistMember.class})
+    LiveData<List<Song>> getPlaylistSongs(SupportSQLiteQuery query);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertMembers(List<SmartPlaylistMember> members);
+
+    @Query("DELETE FROM smart_playlist_members WHERE playlistId = :playlistId")
+    void clearMembers(long playlistId);
+
+    @Query("DELETE FROM smart_playlist_members WHERE playlistId = :playlistId AND songId IN (:songIds)")
+    void removeMembers(long playlistId, List<Long> songIds);
+
+    /**
+     * Guarda la lista con sus reglas y calcula su contenido completo
+     */
+    @Transaction
+    default long savePlaylist(SmartPlaylist playlist, List<SmartRule> rules) {
+        SmartPlaylistQuery.validate(playlist, rules);
+        if (playlist.getId() == 0) {
+            playlist.setId(insertPlaylist(playlist));
+        } else {
+            updatePlaylist(playlist);
+            deleteRules(playlist.getId());
+        }
+        for (SmartRule rule : rules) {
+            rule.setId(0);
+            rule.setPlaylistId(playlist.getId());
+        }
+        insertRules(rules);
+        rebuildMembers(playlist, rules);
+        return playlist.getId();
+    }
+
+    /**
+     * Reevalúa las reglas sobre toda la tabla songs
+     */
+    @Transaction
+    default void rebuildMembers(SmartPlaylist playlist, List<SmartRule> rules) {
+        clearMembers(playlist.getId());
+        List<Long> songIds = getMatchingSongIds(
+                SmartPlaylistQuery.matchingSongIds(rules, playlist.isMatchAll(), null));
+        insertMembers(toMembers(playlist.getId(), songIds));
+    }
+
+    /**
+     * Reevalúa las reglas solo para {@code songIds}: entran las que ahora las cumplen
+     * y salen las que dejaron de cumplirlas
+     */
+    @Transaction
+    default void refreshMembers(SmartPlaylist playlist, List<SmartRule> rules, List<Long> songIds) {
+        for (int i = 0; i < songIds.size(); i += SongDao.MAX_BIND_PARAMETERS) {
+            List<Long> chunk = songIds.subList(i, Math.min(i + SongDao.MAX_BIND_PARAMETERS, songIds.size()));
+            Set<Long> matching = new HashSet<>(getMatchingSongIds(
+                    SmartPlaylistQuery.matchingSongIds(rules, playlist.isMatchAll(), chunk)));
+
+            List<Long> leaving = new ArrayList<>();
+            for (Long songId : chunk) {
+                if (!matching.contains(songId)) {
+                    leaving.add(songId);
+                }
+            }
+            if (!leaving.isEmpty()) {
+                removeMembers(playlist.getId(), leaving);
+            }
+            insertMembers(toMembers(playlist.getId(), matching));
+        }
+    }
+
+    default List<SmartPlaylistMember> toMembers(long playlistId, Iterable<Long> songIds) {
+        List<SmartPlaylistMember> members = new ArrayList<>();
+        for (Long songId : songIds) {
+            members.add(new SmartPlaylistMember(playlistId, songId));
+        }
+        return members;
+    }
+}
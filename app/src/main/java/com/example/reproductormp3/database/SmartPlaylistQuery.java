@@ -0,0 +1,195 @@
+package com.example.reproductormp3.database;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import com.example.reproductormp3.models.SmartPlaylist;
+import com.example.reproductormp3.models.SmartRule;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compila las reglas de una lista inteligente a consultas SQL parametrizadas.
+ * Solo se aceptan los campos y operadores conocidos (los nombres de columna nunca
+ * vienen del usuario) y los valores siempre van como parámetros.
+ * <p>
+ * artist, album y genre con = o != se comparan por id (artistId IN (SELECT id FROM
+ * artists WHERE name = ?)), así usan los índices de las tablas normalizadas y de
+ * las claves foráneas de songs.
+ */
+public final class SmartPlaylistQuery {
+
+    private static final int TEXT = 0;
+    private static final int NUMBER = 1;
+    private static final int BOOLEAN = 2;
+
+    private static final Map<String, Column> COLUMNS = new HashMap<>();
+
+    static {
+        COLUMNS.put(SmartRule.FIELD_TITLE, new Column("songs.title", TEXT, null));
+        COLUMNS.put(SmartRule.FIELD_ARTIST, new Column("songs.artist", TEXT, "artist"));
+        COLUMNS.put(SmartRule.FIELD_ALBUM, new Column("songs.album", TEXT, "album"));
+        COLUMNS.put(SmartRule.FIELD_GENRE, new Column("songs.genre", TEXT, "genre"));
+        COLUMNS.put(SmartRule.FIELD_YEAR, new Column("songs.year", NUMBER, null));
+        COLUMNS.put(SmartRule.FIELD_DURATION, new Column("songs.duration", NUMBER, null));
+        COLUMNS.put(SmartRule.FIELD_PLAY_COUNT, new Column("songs.playCount", NUMBER, null));
+        COLUMNS.put(SmartRule.FIELD_LAST_PLAYED, new Column("songs.lastPlayed", NUMBER, null));
+        COLUMNS.put(SmartRule.FIELD_DATE_ADDED, new Column("songs.dateAdded", NUMBER, null));
+        COLUMNS.put(SmartRule.FIELD_FAVORITE, new Column("songs.isFavorite", BOOLEAN, null));
+    }
+
+    private static class Column {
+        final String sql;
+        final int type;
+        final String normalized;      // artist/album/genre: tabla con índice por nombre
+
+        Column(String sql, int type, String normalized) {
+            this.sql = sql;
+            this.type = type;
+            this.normalized = normalized;
+        }
+    }
+
+    private SmartPlaylistQuery() {
+    }
+
+    /**
+     * Ids de las canciones que cumplen las reglas; si {@code onlySongIds} no es null
+     * se evalúan solo esas (máx. SongDao.MAX_BIND_PARAMETERS)
+     */
+    public static SupportSQLiteQuery matchingSongIds(List<SmartRule> rules, boolean matchAll,
+                                                     Collection<Long> onlySongIds) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT songs.id FROM songs WHERE (")
+                .append(where(rules, matchAll, args)).append(')');
+        if (onlySongIds != null) {
+            sql.append(" AND songs.id IN (");
+            appendPlaceholders(sql, onlySongIds.size());
+            sql.append(')');
+            args.addAll(onlySongIds);
+        }
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+
+    /**
+     * Canciones de la lista (ya materializadas) con su orden y límite
+     */
+    public static SupportSQLiteQuery playlistSongs(SmartPlaylist playlist) {
+        List<Object> args = new ArrayList<>();
+        args.add(playlist.getId());
+        StringBuilder sql = new StringBuilder("SELECT songs.* FROM smart_playlist_members ")
+                .append("JOIN songs ON songs.id = smart_playlist_members.songId ")
+                .append("WHERE smart_playlist_members.playlistId = ? ORDER BY ");
+
+        String sortField = playlist.getSortField();
+        if (sortField != null) {
+            sql.append(column(sortField).sql).append(playlist.isSortDescending() ? " DESC, " : " ASC, ");
+        }
+        sql.append("songs.title ASC, songs.id ASC");
+
+        if (playlist.getMaxSongs() > 0) {
+            sql.append(" LIMIT ?");
+            args.add(playlist.getMaxSongs());
+        }
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+
+    /**
+     * Lanza IllegalArgumentException si alguna regla no se puede compilar
+     */
+    public static void validate(SmartPlaylist playlist, List<SmartRule> rules) {
+        where(rules, playlist.isMatchAll(), new ArrayList<>());
+        if (playlist.getSortField() != null) {
+            column(playlist.getSortField());
+        }
+    }
+
+    static String where(List<SmartRule> rules, boolean matchAll, List<Object> args) {
+        if (rules.isEmpty()) {
+            return "1";
+        }
+        StringBuilder sql = new StringBuilder();
+        for (SmartRule rule : rules) {
+            if (sql.length() > 0) {
+                sql.append(matchAll ? " AND " : " OR ");
+            }
+            sql.append('(').append(condition(rule, args)).append(')');
+        }
+        return sql.toString();
+    }
+
+    private static String condition(SmartRule rule, List<Object> args) {
+        Column column = column(rule.getField());
+        String operator = rule.getOperator();
+        String value = rule.getValue();
+
+        if (column.type == TEXT) {
+            if (value == null) {
+                throw new IllegalArgumentException("Regla sin valor: " + rule);
+            }
+            if (SmartRule.OP_CONTAINS.equals(operator)) {
+                args.add('%' + escapeLike(value) + '%');
+                return column.sql + " LIKE ? ESCAPE '\\'";
+            }
+            if (column.normalized != null
+                    && (SmartRule.OP_EQUALS.equals(operator) || SmartRule.OP_NOT_EQUALS.equals(operator))) {
+                String idColumn = "songs." + column.normalized + "Id";
+                String ids = "(SELECT id FROM " + column.normalized + "s WHERE name = ?)";
+                args.add(value);
+                return SmartRule.OP_EQUALS.equals(operator)
+                        ? idColumn + " IN " + ids
+                        : idColumn + " IS NULL OR " + idColumn + " NOT IN " + ids;
+            }
+            args.add(value);
+            return column.sql + comparison(operator) + "?";
+        }
+
+        if (SmartRule.OP_CONTAINS.equals(operator)) {
+            throw new IllegalArgumentException("Operador no válido para " + rule.getField() + ": " + operator);
+        }
+        if (column.type == BOOLEAN) {
+            args.add("true".equalsIgnoreCase(value) || "1".equals(value) ? 1 : 0);
+        } else {
+            try {
+                args.add(Long.parseLong(value != null ? value.trim() : ""));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Valor numérico no válido: " + rule);
+            }
+        }
+        return column.sql + comparison(operator) + "?";
+    }
+
+    private static String comparison(String operator) {
+        switch (operator) {
+            case SmartRule.OP_EQUALS: return " = ";
+            case SmartRule.OP_NOT_EQUALS: return " != ";
+            case SmartRule.OP_LESS: return " < ";
+            case SmartRule.OP_LESS_OR_EQUAL: return " <= ";
+            case SmartRule.OP_GREATER: return " > ";
+            case SmartRule.OP_GREATER_OR_EQUAL: return " >= ";
+            default: throw new IllegalArgumentException("Operador desconocido: " + operator);
+        }
+    }
+
+    private static Column column(String field) {
+        Column column = COLUMNS.get(field);
+        if (column == null) {
+            throw new IllegalArgumentException("Campo desconocido: " + field);
+        }
+        return column;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static void appendPlaceholders(StringBuilder sql, int count) {
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+    }
+}
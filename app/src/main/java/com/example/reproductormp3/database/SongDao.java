@@ -1,31 +1,78 @@
 package com.example.reproductormp3.database;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
+import com.example.reproductormp3.models.Album;
+import com.example.reproductormp3.models.Artist;
+import com.example.reproductormp3.models.Genre;
 import com.example.reproductormp3.models.Song;
+import com.example.reproductormp3.models.SongListItem;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Dao
 public interface SongDao {
 
+    // SQLite limita el número de parámetros por sentencia (999 en versiones antiguas)
+    int MAX_BIND_PARAMETERS = 500;
+
+    // Columnas de SongListItem (filas de la lista)
+    String LIST_COLUMNS = "id, title, artist, duration, albumId, albumArtUri, isFavorite";
+
+    // Columnas de la foto en memoria (LibrarySnapshot)
+    String SNAPSHOT_COLUMNS = "id, title, duration, year, dateAdded, playCount, lastPlayed, isFavorite, " +
+            "artistId, artist, albumId, album, albumArtUri, genreId, genre";
+
+    // Coincidencias de :match con su rango (1 título, 2 artista, 3 álbum), una fila por
+    // canción; se ordena por MIN(matches.rank)
+    String SEARCH_MATCHES = "(" +
+            "SELECT docid, 1 AS rank FROM songs_fts WHERE title MATCH :match " +
+            "UNION ALL SELECT docid, 2 AS rank FROM songs_fts WHERE artist MATCH :match " +
+            "UNION ALL SELECT docid, 3 AS rank FROM songs_fts WHERE album MATCH :match" +
+            ") AS matches ON songs.id = matches.docid GROUP BY songs.id";
+
     // ========== INSERTAR ==========
-    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    // Una ruta que ya existe se ignora (devuelve -1): REPLACE borraría la fila vieja con
+    // sus reproducciones, favorito y listas. Para insertar o actualizar por ruta: reconcile
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
     long insert(Song song);
 
-    @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertAll(List<Song> songs);
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    List<Long> insertAll(List<Song> songs);
 
     // ========== ACTUALIZAR ==========
     @Update
     void update(Song song);
 
+    @Update
+    void updateAll(List<Song> songs);
+
+    /**
+     * Actualiza una canción con etiquetas editadas: artistId, albumId y genreId se
+     * vuelven a resolver por nombre (los triggers no tocan un id que ya viene puesto)
+     */
+    @Transaction
+    default void updateWithTags(Song song) {
+        resolveLibraryIds(Collections.singletonList(song));
+        update(song);
+    }
+
     // ========== ELIMINAR ==========
     @Delete
     void delete(Song song);
@@ -33,6 +80,12 @@ public interface SongDao {
     @Query("DELETE FROM songs")
     void deleteAll();
 
+    @Query("DELETE FROM songs WHERE id = :songId")
+    void deleteById(long songId);
+
+    @Query("DELETE FROM songs WHERE path IN (:paths)")
+    int deleteByPaths(List<String> paths);
+
     // ========== CONSULTAS BÁSICAS ==========
     @Query("SELECT * FROM songs ORDER BY title ASC")
     LiveData<List<Song>> getAllSongs();
@@ -40,22 +93,54 @@ public interface SongDao {
     @Query("SELECT * FROM songs WHERE id = :songId")
     LiveData<Song> getSongById(long songId);
 
+    // ========== PAGINACIÓN (keyset sobre title, id) ==========
+    @Query("SELECT " + LIST_COLUMNS + " FROM songs ORDER BY title ASC, id ASC LIMIT :limit")
+    List<SongListItem> getFirstPage(int limit);
+
+    // title >= :title acota el índice (title, id); con un OR en la raíz SQLite lo recorre entero
+    @Query("SELECT " + LIST_COLUMNS + " FROM songs WHERE title >= :title AND (title > :title OR id > :id) " +
+            "ORDER BY title ASC, id ASC LIMIT :limit")
+    List<SongListItem> getPageAfter(String title, long id, int limit);
+
+    @Query("SELECT " + LIST_COLUMNS + " FROM songs ORDER BY title ASC, id ASC LIMIT :limit OFFSET :offset")
+    List<SongListItem> getPageAt(int offset, int limit);
+
+    @Query("SELECT COUNT(*) FROM songs")
+    int getSongsCount();
+
+    @Query("SELECT * FROM songs ORDER BY title ASC, id ASC")
+    List<Song> getAllSongsSync();
+
+    @Query("SELECT * FROM songs WHERE id = :songId")
+    Song getSongByIdSync(long songId);
+
+    @Query("SELECT * FROM songs WHERE id IN (:songIds)")
+    List<Song> getSongsByIds(List<Long> songIds);
+
+    @Query("SELECT " + LIST_COLUMNS + " FROM songs WHERE id IN (:songIds)")
+    List<SongListItem> getListItemsByIds(List<Long> songIds);
+
     @Query("SELECT * FROM songs WHERE path = :path")
     Song getSongByPath(String path);
 
     // ========== BÚSQUEDA ==========
-    @Query("SELECT * FROM songs WHERE title LIKE '%' || :query || '%' " +
-            "OR artist LIKE '%' || :query || '%' " +
-            "OR album LIKE '%' || :query || '%' " +
-            "ORDER BY title ASC")
-    LiveData<List<Song>> searchSongs(String query);
+    /**
+     * Búsqueda de texto completo. {@code match} es una expresión MATCH de FTS4
+     * (ver FtsQuery). Primero las coincidencias en el título, luego artista y álbum.
+     */
+    @Query("SELECT songs.* FROM songs JOIN " + SEARCH_MATCHES + " ORDER BY MIN(matches.rank), songs.title ASC")
+    List<Song> searchSongsSync(String match);
+
+    @Query("SELECT " + LIST_COLUMNS + " FROM songs JOIN " + SEARCH_MATCHES +
+            " ORDER BY MIN(matches.rank), songs.title ASC")
+    List<SongListItem> searchListItemsSync(String match);
 
     // ========== FILTROS ==========
     @Query("SELECT * FROM songs WHERE artist = :artist ORDER BY album, title")
-    LiveData<List<Song>> getSongsByArtist(String artist);
+    List<Song> getSongsByArtistSync(String artist);
 
     @Query("SELECT * FROM songs WHERE album = :album ORDER BY title")
-    LiveData<List<Song>> getSongsByAlbum(String album);
+    List<Song> getSongsByAlbumSync(String album);
 
     @Query("SELECT * FROM songs WHERE genre = :genre ORDER BY title")
     LiveData<List<Song>> getSongsByGenre(String genre);
@@ -64,6 +149,12 @@ public interface SongDao {
     @Query("SELECT * FROM songs WHERE isFavorite = 1 ORDER BY title")
     LiveData<List<Song>> getFavoriteSongs();
 
+    @Query("SELECT " + LIST_COLUMNS + " FROM songs WHERE isFavorite = 1 ORDER BY title")
+    List<SongListItem> getFavoriteListItemsSync();
+
+    @Query("SELECT * FROM songs WHERE isFavorite = 1 ORDER BY title")
+    List<Song> getFavoriteSongsSync();
+
     @Query("UPDATE songs SET isFavorite = :isFavorite WHERE id = :songId")
     void updateFavoriteStatus(long songId, boolean isFavorite);
 
@@ -74,19 +165,44 @@ public interface SongDao {
     @Query("SELECT * FROM songs ORDER BY playCount DESC LIMIT :limit")
     LiveData<List<Song>> getMostPlayedSongs(int limit);
 
+    @Query("SELECT * FROM songs ORDER BY playCount DESC LIMIT :limit")
+    List<Song> getMostPlayedSongsSync(int limit);
+
     @Query("SELECT * FROM songs WHERE lastPlayed > 0 ORDER BY lastPlayed DESC LIMIT :limit")
     LiveData<List<Song>> getRecentlyPlayedSongs(int limit);
 
-    // ========== ARTISTAS Y ÁLBUMES (DISTINCT) ==========
-    @Query("SELECT DISTINCT artist FROM songs WHERE artist IS NOT NULL ORDER BY artist")
+    @Query("SELECT * FROM songs WHERE lastPlayed > 0 ORDER BY lastPlayed DESC LIMIT :limit")
+    List<Song> getRecentlyPlayedSongsSync(int limit);
+
+    // ========== ARTISTAS, ÁLBUMES Y GÉNEROS ==========
+    // Se leen de las tablas agregadas (una fila por nombre) en lugar de recorrer songs
+    @Query("SELECT name FROM artists WHERE songCount > 0 ORDER BY name")
     LiveData<List<String>> getAllArtists();
 
-    @Query("SELECT DISTINCT album FROM songs WHERE album IS NOT NULL ORDER BY album")
+    @Query("SELECT DISTINCT name FROM albums WHERE songCount > 0 ORDER BY name")
     LiveData<List<String>> getAllAlbums();
 
-    @Query("SELECT DISTINCT genre FROM songs WHERE genre IS NOT NULL ORDER BY genre")
+    @Query("SELECT name FROM genres WHERE songCount > 0 ORDER BY name")
     LiveData<List<String>> getAllGenres();
 
+    @Query("SELECT * FROM artists WHERE songCount > 0 ORDER BY name")
+    LiveData<List<Artist>> getArtists();
+
+    @Query("SELECT * FROM albums WHERE songCount > 0 ORDER BY name")
+    LiveData<List<Album>> getAlbums();
+
+    @Query("SELECT * FROM genres WHERE songCount > 0 ORDER BY name")
+    LiveData<List<Genre>> getGenres();
+
+    @Query("SELECT * FROM songs WHERE artistId = :artistId ORDER BY album, title")
+    List<Song> getSongsByArtistIdSync(long artistId);
+
+    @Query("SELECT * FROM songs WHERE albumId = :albumId ORDER BY title")
+    List<Song> getSongsByAlbumIdSync(long albumId);
+
+    @Query("SELECT * FROM songs WHERE genreId = :genreId ORDER BY title")
+    List<Song> getSongsByGenreIdSync(long genreId);
+
     // ========== ESTADÍSTICAS ==========
     @Query("SELECT COUNT(*) FROM songs")
     LiveData<Integer> getTotalSongsCount();
@@ -94,15 +210,18 @@ public interface SongDao {
     @Query("SELECT SUM(duration) FROM songs")
     LiveData<Long> getTotalDuration();
 
-    @Query("SELECT COUNT(DISTINCT artist) FROM songs WHERE artist IS NOT NULL")
+    @Query("SELECT SUM(duration) FROM songs")
+    Long getTotalDurationSync();
+
+    @Query("SELECT COUNT(*) FROM artists WHERE songCount > 0")
     LiveData<Integer> getTotalArtistsCount();
 
-    @Query("SELECT COUNT(DISTINCT album) FROM songs WHERE album IS NOT NULL")
+    @Query("SELECT COUNT(*) FROM albums WHERE songCount > 0")
     LiveData<Integer> getTotalAlbumsCount();
 
     // ========== ORDENAMIENTO ==========
     @Query("SELECT * FROM songs ORDER BY dateAdded DESC LIMIT :limit")
-    LiveData<List<Song>> getRecentlyAddedSongs(int limit);
+    List<Song> getRecentlyAddedSongsSync(int limit);
 
     @Query("SELECT * FROM songs ORDER BY year DESC")
     LiveData<List<Song>> getSongsByYear();
@@ -110,4 +229,175 @@ public interface SongDao {
     // ========== VERIFICACIÓN ==========
     @Query("SELECT EXISTS(SELECT 1 FROM songs WHERE path = :path)")
     boolean songExists(String path);
+
+    @Query("SELECT path FROM songs")
+    List<String> getAllPaths();
+
+    @Query("SELECT path FROM songs WHERE path IN (:paths)")
+    List<String> getExistingPaths(List<String> paths);
+
+    /**
+     * Rutas de {@code paths} que ya están guardadas, en bloques de MAX_BIND_PARAMETERS
+     */
+    default Set<String> findExistingPaths(Collection<String> paths) {
+        List<String> pending = new ArrayList<>(paths);
+        Set<String> existing = new HashSet<>();
+        for (int i = 0; i < pending.size(); i += MAX_BIND_PARAMETERS) {
+            existing.addAll(getExistingPaths(pending.subList(i, Math.min(i + MAX_BIND_PARAMETERS, pending.size()))));
+        }
+        return existing;
+    }
+
+    // ========== FOTO EN MEMORIA ==========
+    // Se leen con Cursor para llenar los arreglos por columna sin crear un objeto por canción
+    @Query("SELECT " + SNAPSHOT_COLUMNS + " FROM songs ORDER BY id")
+    Cursor getSnapshotCursor();
+
+    @Query("SELECT " + SNAPSHOT_COLUMNS + " FROM songs WHERE id IN (:songIds) ORDER BY id")
+    Cursor getSnapshotCursorByIds(List<Long> songIds);
+
+    @Query("SELECT id FROM songs ORDER BY id")
+    Cursor getIdCursor();
+
+    // ========== RESOLUCIÓN DE ARTISTAS, ÁLBUMES Y GÉNEROS ==========
+    @Query("INSERT OR IGNORE INTO artists (name, songCount, totalDuration) VALUES (:name, 0, 0)")
+    void insertArtistIfMissing(String name);
+
+    @Query("INSERT OR IGNORE INTO albums (name, artist, albumArtUri, songCount, totalDuration) " +
+            "VALUES (:name, :artist, :albumArtUri, 0, 0)")
+    void insertAlbumIfMissing(String name, String artist, String albumArtUri);
+
+    @Query("INSERT OR IGNORE INTO genres (name, songCount, totalDuration) VALUES (:name, 0, 0)")
+    void insertGenreIfMissing(String name);
+
+    @Query("SELECT * FROM artists WHERE name IN (:names)")
+    List<Artist> getArtistsByNames(List<String> names);
+
+    @Query("SELECT * FROM albums WHERE name IN (:names)")
+    List<Album> getAlbumsByNames(List<String> names);
+
+    @Query("SELECT * FROM genres WHERE name IN (:names)")
+    List<Genre> getGenresByNames(List<String> names);
+
+    /**
+     * Asigna artistId, albumId y genreId a un lote (máx. MAX_BIND_PARAMETERS nombres
+     * distintos por tipo), creando las filas que falten. Una consulta por tipo en vez
+     * de una por canción. Como los triggers, una canción sin etiqueta queda con el id
+     * en null: no se inventa un "Artista Desconocido".
+     */
+    default void resolveLibraryIds(List<Song> songs) {
+        Map<String, Long> artistIds = new HashMap<>();
+        Map<String, Long> albumIds = new HashMap<>();
+        Map<String, Long> genreIds = new HashMap<>();
+        Set<String> albumNames = new HashSet<>();
+
+        for (Song song : songs) {
+            String artist = song.getArtist();
+            if (artist != null && !artistIds.containsKey(artist)) {
+                insertArtistIfMissing(artist);
+                artistIds.put(artist, null);
+            }
+            if (song.getAlbum() != null) {
+                String albumKey = song.getAlbum() + '\u0000' + song.getAlbumArtUri();
+                if (!albumIds.containsKey(albumKey)) {
+                    insertAlbumIfMissing(song.getAlbum(), artist, song.getAlbumArtUri());
+                    albumIds.put(albumKey, null);
+                    albumNames.add(song.getAlbum());
+                }
+            }
+            if (song.getGenre() != null && !genreIds.containsKey(song.getGenre())) {
+                insertGenreIfMissing(song.getGenre());
+                genreIds.put(song.getGenre(), null);
+            }
+        }
+
+        if (!artistIds.isEmpty()) {
+            for (Artist artist : getArtistsByNames(new ArrayList<>(artistIds.keySet()))) {
+                artistIds.put(artist.getName(), artist.getId());
+            }
+        }
+        if (!albumNames.isEmpty()) {
+            for (Album album : getAlbumsByNames(new ArrayList<>(albumNames))) {
+                String albumKey = album.getName() + '\u0000' + album.getAlbumArtUri();
+                if (albumIds.containsKey(albumKey)) {
+                    albumIds.put(albumKey, album.getId());
+                }
+            }
+        }
+        if (!genreIds.isEmpty()) {
+            for (Genre genre : getGenresByNames(new ArrayList<>(genreIds.keySet()))) {
+                genreIds.put(genre.getName(), genre.getId());
+            }
+        }
+
+        for (Song song : songs) {
+            song.setArtistId(song.getArtist() != null ? artistIds.get(song.getArtist()) : null);
+            song.setAlbumId(song.getAlbum() != null
+                    ? albumIds.get(song.getAlbum() + '\u0000' + song.getAlbumArtUri()) : null);
+            song.setGenreId(song.getGenre() != null ? genreIds.get(song.getGenre()) : null);
+        }
+    }
+
+    // ========== RECONCILIACIÓN ==========
+    @Query("SELECT * FROM songs WHERE path IN (:paths)")
+    List<Song> getSongsByPaths(List<String> paths);
+
+    /**
+     * Reconcilia canciones escaneadas con las guardadas (búsqueda por ruta en un
+     * HashMap, un SELECT por cada bloque de rutas) en una sola transacción:
+     * inserta las nuevas, actualiza solo las que cambiaron de etiquetas y elimina
+     * las rutas indicadas. Las actualizadas conservan id, reproducciones y favorito.
+     */
+    @Transaction
+    default ReconcileResult reconcile(List<Song> scanned, List<String> removedPaths) {
+        ReconcileResult result = new ReconcileResult();
+        List<Song> toInsert = new ArrayList<>();
+        List<Song> toUpdate = new ArrayList<>();
+
+        for (int i = 0; i < scanned.size(); i += MAX_BIND_PARAMETERS) {
+            List<Song> chunk = scanned.subList(i, Math.min(i + MAX_BIND_PARAMETERS, scanned.size()));
+            List<String> paths = new ArrayList<>(chunk.size());
+            for (Song song : chunk) {
+                paths.add(song.getPath());
+            }
+
+            resolveLibraryIds(chunk);
+
+            Map<String, Song> storedByPath = new HashMap<>();
+            for (Song stored : getSongsByPaths(paths)) {
+                storedByPath.put(stored.getPath(), stored);
+            }
+
+            for (Song song : chunk) {
+                Song stored = storedByPath.get(song.getPath());
+                if (stored == null) {
+                    toInsert.add(song);
+                } else if (!stored.hasSameTags(song)) {
+                    song.copyUserStateFrom(stored);
+                    toUpdate.add(song);
+                } else {
+                    result.addUnchanged(1);
+                }
+            }
+        }
+
+        if (!toInsert.isEmpty()) {
+            result.addChangedSongIds(insertAll(toInsert));
+            result.addInserted(toInsert.size());
+        }
+        if (!toUpdate.isEmpty()) {
+            updateAll(toUpdate);
+            List<Long> updatedIds = new ArrayList<>(toUpdate.size());
+            for (Song song : toUpdate) {
+                updatedIds.add(song.getId());
+            }
+            result.addChangedSongIds(updatedIds);
+            result.addUpdated(toUpdate.size());
+        }
+        for (int i = 0; i < removedPaths.size(); i += MAX_BIND_PARAMETERS) {
+            result.addDeleted(deleteByPaths(
+                    removedPaths.subList(i, Math.min(i + MAX_BIND_PARAMETERS, removedPaths.size()))));
+        }
+        return result;
+    }
 }
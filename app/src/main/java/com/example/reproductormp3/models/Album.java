@@ -0,0 +1,91 @@
+package com.example.reproductormp3.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Álbum con contadores agregados de sus canciones.
+ * Se identifica por nombre + URI de carátula (que contiene el ALBUM_ID de MediaStore),
+ * así dos "Greatest Hits" de artistas distintos no se mezclan.
+ * songCount y totalDuration los mantienen los triggers de la tabla songs.
+ */
+@Entity(tableName = "albums", indices = {@Index(value = {"name", "albumArtUri"}, unique = true)})
+public class Album {
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    @NonNull
+    private String name;
+
+    private String artist;        // Artista de la primera canción vista
+    private String albumArtUri;
+    private int songCount;
+    private long totalDuration;   // En milisegundos
+
+    public Album(@NonNull String name, String artist, String albumArtUri) {
+        this.name = name;
+        this.artist = artist;
+        this.albumArtUri = albumArtUri;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    public void setName(@NonNull String name) {
+        this.name = name;
+    }
+
+    public String getArtist() {
+        return artist;
+    }
+
+    public void setArtist(String artist) {
+        this.artist = artist;
+    }
+
+    public String getAlbumArtUri() {
+        return albumArtUri;
+    }
+
+    public void setAlbumArtUri(String albumArtUri) {
+        this.albumArtUri = albumArtUri;
+    }
+
+    public int getSongCount() {
+        return songCount;
+    }
+
+    public void setSongCount(int songCount) {
+        this.songCount = songCount;
+    }
+
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    public void setTotalDuration(long totalDuration) {
+        this.totalDuration = totalDuration;
+    }
+
+    @Override
+    public String toString() {
+        return "Album{" +
+                "name='" + name + '\'' +
+                ", artist='" + artist + '\'' +
+                ", songCount=" + songCount +
+                '}';
+    }
+}
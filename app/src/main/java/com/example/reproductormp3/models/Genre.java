@@ -0,0 +1,68 @@
+package com.example.reproductormp3.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Género con contadores agregados de sus canciones.
+ * songCount y totalDuration los mantienen los triggers de la tabla songs.
+ */
+@Entity(tableName = "genres", indices = {@Index(value = "name", unique = true)})
+public class Genre {
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    @NonNull
+    private String name;
+
+    private int songCount;
+    private long totalDuration;   // En milisegundos
+
+    public Genre(@NonNull String name) {
+        this.name = name;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    public void setName(@NonNull String name) {
+        this.name = name;
+    }
+
+    public int getSongCount() {
+        return songCount;
+    }
+
+    public void setSongCount(int songCount) {
+        this.songCount = songCount;
+    }
+
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    public void setTotalDuration(long totalDuration) {
+        this.totalDuration = totalDuration;
+    }
+
+    @Override
+    public String toString() {
+        return "Genre{" +
+                "name='" + name + '\'' +
+                ", songCount=" + songCount +
+                '}';
+    }
+}
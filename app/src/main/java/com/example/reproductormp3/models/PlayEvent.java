@@ -0,0 +1,53 @@
+package com.example.reproductormp3.models;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Una reproducción (registro de solo inserción). Los contadores de songs
+ * se actualizan agrupando estos eventos en cada volcado. Los eventos de una
+ * canción se borran con ella.
+ */
+@Entity(tableName = "play_events",
+        foreignKeys = @ForeignKey(entity = Song.class, parentColumns = "id",
+                childColumns = "songId", onDelete = ForeignKey.CASCADE),
+        indices = {@Index("songId")})
+public class PlayEvent {
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    private long songId;
+    private long playedAt;        // Timestamp de la reproducción
+
+    public PlayEvent(long songId, long playedAt) {
+        this.songId = songId;
+        this.playedAt = playedAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getSongId() {
+        return songId;
+    }
+
+    public void setSongId(long songId) {
+        this.songId = songId;
+    }
+
+    public long getPlayedAt() {
+        return playedAt;
+    }
+
+    public void setPlayedAt(long playedAt) {
+        this.playedAt = playedAt;
+    }
+}
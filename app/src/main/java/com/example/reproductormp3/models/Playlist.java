@@ -0,0 +1,58 @@
+package com.example.reproductormp3.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Lista de reproducción creada por el usuario. El orden de sus canciones está
+ * en {@link PlaylistEntry#getPosition()}.
+ */
+@Entity(tableName = "playlists")
+public class Playlist {
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    @NonNull
+    private String name;
+
+    private long dateCreated;     // Timestamp de creación
+
+    public Playlist(@NonNull String name) {
+        this.name = name;
+        this.dateCreated = System.currentTimeMillis();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    public void setName(@NonNull String name) {
+        this.name = name;
+    }
+
+    public long getDateCreated() {
+        return dateCreated;
+    }
+
+    public void setDateCreated(long dateCreated) {
+        this.dateCreated = dateCreated;
+    }
+
+    @Override
+    public String toString() {
+        return "Playlist{" +
+                "name='" + name + '\'' +
+                '}';
+    }
+}
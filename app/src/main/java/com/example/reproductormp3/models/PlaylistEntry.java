@@ -0,0 +1,66 @@
+package com.example.reproductormp3.models;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Una canción dentro de una lista. {@code position} es una clave con huecos
+ * (ver PlaylistPositions): mover o insertar reescribe solo esta fila.
+ */
+@Entity(tableName = "playlist_entries",
+        foreignKeys = {
+                @ForeignKey(entity = Playlist.class, parentColumns = "id",
+                        childColumns = "playlistId", onDelete = ForeignKey.CASCADE),
+                @ForeignKey(entity = Song.class, parentColumns = "id",
+                        childColumns = "songId", onDelete = ForeignKey.CASCADE)
+        },
+        indices = {@Index({"playlistId", "position"}), @Index("songId")})
+public class PlaylistEntry {
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    private long playlistId;
+    private long songId;
+    private long position;
+
+    public PlaylistEntry(long playlistId, long songId, long position) {
+        this.playlistId = playlistId;
+        this.songId = songId;
+        this.position = position;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getPlaylistId() {
+        return playlistId;
+    }
+
+    public void setPlaylistId(long playlistId) {
+        this.playlistId = playlistId;
+    }
+
+    public long getSongId() {
+        return songId;
+    }
+
+    public void setSongId(long songId) {
+        this.songId = songId;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public void setPosition(long position) {
+        this.position = position;
+    }
+}
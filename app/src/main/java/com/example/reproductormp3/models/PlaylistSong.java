@@ -0,0 +1,31 @@
+package com.example.reproductormp3.models;
+
+import androidx.room.Embedded;
+
+/**
+ * Canción de una lista junto con el id de su entrada (para mover o quitar
+ * esa aparición concreta; una canción puede estar varias veces)
+ */
+public class PlaylistSong {
+
+    private long entryId;
+
+    @Embedded
+    private Song song;
+
+    public long getEntryId() {
+        return entryId;
+    }
+
+    public void setEntryId(long entryId) {
+        this.entryId = entryId;
+    }
+
+    public Song getSong() {
+        return song;
+    }
+
+    public void setSong(Song song) {
+        this.song = song;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.reproductormp3.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Lista inteligente: sus reglas ({@link SmartRule}) se guardan aparte y las canciones
+ * que las cumplen se materializan en smart_playlist_members.
+ * El orden y el límite se aplican al leer la lista.
+ */
+@Entity(tableName = "smart_playlists")
+public class SmartPlaylist {
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    @NonNull
+    private String name;
+
+    private boolean matchAll = true;      // true: todas las reglas (AND); false: cualquiera (OR)
+    private String sortField;             // Uno de SmartRule.FIELD_*, null = por título
+    private boolean sortDescending;
+    private int maxSongs;                 // 0 = sin límite
+
+    public SmartPlaylist(@NonNull String name) {
+        this.name = name;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    public void setName(@NonNull String name) {
+        this.name = name;
+    }
+
+    public boolean isMatchAll() {
+        return matchAll;
+    }
+
+    public void setMatchAll(boolean matchAll) {
+        this.matchAll = matchAll;
+    }
+
+    public String getSortField() {
+        return sortField;
+    }
+
+    public void setSortField(String sortField) {
+        this.sortField = sortField;
+    }
+
+    public boolean isSortDescending() {
+        return sortDescending;
+    }
+
+    public void setSortDescending(boolean sortDescending) {
+        this.sortDescending = sortDescending;
+    }
+
+    public int getMaxSongs() {
+        return maxSongs;
+    }
+
+    public void setMaxSongs(int maxSongs) {
+        this.maxSongs = maxSongs;
+    }
+
+    @Override
+    public String toString() {
+        return "SmartPlaylist{" +
+                "name='" + name + '\'' +
+                ", matchAll=" + matchAll +
+                ", sortField='" + sortField + '\'' +
+                ", maxSongs=" + maxSongs +
+                '}';
+    }
+}
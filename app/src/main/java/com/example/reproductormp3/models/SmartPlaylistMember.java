@@ -0,0 +1,45 @@
+package com.example.reproductormp3.models;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+
+/**
+ * Canción que cumple las reglas de una lista inteligente. Se mantiene de forma
+ * incremental: solo se reevalúan las canciones que cambian.
+ */
+@Entity(tableName = "smart_playlist_members",
+        primaryKeys = {"playlistId", "songId"},
+        foreignKeys = {
+                @ForeignKey(entity = SmartPlaylist.class, parentColumns = "id",
+                        childColumns = "playlistId", onDelete = ForeignKey.CASCADE),
+                @ForeignKey(entity = Song.class, parentColumns = "id",
+                        childColumns = "songId", onDelete = ForeignKey.CASCADE)
+        },
+        indices = {@Index("songId")})
+public class SmartPlaylistMember {
+
+    private long playlistId;
+    private long songId;
+
+    public SmartPlaylistMember(long playlistId, long songId) {
+        this.playlistId = playlistId;
+        this.songId = songId;
+    }
+
+    public long getPlaylistId() {
+        return playlistId;
+    }
+
+    public void setPlaylistId(long playlistId) {
+        this.playlistId = playlistId;
+    }
+
+    public long getSongId() {
+        return songId;
+    }
+
+    public void setSongId(long songId) {
+        this.songId = songId;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.reproductormp3.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Una condición de una lista inteligente, por ejemplo genre = Rock o year < 1990.
+ * Se compila a SQL con SmartPlaylistQuery; el valor siempre va como parámetro.
+ */
+@Entity(tableName = "smart_playlist_rules",
+        foreignKeys = @ForeignKey(entity = SmartPlaylist.class, parentColumns = "id",
+                childColumns = "playlistId", onDelete = ForeignKey.CASCADE),
+        indices = {@Index("playlistId")})
+public class SmartRule {
+
+    // ========== CAMPOS ==========
+    public static final String FIELD_TITLE = "title";
+    public static final String FIELD_ARTIST = "artist";
+    public static final String FIELD_ALBUM = "album";
+    public static final String FIELD_GENRE = "genre";
+    public static final String FIELD_YEAR = "year";
+    public static final String FIELD_DURATION = "duration";
+    public static final String FIELD_PLAY_COUNT = "playCount";
+    public static final String FIELD_LAST_PLAYED = "lastPlayed";
+    public static final String FIELD_DATE_ADDED = "dateAdded";
+    public static final String FIELD_FAVORITE = "favorite";
+
+    // ========== OPERADORES ==========
+    public static final String OP_EQUALS = "eq";
+    public static final String OP_NOT_EQUALS = "neq";
+    public static final String OP_LESS = "lt";
+    public static final String OP_LESS_OR_EQUAL = "lte";
+    public static final String OP_GREATER = "gt";
+    public static final String OP_GREATER_OR_EQUAL = "gte";
+    public static final String OP_CONTAINS = "contains";
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+
+    private long playlistId;
+
+    @NonNull
+    private String field;
+
+    @NonNull
+    private String operator;
+
+    private String value;
+
+    public SmartRule(@NonNull String field, @NonNull String operator, String value) {
+        this.field = field;
+        this.operator = operator;
+        this.value = value;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getPlaylistId() {
+        return playlistId;
+    }
+
+    public void setPlaylistId(long playlistId) {
+        this.playlistId = playlistId;
+    }
+
+    @NonNull
+    public String getField() {
+        return field;
+    }
+
+    public void setField(@NonNull String field) {
+        this.field = field;
+    }
+
+    @NonNull
+    public String getOperator() {
+        return operator;
+    }
+
+    public void setOperator(@NonNull String operator) {
+        this.operator = operator;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return field + " " + operator + " " + value;
+    }
+}
@@ -1,10 +1,29 @@
 package com.example.reproductormp3.models;
 
 import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.Ignore;
 
-@Entity(tableName = "songs")
+import java.util.Objects;
+
+@Entity(tableName = "songs",
+        foreignKeys = {
+                @ForeignKey(entity = Artist.class, parentColumns = "id", childColumns = "artistId",
+                        onDelete = ForeignKey.SET_NULL),
+                @ForeignKey(entity = Album.class, parentColumns = "id", childColumns = "albumId",
+                        onDelete = ForeignKey.SET_NULL),
+                @ForeignKey(entity = Genre.class, parentColumns = "id", childColumns = "genreId",
+                        onDelete = ForeignKey.SET_NULL)
+        },
+        indices = {
+                @Index(value = "path", unique = true),
+                @Index(value = {"title", "id"}),
+                @Index("artistId"),
+                @Index("albumId"),
+                @Index("genreId")
+        })
 public class Song {
 
     @PrimaryKey(autoGenerate = true)
@@ -23,6 +42,11 @@ public class Song {
     private int year;
     private long dateAdded;       // Timestamp cuando se agregó
 
+    // Referencias a las tablas normalizadas (las resuelve SongDao o los triggers)
+    private Long artistId;
+    private Long albumId;
+    private Long genreId;
+
     // Constructor completo
     public Song(String title, String artist, String album, String path,
                 long duration, String albumArtUri) {
@@ -60,8 +84,10 @@ public class Song {
         this.title = title;
     }
 
+    // Sin etiqueta es null (así se guarda y así lo resuelven los triggers); para
+    // mostrar, getDisplayArtist()
     public String getArtist() {
-        return artist != null ? artist : "Artista Desconocido";
+        return artist;
     }
 
     public void setArtist(String artist) {
@@ -69,7 +95,7 @@ public class Song {
     }
 
     public String getAlbum() {
-        return album != null ? album : "Álbum Desconocido";
+        return album;
     }
 
     public void setAlbum(String album) {
@@ -152,6 +178,30 @@ public class Song {
         this.dateAdded = dateAdded;
     }
 
+    public Long getArtistId() {
+        return artistId;
+    }
+
+    public void setArtistId(Long artistId) {
+        this.artistId = artistId;
+    }
+
+    public Long getAlbumId() {
+        return albumId;
+    }
+
+    public void setAlbumId(Long albumId) {
+        this.albumId = albumId;
+    }
+
+    public Long getGenreId() {
+        return genreId;
+    }
+
+    public void setGenreId(Long genreId) {
+        this.genreId = genreId;
+    }
+
     // Métodos útiles
     public String getFormattedDuration() {
         long seconds = duration / 1000;
@@ -160,10 +210,43 @@ public class Song {
         return String.format("%d:%02d", minutes, seconds);
     }
 
+    /**
+     * true si las etiquetas leídas del archivo son iguales (ignora id y estado del usuario)
+     */
+    public boolean hasSameTags(Song other) {
+        return duration == other.duration
+                && year == other.year
+                && Objects.equals(title, other.title)
+                && Objects.equals(artist, other.artist)
+                && Objects.equals(album, other.album)
+                && Objects.equals(path, other.path)
+                && Objects.equals(albumArtUri, other.albumArtUri)
+                && Objects.equals(genre, other.genre);
+    }
+
+    /**
+     * Copia id, fecha de alta, reproducciones y favorito de la versión guardada
+     */
+    public void copyUserStateFrom(Song stored) {
+        this.id = stored.id;
+        this.dateAdded = stored.dateAdded;
+        this.playCount = stored.playCount;
+        this.lastPlayed = stored.lastPlayed;
+        this.isFavorite = stored.isFavorite;
+    }
+
     public String getDisplayTitle() {
         return title != null && !title.isEmpty() ? title : "Sin título";
     }
 
+    public String getDisplayArtist() {
+        return artist != null ? artist : "Artista Desconocido";
+    }
+
+    public String getDisplayAlbum() {
+        return album != null ? album : "Álbum Desconocido";
+    }
+
     @Override
     public String toString() {
         return "Song{" +
@@ -0,0 +1,59 @@
+package com.example.reproductormp3.models;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * Índice de texto completo sobre título, artista y álbum de {@link Song}.
+ * Room lo mantiene sincronizado con la tabla songs mediante triggers.
+ * El tokenizador unicode61 con remove_diacritics hace que "cancion" encuentre "canción".
+ */
+@Fts4(contentEntity = Song.class,
+        tokenizer = FtsOptions.TOKENIZER_UNICODE61,
+        tokenizerArgs = {"remove_diacritics=1"})
+@Entity(tableName = "songs_fts")
+public class SongFts {
+
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private long rowId;
+
+    private String title;
+    private String artist;
+    private String album;
+
+    public long getRowId() {
+        return rowId;
+    }
+
+    public void setRowId(long rowId) {
+        this.rowId = rowId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getArtist() {
+        return artist;
+    }
+
+    public void setArtist(String artist) {
+        this.artist = artist;
+    }
+
+    public String getAlbum() {
+        return album;
+    }
+
+    public void setAlbum(String album) {
+        this.album = album;
+    }
+}
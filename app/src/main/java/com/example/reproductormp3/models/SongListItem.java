@@ -0,0 +1,99 @@
+package com.example.reproductormp3.models;
+
+import com.example.reproductormp3.utils.DurationFormat;
+
+import java.util.Objects;
+
+/**
+ * Proyección ligera de {@link Song} con solo lo que muestra una fila de la lista.
+ * Las consultas de lista leen estas columnas en lugar de SELECT *; el Song
+ * completo se carga solo para reproducir o ver detalles.
+ */
+public class SongListItem {
+
+    private long id;
+    private String title;
+    private String artist;
+    private long duration;        // En milisegundos
+    private long albumId;         // 0 si no tiene álbum
+    private String albumArtUri;
+    private boolean isFavorite;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getArtist() {
+        return artist != null ? artist : "Artista Desconocido";
+    }
+
+    public void setArtist(String artist) {
+        this.artist = artist;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    public long getAlbumId() {
+        return albumId;
+    }
+
+    public void setAlbumId(long albumId) {
+        this.albumId = albumId;
+    }
+
+    public String getAlbumArtUri() {
+        return albumArtUri;
+    }
+
+    public void setAlbumArtUri(String albumArtUri) {
+        this.albumArtUri = albumArtUri;
+    }
+
+    public boolean isFavorite() {
+        return isFavorite;
+    }
+
+    public void setFavorite(boolean favorite) {
+        isFavorite = favorite;
+    }
+
+    // Métodos útiles
+    public String getFormattedDuration() {
+        return DurationFormat.format(duration);
+    }
+
+    public String getDisplayTitle() {
+        return title != null && !title.isEmpty() ? title : "Sin título";
+    }
+
+    /**
+     * true si la fila se dibuja igual (mismo id y mismos datos visibles)
+     */
+    public boolean hasSameContent(SongListItem other) {
+        return id == other.id
+                && duration == other.duration
+                && albumId == other.albumId
+                && isFavorite == other.isFavorite
+                && Objects.equals(title, other.title)
+                && Objects.equals(artist, other.artist)
+                && Objects.equals(albumArtUri, other.albumArtUri);
+    }
+}
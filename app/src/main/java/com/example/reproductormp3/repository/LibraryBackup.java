@@ -0,0 +1,427 @@
+package com.example.reproductormp3.repository;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import com.example.reproductormp3.database.AppDatabase;
+import com.example.reproductormp3.database.BackupDao;
+import com.example.reproductormp3.database.DatabaseExecutor;
+import com.example.reproductormp3.database.PlaylistDao;
+import com.example.reproductormp3.database.SmartPlaylistDao;
+import com.example.reproductormp3.models.Playlist;
+import com.example.reproductormp3.models.SmartPlaylist;
+import com.example.reproductormp3.models.SmartRule;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Copia de seguridad del estado del usuario (reproducciones, favoritos, listas y
+ * listas inteligentes) en JSON. Se escribe y se lee en streaming con JsonWriter y
+ * JsonReader: la memoria no depende del tamaño de la biblioteca.
+ * <p>
+ * Las canciones se identifican por ruta; al restaurar se buscan por lotes y las
+ * que no existen en este dispositivo se ignoran. Restaurar dos veces la misma copia
+ * no duplica nada: una lista con el mismo nombre y fecha de creación (o una lista
+ * inteligente con el mismo nombre) se reemplaza con la versión de la copia.
+ */
+public class LibraryBackup {
+
+    private static final String TAG = "LibraryBackup";
+
+    public static final int FORMAT_VERSION = 1;
+    private static final int RESTORE_BATCH_SIZE = 500;
+
+    private final BackupDao backupDao;
+    private final PlaylistDao playlistDao;
+    private final SmartPlaylistDao smartPlaylistDao;
+    private final Context context;
+
+    /**
+     * Conteos de una exportación o restauración
+     */
+    public static class Result {
+        private int songs;
+        private int unmatchedSongs;
+        private int playlists;
+        private int smartPlaylists;
+
+        public int getSongs() {
+            return songs;
+        }
+
+        public int getUnmatchedSongs() {
+            return unmatchedSongs;
+        }
+
+        public int getPlaylists() {
+            return playlists;
+        }
+
+        public int getSmartPlaylists() {
+            return smartPlaylists;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "songs=" + songs +
+                    ", unmatchedSongs=" + unmatchedSongs +
+                    ", playlists=" + playlists +
+                    ", smartPlaylists=" + smartPlaylists +
+                    '}';
+        }
+    }
+
+    public LibraryBackup(Context context) {
+        this(context, AppDatabase.getDatabase(context));
+    }
+
+    // Los tests pasan una base en memoria
+    LibraryBackup(Context context, AppDatabase database) {
+        this.context = context.getApplicationContext();
+        backupDao = database.backupDao();
+        playlistDao = database.playlistDao();
+        smartPlaylistDao = database.smartPlaylistDao();
+    }
+
+    // ========== EXPORTAR ==========
+    /**
+     * Escribe la copia en {@code out} (no lo cierra). No llamar desde el hilo principal.
+     */
+    public Result export(OutputStream out) throws IOException {
+        Result result = new Result();
+        JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        writer.beginObject();
+        writer.name("version").value(FORMAT_VERSION);
+        writer.name("exportedAt").value(System.currentTimeMillis());
+
+        writer.name("songs").beginArray();
+        try (Cursor cursor = backupDao.getSongStateCursor()) {
+            while (cursor.moveToNext()) {
+                writer.beginObject();
+                writer.name("path").value(cursor.getString(0));
+                writer.name("playCount").value(cursor.getInt(1));
+                writer.name("lastPlayed").value(cursor.getLong(2));
+                writer.name("favorite").value(cursor.getInt(3) != 0);
+                writer.endObject();
+                result.songs++;
+            }
+        }
+        writer.endArray();
+
+        writer.name("playlists").beginArray();
+        for (Playlist playlist : backupDao.getPlaylistsSync()) {
+            writer.beginObject();
+            writer.name("name").value(playlist.getName());
+            writer.name("dateCreated").value(playlist.getDateCreated());
+            writer.name("paths").beginArray();
+            try (Cursor cursor = backupDao.getPlaylistPathCursor(playlist.getId())) {
+                while (cursor.moveToNext()) {
+                    writer.value(cursor.getString(0));
+                }
+            }
+            writer.endArray();
+            writer.endObject();
+            result.playlists++;
+        }
+        writer.endArray();
+
+        writer.name("smartPlaylists").beginArray();
+        for (SmartPlaylist playlist : smartPlaylistDao.getPlaylistsSync()) {
+            writer.beginObject();
+            writer.name("name").value(playlist.getName());
+            writer.name("matchAll").value(playlist.isMatchAll());
+            writer.name("sortField").value(playlist.getSortField());
+            writer.name("sortDescending").value(playlist.isSortDescending());
+            writer.name("maxSongs").value(playlist.getMaxSongs());
+            writer.name("rules").beginArray();
+            for (SmartRule rule : smartPlaylistDao.getRules(playlist.getId())) {
+                writer.beginObject();
+                writer.name("field").value(rule.getField());
+                writer.name("operator").value(rule.getOperator());
+                writer.name("value").value(rule.getValue());
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+            result.smartPlaylists++;
+        }
+        writer.endArray();
+
+        writer.endObject();
+        writer.flush();
+        Log.i(TAG, "Exportado: " + result);
+        return result;
+    }
+
+    // ========== RESTAURAR ==========
+    /**
+     * Lee una copia de {@code in} (no lo cierra) y la combina con la biblioteca actual.
+     * Cada lote se escribe en su propia transacción en el hilo escritor.
+     * No llamar desde el hilo principal.
+     */
+    public Result restore(InputStream in) throws IOException {
+        Result result = new Result();
+        JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "version":
+                        int version = reader.nextInt();
+                        if (version > FORMAT_VERSION) {
+                            throw new IOException("Versión de copia no soportada: " + version);
+                        }
+                        break;
+                    case "songs":
+                        restoreSongs(reader, result);
+                        break;
+                    case "playlists":
+                        restorePlaylists(reader, result);
+                        break;
+                    case "smartPlaylists":
+                        restoreSmartPlaylists(reader, result);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } finally {
+            // Se cambiaron filas sin saber cuáles (también si falló a mitad, cada lote
+            // ya se confirmó): que las consultas y listas se recalculen
+            SongChangeFeed.getInstance().publish(SongChange.membership());
+        }
+        Log.i(TAG, "Restaurado: " + result);
+        return result;
+    }
+
+    private void restoreSongs(JsonReader reader, Result result) throws IOException {
+        List<BackupDao.SongState> batch = new ArrayList<>(RESTORE_BATCH_SIZE);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String path = null;
+            int playCount = 0;
+            long lastPlayed = 0;
+            boolean favorite = false;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "path": path = nextStringOrNull(reader); break;
+                    case "playCount": playCount = reader.nextInt(); break;
+                    case "lastPlayed": lastPlayed = reader.nextLong(); break;
+                    case "favorite": favorite = reader.nextBoolean(); break;
+                    default: reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (path == null) continue;
+            batch.add(new BackupDao.SongState(path, playCount, lastPlayed, favorite));
+            if (batch.size() >= RESTORE_BATCH_SIZE) {
+                flushSongs(batch, result);
+            }
+        }
+        reader.endArray();
+        flushSongs(batch, result);
+    }
+
+    private void flushSongs(List<BackupDao.SongState> batch, Result result) throws IOException {
+        if (batch.isEmpty()) return;
+        List<BackupDao.SongState> states = new ArrayList<>(batch);
+        batch.clear();
+        int matched = inWriter(() -> backupDao.restoreSongStates(states));
+        result.songs += matched;
+        result.unmatchedSongs += states.size() - matched;
+    }
+
+    private void restorePlaylists(JsonReader reader, Result result) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String name = "Lista restaurada";
+            long dateCreated = 0;
+            List<String> paths = new ArrayList<>();
+
+            // El objeto se lee entero antes de tocar la base: "name" y "dateCreated"
+            // pueden venir después de "paths" y son los que identifican la lista
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "name":
+                        String value = nextStringOrNull(reader);
+                        if (value != null) name = value;
+                        break;
+                    case "dateCreated":
+                        dateCreated = reader.nextLong();
+                        break;
+                    case "paths":
+                        readPaths(reader, paths);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            long playlistId = replacePlaylist(name, dateCreated);
+            restorePlaylistPaths(playlistId, paths);
+            result.playlists++;
+        }
+        reader.endArray();
+    }
+
+    /**
+     * La lista de la copia vacía, lista para agregarle sus canciones: si ya existe
+     * (mismo nombre y fecha de creación) se vacía, si no se crea
+     */
+    private long replacePlaylist(String name, long dateCreated) throws IOException {
+        Playlist playlist = new Playlist(name);
+        if (dateCreated > 0) playlist.setDateCreated(dateCreated);
+        return inWriter(() -> {
+            Long existing = dateCreated > 0 ? backupDao.findPlaylistId(name, dateCreated) : null;
+            if (existing == null) {
+                return playlistDao.insertPlaylist(playlist);
+            }
+            backupDao.clearPlaylist(existing);
+            return existing;
+        });
+    }
+
+    private void readPaths(JsonReader reader, List<String> paths) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String path = nextStringOrNull(reader);
+            if (path != null) paths.add(path);
+        }
+        reader.endArray();
+    }
+
+    // Las rutas se resuelven a ids por lotes y se agregan en orden
+    private void restorePlaylistPaths(long playlistId, List<String> paths) throws IOException {
+        for (int start = 0; start < paths.size(); start += RESTORE_BATCH_SIZE) {
+            int end = Math.min(start + RESTORE_BATCH_SIZE, paths.size());
+            appendPaths(playlistId, new ArrayList<>(paths.subList(start, end)));
+        }
+    }
+
+    private void appendPaths(long playlistId, List<String> paths) throws IOException {
+        if (paths.isEmpty()) return;
+        List<String> batch = new ArrayList<>(paths);
+        paths.clear();
+        inWriter(() -> {
+            Map<String, Long> idsByPath = new HashMap<>();
+            for (BackupDao.SongPathId row : backupDao.getIdsByPaths(batch)) {
+                idsByPath.put(row.path, row.id);
+            }
+            List<Long> songIds = new ArrayList<>(batch.size());
+            for (String path : batch) {
+                Long songId = idsByPath.get(path);
+                if (songId != null) songIds.add(songId);
+            }
+            playlistDao.appendSongs(playlistId, songIds);
+            return null;
+        });
+    }
+
+    private void restoreSmartPlaylists(JsonReader reader, Result result) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            SmartPlaylist playlist = new SmartPlaylist("Lista inteligente");
+            List<SmartRule> rules = new ArrayList<>();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "name":
+                        String name = nextStringOrNull(reader);
+                        if (name != null) playlist.setName(name);
+                        break;
+                    case "matchAll": playlist.setMatchAll(reader.nextBoolean()); break;
+                    case "sortField": playlist.setSortField(nextStringOrNull(reader)); break;
+                    case "sortDescending": playlist.setSortDescending(reader.nextBoolean()); break;
+                    case "maxSongs": playlist.setMaxSongs(reader.nextInt()); break;
+                    case "rules": readRules(reader, rules); break;
+                    default: reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            try {
+                inWriter(() -> {
+                    // Con el id de la existente, savePlaylist reemplaza sus reglas
+                    Long existing = backupDao.findSmartPlaylistId(playlist.getName());
+                    if (existing != null) playlist.setId(existing);
+                    return smartPlaylistDao.savePlaylist(playlist, rules);
+                });
+                result.smartPlaylists++;
+            } catch (IOException e) {
+                Log.w(TAG, "Lista inteligente ignorada (" + playlist.getName() + "): " + e.getMessage());
+            }
+        }
+        reader.endArray();
+        SmartPlaylistUpdater.getInstance(context).invalidateRules();
+    }
+
+    private void readRules(JsonReader reader, List<SmartRule> rules) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String field = null;
+            String operator = null;
+            String value = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "field": field = nextStringOrNull(reader); break;
+                    case "operator": operator = nextStringOrNull(reader); break;
+                    case "value": value = nextStringOrNull(reader); break;
+                    default: reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (field != null && operator != null) {
+                rules.add(new SmartRule(field, operator, value));
+            }
+        }
+        reader.endArray();
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * Ejecuta una escritura en el hilo escritor (prioridad baja) y espera el resultado
+     */
+    private <T> T inWriter(Callable<T> write) throws IOException {
+        try {
+            return AppDatabase.databaseWriteExecutor.submit(DatabaseExecutor.PRIORITY_BACKGROUND, write).get();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Restauración interrumpida", e);
+        }
+    }
+}
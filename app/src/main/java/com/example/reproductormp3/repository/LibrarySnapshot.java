@@ -0,0 +1,661 @@
+package com.example.reproductormp3.repository;
+
+import com.example.reproductormp3.models.SongListItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Foto inmutable de la biblioteca en memoria, guardada por columnas en arreglos
+ * primitivos. Cada canción es una fila (posición en los arreglos, por id ascendente);
+ * artista, álbum y género van codificados como ordinales de un diccionario.
+ * <p>
+ * Los filtros devuelven filas ({@code int[]}) en orden de título, igual que las
+ * consultas de SongDao, a partir de listas de filas precalculadas por artista,
+ * álbum, género y favoritas: no tocan SQLite ni crean objetos por canción.
+ * Solo {@link #toListItems(int[])} materializa el resultado para la UI.
+ * <p>
+ * Una foto nunca cambia: {@link #apply} construye una nueva a partir de las filas
+ * modificadas, compartiendo las columnas que no cambiaron.
+ */
+public final class LibrarySnapshot {
+
+    public static final int SORT_TITLE = 0;
+    public static final int SORT_DURATION = 1;
+    public static final int SORT_PLAY_COUNT = 2;
+    public static final int SORT_LAST_PLAYED = 3;
+    public static final int SORT_DATE_ADDED = 4;
+    public static final int SORT_YEAR = 5;
+
+    // Ordinal de las filas sin artista, álbum o género
+    static final int NONE = -1;
+
+    private static final int[] NO_ROWS = new int[0];
+
+    public static final LibrarySnapshot EMPTY = new Builder(0).build();
+
+    // ========== COLUMNAS ==========
+    private final int size;
+    private final long[] ids;
+    private final String[] titles;
+    private final int[] durations;
+    private final int[] years;
+    private final long[] dateAdded;
+    private final int[] playCounts;
+    private final long[] lastPlayed;
+    private final boolean[] favorites;
+    private final int[] artists;
+    private final int[] albums;
+    private final int[] genres;
+
+    private final Dictionary artistDictionary;
+    private final Dictionary albumDictionary;
+    private final Dictionary genreDictionary;
+
+    // ========== ÍNDICES ==========
+    private final int[] titleOrder;
+    // Posición de cada fila en titleOrder: desempate estable de los demás órdenes
+    private final int[] titleRanks;
+    private final int[][] artistRows;
+    private final int[][] albumRows;
+    private final int[][] genreRows;
+    private final int[] favoriteRows;
+
+    /**
+     * Fila leída de la base de datos, para {@link #apply}
+     */
+    static final class Row {
+        final long id;
+        final String title;
+        final int duration;
+        final int year;
+        final long dateAdded;
+        final int playCount;
+        final long lastPlayed;
+        final boolean favorite;
+        final Long artistId;
+        final String artist;
+        final Long albumId;
+        final String album;
+        final String albumArtUri;
+        final Long genreId;
+        final String genre;
+
+        Row(long id, String title, long duration, int year, long dateAdded, int playCount, long lastPlayed,
+            boolean favorite, Long artistId, String artist, Long albumId, String album, String albumArtUri,
+            Long genreId, String genre) {
+            this.id = id;
+            this.title = title;
+            this.duration = (int) Math.min(Integer.MAX_VALUE, duration);
+            this.year = year;
+            this.dateAdded = dateAdded;
+            this.playCount = playCount;
+            this.lastPlayed = lastPlayed;
+            this.favorite = favorite;
+            this.artistId = artistId;
+            this.artist = artist;
+            this.albumId = albumId;
+            this.album = album;
+            this.albumArtUri = albumArtUri;
+            this.genreId = genreId;
+            this.genre = genre;
+        }
+    }
+
+    private LibrarySnapshot(int size, long[] ids, String[] titles, int[] durations, int[] years, long[] dateAdded,
+                            int[] playCounts, long[] lastPlayed, boolean[] favorites,
+                            int[] artists, int[] albums, int[] genres,
+                            Dictionary artistDictionary, Dictionary albumDictionary, Dictionary genreDictionary,
+                            int[] titleOrder, int[] titleRanks, int[][] artistRows, int[][] albumRows,
+                            int[][] genreRows, int[] favoriteRows) {
+        this.size = size;
+        this.ids = ids;
+        this.titles = titles;
+        this.durations = durations;
+        this.years = years;
+        this.dateAdded = dateAdded;
+        this.playCounts = playCounts;
+        this.lastPlayed = lastPlayed;
+        this.favorites = favorites;
+        this.artists = artists;
+        this.albums = albums;
+        this.genres = genres;
+        this.artistDictionary = artistDictionary;
+        this.albumDictionary = albumDictionary;
+        this.genreDictionary = genreDictionary;
+        this.titleOrder = titleOrder;
+        this.titleRanks = titleRanks;
+        this.artistRows = artistRows;
+        this.albumRows = albumRows;
+        this.genreRows = genreRows;
+        this.favoriteRows = favoriteRows;
+    }
+
+    // ========== FILAS ==========
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Fila de la canción, o -1 si no está en la foto
+     */
+    public int rowOf(long songId) {
+        int row = Arrays.binarySearch(ids, 0, size, songId);
+        return row >= 0 ? row : -1;
+    }
+
+    public long getId(int row) {
+        return ids[row];
+    }
+
+    public String getTitle(int row) {
+        return titles[row];
+    }
+
+    public int getDuration(int row) {
+        return durations[row];
+    }
+
+    public int getYear(int row) {
+        return years[row];
+    }
+
+    public long getDateAdded(int row) {
+        return dateAdded[row];
+    }
+
+    public int getPlayCount(int row) {
+        return playCounts[row];
+    }
+
+    public long getLastPlayed(int row) {
+        return lastPlayed[row];
+    }
+
+    public boolean isFavorite(int row) {
+        return favorites[row];
+    }
+
+    public String getArtist(int row) {
+        return artistDictionary.name(artists[row]);
+    }
+
+    public String getAlbum(int row) {
+        return albumDictionary.name(albums[row]);
+    }
+
+    /**
+     * Id del álbum en la base de datos, o 0 si la canción no tiene
+     */
+    public long getAlbumId(int row) {
+        return albumDictionary.dbId(albums[row]);
+    }
+
+    public String getAlbumArtUri(int row) {
+        return albumDictionary.extra(albums[row]);
+    }
+
+    public String getGenre(int row) {
+        return genreDictionary.name(genres[row]);
+    }
+
+    // ========== FILTROS ==========
+    /**
+     * Todas las filas, en orden de título
+     */
+    public int[] allRows() {
+        return titleOrder.clone();
+    }
+
+    public int[] rowsByArtistId(long artistId) {
+        return postings(artistRows, artistDictionary.ordinalOf(artistId));
+    }
+
+    public int[] rowsByAlbumId(long albumId) {
+        return postings(albumRows, albumDictionary.ordinalOf(albumId));
+    }
+
+    public int[] rowsByGenreId(long genreId) {
+        return postings(genreRows, genreDictionary.ordinalOf(genreId));
+    }
+
+    public int[] favoriteRows() {
+        return favoriteRows.clone();
+    }
+
+    /**
+     * Las más escuchadas (solo las que tienen reproducciones)
+     */
+    public int[] mostPlayedRows(int limit) {
+        return top(playCounts, limit, SORT_PLAY_COUNT);
+    }
+
+    public int[] recentlyPlayedRows(int limit) {
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row : titleOrder) {
+            if (lastPlayed[row] > 0) rows[count++] = row;
+        }
+        return limit(sort(Arrays.copyOf(rows, count), SORT_LAST_PLAYED, true), limit);
+    }
+
+    private int[] top(int[] column, int limit, int field) {
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row : titleOrder) {
+            if (column[row] > 0) rows[count++] = row;
+        }
+        return limit(sort(Arrays.copyOf(rows, count), field, true), limit);
+    }
+
+    private static int[] limit(int[] rows, int limit) {
+        return rows.length > limit ? Arrays.copyOf(rows, limit) : rows;
+    }
+
+    private static int[] postings(int[][] postings, int ordinal) {
+        return ordinal == NONE ? NO_ROWS : postings[ordinal].clone();
+    }
+
+    // ========== ORDEN ==========
+    /**
+     * Copia de {@code rows} ordenada por un campo SORT_*; los empates quedan en orden de título
+     */
+    public int[] sort(int[] rows, int field, boolean descending) {
+        int[] sorted = rows.clone();
+        int direction = descending ? -1 : 1;
+        RowComparator byField;
+        switch (field) {
+            case SORT_TITLE:
+                byField = (a, b) -> 0;
+                break;
+            case SORT_DURATION:
+                byField = (a, b) -> Integer.compare(durations[a], durations[b]);
+                break;
+            case SORT_PLAY_COUNT:
+                byField = (a, b) -> Integer.compare(playCounts[a], playCounts[b]);
+                break;
+            case SORT_LAST_PLAYED:
+                byField = (a, b) -> Long.compare(lastPlayed[a], lastPlayed[b]);
+                break;
+            case SORT_DATE_ADDED:
+                byField = (a, b) -> Long.compare(dateAdded[a], dateAdded[b]);
+                break;
+            case SORT_YEAR:
+                byField = (a, b) -> Integer.compare(years[a], years[b]);
+                break;
+            default:
+                throw new IllegalArgumentException("Orden desconocido: " + field);
+        }
+        if (field == SORT_TITLE) {
+            sortRows(sorted, (a, b) -> direction * Integer.compare(titleRanks[a], titleRanks[b]));
+        } else {
+            sortRows(sorted, (a, b) -> {
+                int result = byField.compare(a, b);
+                return result != 0 ? direction * result : Integer.compare(titleRanks[a], titleRanks[b]);
+            });
+        }
+        return sorted;
+    }
+
+    // ========== RESULTADOS ==========
+    public long[] toIds(int[] rows) {
+        long[] result = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            result[i] = ids[rows[i]];
+        }
+        return result;
+    }
+
+    public List<SongListItem> toListItems(int[] rows) {
+        List<SongListItem> items = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            SongListItem item = new SongListItem();
+            item.setId(ids[row]);
+            item.setTitle(titles[row]);
+            item.setArtist(getArtist(row));
+            item.setDuration(durations[row]);
+            item.setAlbumId(getAlbumId(row));
+            item.setAlbumArtUri(getAlbumArtUri(row));
+            item.setFavorite(favorites[row]);
+            items.add(item);
+        }
+        return items;
+    }
+
+    // ========== ACTUALIZACIÓN ==========
+    /**
+     * Nueva foto con {@code changed} aplicadas encima de esta.
+     *
+     * @param changed filas leídas de nuevo (altas o modificadas), ordenadas por id
+     * @param liveIds ids que siguen existiendo, ordenados; null si no pudo haber bajas
+     * @param columns columnas que cambiaron ({@link SongChange#FAVORITE} etc.)
+     */
+    LibrarySnapshot apply(List<Row> changed, long[] liveIds, int columns) {
+        if (liveIds == null && (columns & SongChange.TAGS) == 0 && allPresent(changed)) {
+            return withUserState(changed);
+        }
+
+        // Mezcla por id: filas viejas que siguen vivas + filas nuevas o modificadas
+        Builder builder = new Builder(size + changed.size());
+        int next = 0;
+        for (int row = 0; row < size; row++) {
+            long id = ids[row];
+            while (next < changed.size() && changed.get(next).id < id) {
+                builder.add(changed.get(next++));
+            }
+            if (next < changed.size() && changed.get(next).id == id) {
+                builder.add(changed.get(next++));
+            } else if (liveIds == null || Arrays.binarySearch(liveIds, id) >= 0) {
+                builder.addFrom(this, row);
+            }
+        }
+        while (next < changed.size()) {
+            builder.add(changed.get(next++));
+        }
+        return builder.build();
+    }
+
+    private boolean allPresent(List<Row> changed) {
+        for (Row row : changed) {
+            if (rowOf(row.id) < 0) return false;
+        }
+        return true;
+    }
+
+    // Solo cambiaron favoritos o reproducciones: el resto de columnas e índices se comparte
+    private LibrarySnapshot withUserState(List<Row> changed) {
+        int[] newPlayCounts = playCounts.clone();
+        long[] newLastPlayed = lastPlayed.clone();
+        boolean[] newFavorites = favorites.clone();
+        boolean favoritesChanged = false;
+
+        for (Row changedRow : changed) {
+            int row = rowOf(changedRow.id);
+            newPlayCounts[row] = changedRow.playCount;
+            newLastPlayed[row] = changedRow.lastPlayed;
+            favoritesChanged |= newFavorites[row] != changedRow.favorite;
+            newFavorites[row] = changedRow.favorite;
+        }
+
+        int[] newFavoriteRows = favoritesChanged ? favoriteRows(titleOrder, newFavorites) : favoriteRows;
+        return new LibrarySnapshot(size, ids, titles, durations, years, dateAdded,
+                newPlayCounts, newLastPlayed, newFavorites, artists, albums, genres,
+                artistDictionary, albumDictionary, genreDictionary,
+                titleOrder, titleRanks, artistRows, albumRows, genreRows, newFavoriteRows);
+    }
+
+    private static int[] favoriteRows(int[] titleOrder, boolean[] favorites) {
+        int count = 0;
+        for (boolean favorite : favorites) {
+            if (favorite) count++;
+        }
+        int[] rows = new int[count];
+        int next = 0;
+        for (int row : titleOrder) {
+            if (favorites[row]) rows[next++] = row;
+        }
+        return rows;
+    }
+
+    // ========== CONSTRUCCIÓN ==========
+    /**
+     * Arma una foto fila a fila; las filas deben llegar por id ascendente
+     */
+    static final class Builder {
+        private int size;
+        private long[] ids;
+        private String[] titles;
+        private int[] durations;
+        private int[] years;
+        private long[] dateAdded;
+        private int[] playCounts;
+        private long[] lastPlayed;
+        private boolean[] favorites;
+        private int[] artists;
+        private int[] albums;
+        private int[] genres;
+
+        private final Dictionary.Builder artistDictionary = new Dictionary.Builder();
+        private final Dictionary.Builder albumDictionary = new Dictionary.Builder();
+        private final Dictionary.Builder genreDictionary = new Dictionary.Builder();
+
+        Builder(int capacity) {
+            int initial = Math.max(16, capacity);
+            ids = new long[initial];
+            titles = new String[initial];
+            durations = new int[initial];
+            years = new int[initial];
+            dateAdded = new long[initial];
+            playCounts = new int[initial];
+            lastPlayed = new long[initial];
+            favorites = new boolean[initial];
+            artists = new int[initial];
+            albums = new int[initial];
+            genres = new int[initial];
+        }
+
+        void add(Row row) {
+            add(row.id, row.title, row.duration, row.year, row.dateAdded, row.playCount, row.lastPlayed,
+                    row.favorite, artistDictionary.ordinal(row.artistId, row.artist, null),
+                    albumDictionary.ordinal(row.albumId, row.album, row.albumArtUri),
+                    genreDictionary.ordinal(row.genreId, row.genre, null));
+        }
+
+        void add(long id, String title, long duration, int year, long dateAdded, int playCount, long lastPlayed,
+                 boolean favorite, Long artistId, String artist, Long albumId, String album, String albumArtUri,
+                 Long genreId, String genre) {
+            add(id, title, (int) Math.min(Integer.MAX_VALUE, duration), year, dateAdded, playCount, lastPlayed,
+                    favorite, artistDictionary.ordinal(artistId, artist, null),
+                    albumDictionary.ordinal(albumId, album, albumArtUri),
+                    genreDictionary.ordinal(genreId, genre, null));
+        }
+
+        void addFrom(LibrarySnapshot snapshot, int row) {
+            add(snapshot.ids[row], snapshot.titles[row], snapshot.durations[row], snapshot.years[row],
+                    snapshot.dateAdded[row], snapshot.playCounts[row], snapshot.lastPlayed[row],
+                    snapshot.favorites[row],
+                    artistDictionary.ordinalFrom(snapshot.artistDictionary, snapshot.artists[row]),
+                    albumDictionary.ordinalFrom(snapshot.albumDictionary, snapshot.albums[row]),
+                    genreDictionary.ordinalFrom(snapshot.genreDictionary, snapshot.genres[row]));
+        }
+
+        private void add(long id, String title, int duration, int year, long added, int playCount, long played,
+                         boolean favorite, int artist, int album, int genre) {
+            if (size > 0 && id <= ids[size - 1]) {
+                throw new IllegalArgumentException("Filas fuera de orden: " + id + " después de " + ids[size - 1]);
+            }
+            if (size == ids.length) grow();
+            ids[size] = id;
+            titles[size] = title;
+            durations[size] = duration;
+            years[size] = year;
+            dateAdded[size] = added;
+            playCounts[size] = playCount;
+            lastPlayed[size] = played;
+            favorites[size] = favorite;
+            artists[size] = artist;
+            albums[size] = album;
+            genres[size] = genre;
+            size++;
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            years = Arrays.copyOf(years, capacity);
+            dateAdded = Arrays.copyOf(dateAdded, capacity);
+            playCounts = Arrays.copyOf(playCounts, capacity);
+            lastPlayed = Arrays.copyOf(lastPlayed, capacity);
+            favorites = Arrays.copyOf(favorites, capacity);
+            artists = Arrays.copyOf(artists, capacity);
+            albums = Arrays.copyOf(albums, capacity);
+            genres = Arrays.copyOf(genres, capacity);
+        }
+
+        LibrarySnapshot build() {
+            String[] titles = Arrays.copyOf(this.titles, size);
+            long[] ids = Arrays.copyOf(this.ids, size);
+
+            // Mismo orden que ORDER BY title, id en SQLite (los nulos primero)
+            int[] titleOrder = new int[size];
+            for (int i = 0; i < size; i++) {
+                titleOrder[i] = i;
+            }
+            sortRows(titleOrder, (a, b) -> {
+                String titleA = titles[a];
+                String titleB = titles[b];
+                if (titleA == null || titleB == null) {
+                    if (titleA != titleB) return titleA == null ? -1 : 1;
+                } else {
+                    int result = titleA.compareTo(titleB);
+                    if (result != 0) return result;
+                }
+                return Long.compare(ids[a], ids[b]);
+            });
+            int[] titleRanks = new int[size];
+            for (int i = 0; i < size; i++) {
+                titleRanks[titleOrder[i]] = i;
+            }
+
+            int[] artists = Arrays.copyOf(this.artists, size);
+            int[] albums = Arrays.copyOf(this.albums, size);
+            int[] genres = Arrays.copyOf(this.genres, size);
+            boolean[] favorites = Arrays.copyOf(this.favorites, size);
+
+            return new LibrarySnapshot(size, ids, titles,
+                    Arrays.copyOf(durations, size), Arrays.copyOf(years, size), Arrays.copyOf(dateAdded, size),
+                    Arrays.copyOf(playCounts, size), Arrays.copyOf(lastPlayed, size), favorites,
+                    artists, albums, genres,
+                    artistDictionary.build(), albumDictionary.build(), genreDictionary.build(),
+                    titleOrder, titleRanks,
+                    postings(titleOrder, artists, artistDictionary.size()),
+                    postings(titleOrder, albums, albumDictionary.size()),
+                    postings(titleOrder, genres, genreDictionary.size()),
+                    favoriteRows(titleOrder, favorites));
+        }
+
+        // Dos pasadas: contar por ordinal y repartir en orden de título
+        private static int[][] postings(int[] titleOrder, int[] ordinals, int dictionarySize) {
+            int[] counts = new int[dictionarySize];
+            for (int ordinal : ordinals) {
+                if (ordinal != NONE) counts[ordinal]++;
+            }
+            int[][] postings = new int[dictionarySize][];
+            for (int i = 0; i < dictionarySize; i++) {
+                postings[i] = new int[counts[i]];
+                counts[i] = 0;
+            }
+            for (int row : titleOrder) {
+                int ordinal = ordinals[row];
+                if (ordinal != NONE) postings[ordinal][counts[ordinal]++] = row;
+            }
+            return postings;
+        }
+    }
+
+    /**
+     * Valores distintos de una columna (artista, álbum o género), indexados por ordinal.
+     * El ordinal se asigna por id de la tabla normalizada.
+     */
+    static final class Dictionary {
+        private final long[] dbIds;
+        private final String[] names;
+        private final String[] extras;
+        private final Map<Long, Integer> ordinals;
+
+        private Dictionary(long[] dbIds, String[] names, String[] extras, Map<Long, Integer> ordinals) {
+            this.dbIds = dbIds;
+            this.names = names;
+            this.extras = extras;
+            this.ordinals = ordinals;
+        }
+
+        int ordinalOf(long dbId) {
+            Integer ordinal = ordinals.get(dbId);
+            return ordinal != null ? ordinal : NONE;
+        }
+
+        long dbId(int ordinal) {
+            return ordinal != NONE ? dbIds[ordinal] : 0;
+        }
+
+        String name(int ordinal) {
+            return ordinal != NONE ? names[ordinal] : null;
+        }
+
+        String extra(int ordinal) {
+            return ordinal != NONE ? extras[ordinal] : null;
+        }
+
+        static final class Builder {
+            private final Map<Long, Integer> ordinals = new HashMap<>();
+            private final List<Long> dbIds = new ArrayList<>();
+            private final List<String> names = new ArrayList<>();
+            private final List<String> extras = new ArrayList<>();
+
+            int size() {
+                return dbIds.size();
+            }
+
+            int ordinal(Long dbId, String name, String extra) {
+                if (dbId == null) return NONE;
+                Integer ordinal = ordinals.get(dbId);
+                if (ordinal == null) {
+                    ordinal = dbIds.size();
+                    ordinals.put(dbId, ordinal);
+                    dbIds.add(dbId);
+                    names.add(name);
+                    extras.add(extra);
+                }
+                return ordinal;
+            }
+
+            int ordinalFrom(Dictionary dictionary, int ordinal) {
+                if (ordinal == NONE) return NONE;
+                return ordinal(dictionary.dbIds[ordinal], dictionary.names[ordinal], dictionary.extras[ordinal]);
+            }
+
+            Dictionary build() {
+                long[] ids = new long[dbIds.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = dbIds.get(i);
+                }
+                return new Dictionary(ids, names.toArray(new String[0]), extras.toArray(new String[0]),
+                        new HashMap<>(ordinals));
+            }
+        }
+    }
+
+    // ========== ORDENAMIENTO DE FILAS ==========
+    private interface RowComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Mergesort estable sobre int[] (sin Integer ni Comparator genérico)
+     */
+    private static void sortRows(int[] rows, RowComparator comparator) {
+        if (rows.length < 2) return;
+        int[] buffer = new int[rows.length];
+        for (int width = 1; width < rows.length; width *= 2) {
+            for (int start = 0; start < rows.length; start += 2 * width) {
+                int middle = Math.min(start + width, rows.length);
+                int end = Math.min(start + 2 * width, rows.length);
+                int left = start;
+                int right = middle;
+                int out = start;
+                while (left < middle && right < end) {
+                    buffer[out++] = comparator.compare(rows[left], rows[right]) <= 0 ? rows[left++] : rows[right++];
+                }
+                while (left < middle) buffer[out++] = rows[left++];
+                while (right < end) buffer[out++] = rows[right++];
+            }
+            System.arraycopy(buffer, 0, rows, 0, rows.length);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.reproductormp3.repository;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+
+import com.example.reproductormp3.database.AppDatabase;
+import com.example.reproductormp3.database.DatabaseExecutor;
+import com.example.reproductormp3.database.SongDao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Publica la {@link LibrarySnapshot} vigente. Se carga entera una sola vez; después
+ * sigue a {@link SongChangeFeed} y solo vuelve a leer las filas que cambiaron (más la
+ * lista de ids si pudo haber bajas). Si llegan cambios mientras se aplica uno, se
+ * acumulan y se aplican juntos al terminar.
+ */
+public class LibrarySnapshotStore extends LiveData<LibrarySnapshot> implements SongChangeFeed.Listener {
+
+    private static final String TAG = "LibrarySnapshotStore";
+
+    // Con más filas pendientes que esto sale más barato recargar todo
+    private static final int MAX_PENDING_ROWS = 5000;
+
+    private static volatile LibrarySnapshotStore INSTANCE;
+
+    private final SongDao songDao;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Cambios pendientes (solo se tocan en el hilo principal)
+    private boolean pendingReload = true;
+    private final Set<Long> pendingIds = new HashSet<>();
+    private int pendingColumns;
+    private boolean pendingMembership;
+    private boolean running;
+
+    private LibrarySnapshotStore(Context context) {
+        songDao = AppDatabase.getDatabase(context).songDao();
+    }
+
+    /**
+     * Llamar desde el hilo principal (se registra en SongChangeFeed)
+     */
+    public static LibrarySnapshotStore getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (LibrarySnapshotStore.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new LibrarySnapshotStore(context.getApplicationContext());
+                    SongChangeFeed.getInstance().addListener(INSTANCE);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    @Override
+    protected void onActive() {
+        schedule();
+    }
+
+    @Override
+    public void onSongsChanged(SongChange change) {
+        if (!change.areRowsKnown() || pendingIds.size() + change.getSongIds().size() > MAX_PENDING_ROWS) {
+            pendingReload = true;
+            pendingIds.clear();
+        } else if (!pendingReload) {
+            pendingIds.addAll(change.getSongIds());
+            pendingColumns |= change.getColumns();
+            pendingMembership |= change.isMembership();
+        }
+        // Sin observadores los cambios se acumulan hasta que alguien vuelva a mirar
+        if (hasActiveObservers()) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        LibrarySnapshot base = getValue();
+        boolean reload = pendingReload || base == null;
+        if (running || (!reload && pendingIds.isEmpty() && !pendingMembership)) return;
+        running = true;
+
+        List<Long> songIds = new ArrayList<>(pendingIds);
+        int columns = pendingColumns;
+        boolean membership = pendingMembership;
+        pendingReload = false;
+        pendingIds.clear();
+        pendingColumns = 0;
+        pendingMembership = false;
+
+        int priority = base == null ? DatabaseExecutor.PRIORITY_UI : DatabaseExecutor.PRIORITY_NORMAL;
+        AppDatabase.databaseReadExecutor.execute(priority, () -> {
+            LibrarySnapshot next = null;
+            try {
+                next = reload ? load() : update(base, songIds, columns, membership);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error al actualizar la biblioteca en memoria: " + e.getMessage());
+            }
+            LibrarySnapshot result = next;
+            mainHandler.post(() -> {
+                running = false;
+                if (result != null) {
+                    setValue(result);
+                } else {
+                    pendingReload = true;
+                    return;
+                }
+                if (hasActiveObservers()) schedule();
+            });
+        });
+    }
+
+    // ========== LECTURA ==========
+    private LibrarySnapshot load() {
+        try (Cursor cursor = songDao.getSnapshotCursor()) {
+            LibrarySnapshot.Builder builder = new LibrarySnapshot.Builder(cursor.getCount());
+            Columns columns = new Columns(cursor);
+            while (cursor.moveToNext()) {
+                builder.add(cursor.getLong(columns.id), cursor.getString(columns.title),
+                        cursor.getLong(columns.duration), cursor.getInt(columns.year),
+                        cursor.getLong(columns.dateAdded), cursor.getInt(columns.playCount),
+                        cursor.getLong(columns.lastPlayed), cursor.getInt(columns.favorite) != 0,
+                        getLongOrNull(cursor, columns.artistId), cursor.getString(columns.artist),
+                        getLongOrNull(cursor, columns.albumId), cursor.getString(columns.album),
+                        cursor.getString(columns.albumArtUri),
+                        getLongOrNull(cursor, columns.genreId), cursor.getString(columns.genre));
+            }
+            return builder.build();
+        }
+    }
+
+    private LibrarySnapshot update(LibrarySnapshot base, List<Long> songIds, int changedColumns,
+                                   boolean membership) {
+        Collections.sort(songIds);
+        List<LibrarySnapshot.Row> rows = new ArrayList<>(songIds.size());
+        for (int i = 0; i < songIds.size(); i += SongDao.MAX_BIND_PARAMETERS) {
+            List<Long> chunk = songIds.subList(i, Math.min(i + SongDao.MAX_BIND_PARAMETERS, songIds.size()));
+            try (Cursor cursor = songDao.getSnapshotCursorByIds(chunk)) {
+                Columns columns = new Columns(cursor);
+                while (cursor.moveToNext()) {
+                    rows.add(readRow(cursor, columns));
+                }
+            }
+        }
+        // Las bajas no traen ids: se detectan comparando con los ids vigentes
+        long[] liveIds = membership ? readIds() : null;
+        return base.apply(rows, liveIds, changedColumns);
+    }
+
+    private long[] readIds() {
+        try (Cursor cursor = songDao.getIdCursor()) {
+            long[] ids = new long[cursor.getCount()];
+            int count = 0;
+            while (cursor.moveToNext() && count < ids.length) {
+                ids[count++] = cursor.getLong(0);
+            }
+            return count == ids.length ? ids : Arrays.copyOf(ids, count);
+        }
+    }
+
+    private static LibrarySnapshot.Row readRow(Cursor cursor, Columns columns) {
+        return new LibrarySnapshot.Row(cursor.getLong(columns.id), cursor.getString(columns.title),
+                cursor.getLong(columns.duration), cursor.getInt(columns.year),
+                cursor.getLong(columns.dateAdded), cursor.getInt(columns.playCount),
+                cursor.getLong(columns.lastPlayed), cursor.getInt(columns.favorite) != 0,
+                getLongOrNull(cursor, columns.artistId), cursor.getString(columns.artist),
+                getLongOrNull(cursor, columns.albumId), cursor.getString(columns.album),
+                cursor.getString(columns.albumArtUri),
+                getLongOrNull(cursor, columns.genreId), cursor.getString(columns.genre));
+    }
+
+    private static Long getLongOrNull(Cursor cursor, int column) {
+        return cursor.isNull(column) ? null : cursor.getLong(column);
+    }
+
+    /**
+     * Índices de las columnas de SongDao.SNAPSHOT_COLUMNS en un cursor
+     */
+    private static final class Columns {
+        final int id;
+        final int title;
+        final int duration;
+        final int year;
+        final int dateAdded;
+        final int playCount;
+        final int lastPlayed;
+        final int favorite;
+        final int artistId;
+        final int artist;
+        final int albumId;
+        final int album;
+        final int albumArtUri;
+        final int genreId;
+        final int genre;
+
+        Columns(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow("id");
+            title = cursor.getColumnIndexOrThrow("title");
+            duration = cursor.getColumnIndexOrThrow("duration");
+            year = cursor.getColumnIndexOrThrow("year");
+            dateAdded = cursor.getColumnIndexOrThrow("dateAdded");
+            playCount = cursor.getColumnIndexOrThrow("playCount");
+            lastPlayed = cursor.getColumnIndexOrThrow("lastPlayed");
+            favorite = cursor.getColumnIndexOrThrow("isFavorite");
+            artistId = cursor.getColumnIndexOrThrow("artistId");
+            artist = cursor.getColumnIndexOrThrow("artist");
+            albumId = cursor.getColumnIndexOrThrow("albumId");
+            album = cursor.getColumnIndexOrThrow("album");
+            albumArtUri = cursor.getColumnIndexOrThrow("albumArtUri");
+            genreId = cursor.getColumnIndexOrThrow("genreId");
+            genre = cursor.getColumnIndexOrThrow("genre");
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.reproductormp3.repository;
+
+import java.util.Collection;
+
+/**
+ * Índice en memoria de las rutas guardadas, para descartar sin tocar SQLite las
+ * rutas que seguro no existen.
+ * <p>
+ * Guarda un hash de 64 bits por ruta (no la cadena), así que puede dar falsos
+ * positivos pero nunca falsos negativos: un "puede existir" se confirma con la
+ * base de datos. Por la misma razón las eliminaciones no se quitan del índice;
+ * se vuelve a construir en la siguiente carga.
+ */
+public class PathIndex {
+
+    private static final float MAX_LOAD = 0.6f;
+    private static final long EMPTY = 0L;
+
+    private static volatile PathIndex INSTANCE;
+
+    private long[] slots = new long[1024];
+    private int size;
+    private boolean loaded;
+
+    public static PathIndex getInstance() {
+        if (INSTANCE == null) {
+            synchronized (PathIndex.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new PathIndex();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * true cuando el índice ya contiene todas las rutas guardadas
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Agrega las rutas leídas de la base de datos. Las que se agregaron antes
+     * (escrituras durante la carga) se conservan.
+     */
+    public synchronized void load(Collection<String> storedPaths) {
+        for (String path : storedPaths) {
+            add(path);
+        }
+        loaded = true;
+    }
+
+    /**
+     * false solo si la ruta seguro no está guardada. Sin cargar siempre es true.
+     */
+    public synchronized boolean mightContain(String path) {
+        if (!loaded) return true;
+        if (path == null) return false;
+        long hash = hash(path);
+        int mask = slots.length - 1;
+        for (int i = mix(hash) & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+            if (slots[i] == hash) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Registrar una ruta antes de escribirla, para no dar nunca un falso negativo
+     */
+    public synchronized void add(String path) {
+        if (path == null) return;
+        if (size + 1 > slots.length * MAX_LOAD) {
+            grow();
+        }
+        if (insert(slots, hash(path))) {
+            size++;
+        }
+    }
+
+    public synchronized void addAll(Collection<String> paths) {
+        for (String path : paths) {
+            add(path);
+        }
+    }
+
+    /**
+     * Se borró toda la biblioteca: el índice sigue cargado, pero vacío
+     */
+    public synchronized void clear() {
+        slots = new long[1024];
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        for (long hash : old) {
+            if (hash != EMPTY) {
+                insert(slots, hash);
+            }
+        }
+    }
+
+    private static boolean insert(long[] table, long hash) {
+        int mask = table.length - 1;
+        int i = mix(hash) & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == hash) return false;
+            i = (i + 1) & mask;
+        }
+        table[i] = hash;
+        return true;
+    }
+
+    // String.hashCode en la parte alta y FNV-1a en la baja; 0 queda reservado para "vacío"
+    static long hash(String path) {
+        int fnv = 0x811c9dc5;
+        for (int i = 0; i < path.length(); i++) {
+            fnv ^= path.charAt(i);
+            fnv *= 0x01000193;
+        }
+        long hash = ((long) path.hashCode() << 32) | (fnv & 0xffffffffL);
+        return hash != EMPTY ? hash : 1L;
+    }
+
+    private static int mix(long hash) {
+        long h = hash * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32);
+    }
+}
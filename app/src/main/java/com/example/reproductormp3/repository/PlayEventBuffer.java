@@ -0,0 +1,158 @@
+package com.example.reproductormp3.repository;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.reproductormp3.database.AppDatabase;
+import com.example.reproductormp3.database.DatabaseExecutor;
+import com.example.reproductormp3.database.PlayEventDao;
+import com.example.reproductormp3.models.PlayEvent;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Buffer en memoria de reproducciones. En vez de un UPDATE por toque (que
+ * invalida todas las consultas de songs), los eventos se acumulan y se
+ * vuelcan juntos: cada pocos segundos, al llegar a un máximo, al pausar la
+ * actividad o cuando el sistema pide liberar memoria. Si la escritura falla, el
+ * lote vuelve al buffer y se reintenta en el próximo volcado.
+ */
+public class PlayEventBuffer implements ComponentCallbacks2 {
+
+    private static final String TAG = "PlayEventBuffer";
+    private static final long FLUSH_DELAY_MS = 15_000;
+    private static final int MAX_BUFFERED_EVENTS = 50;
+    // Tope mientras los volcados fallan: se descartan los eventos más viejos
+    private static final int MAX_RETAINED_EVENTS = 1000;
+
+    private static volatile PlayEventBuffer INSTANCE;
+
+    private final PlayEventDao playEventDao;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+
+    private List<PlayEvent> pending = new ArrayList<>();
+    private boolean flushScheduled = false;
+
+    private PlayEventBuffer(Context context) {
+        playEventDao = AppDatabase.getDatabase(context).playEventDao();
+    }
+
+    public static PlayEventBuffer getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (PlayEventBuffer.class) {
+                if (INSTANCE == null) {
+                    Context appContext = context.getApplicationContext();
+                    INSTANCE = new PlayEventBuffer(appContext);
+                    appContext.registerComponentCallbacks(INSTANCE);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Registra una reproducción; se escribirá en el próximo volcado
+     */
+    public synchronized void record(long songId) {
+        pending.add(new PlayEvent(songId, System.currentTimeMillis()));
+
+        if (pending.size() >= MAX_BUFFERED_EVENTS) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+        }
+    }
+
+    /**
+     * Escribe los eventos pendientes en una transacción (no bloquea al llamador)
+     */
+    public void flush() {
+        List<PlayEvent> batch;
+        synchronized (this) {
+            handler.removeCallbacks(flushRunnable);
+            flushScheduled = false;
+            if (pending.isEmpty()) return;
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+
+        AppDatabase.databaseWriteExecutor.execute(DatabaseExecutor.PRIORITY_BACKGROUND, () -> {
+            int songs;
+            try {
+                songs = playEventDao.appendAndRollUp(batch);
+            } catch (Exception e) {
+                // La transacción no dejó nada escrito: el lote se puede reintentar entero
+                Log.e(TAG, "Error al guardar reproducciones: " + e.getMessage());
+                requeue(batch);
+                return;
+            }
+            Set<Long> songIds = new HashSet<>();
+            for (PlayEvent event : batch) {
+                songIds.add(event.getSongId());
+            }
+            SongChangeFeed.getInstance().publish(SongChange.rows(SongChange.PLAY_STATS, songIds));
+            Log.d(TAG, batch.size() + " reproducciones volcadas en " + songs + " canciones");
+        });
+    }
+
+    /**
+     * Vuelca lo pendiente y devuelve una tarea que termina cuando el hilo escritor
+     * terminó este volcado y los anteriores (misma prioridad, en orden de llegada)
+     */
+    public Future<?> flushAndSync() {
+        flush();
+        return AppDatabase.databaseWriteExecutor.submit(DatabaseExecutor.PRIORITY_BACKGROUND, () -> null);
+    }
+
+    /**
+     * Devuelve al buffer un lote que no se pudo escribir, delante de los eventos que
+     * llegaron mientras tanto, y programa otro volcado
+     */
+    private synchronized void requeue(List<PlayEvent> batch) {
+        List<PlayEvent> retained = new ArrayList<>(batch.size() + pending.size());
+        retained.addAll(batch);
+        retained.addAll(pending);
+        int overflow = retained.size() - MAX_RETAINED_EVENTS;
+        if (overflow > 0) {
+            Log.w(TAG, overflow + " reproducciones descartadas: el volcado sigue fallando");
+            retained = new ArrayList<>(retained.subList(overflow, retained.size()));
+        }
+        pending = retained;
+        if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+        }
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    // ========== MEMORIA DEL PROCESO ==========
+    @Override
+    public void onTrimMemory(int level) {
+        flush();
+    }
+
+    @Override
+    public void onLowMemory() {
+        flush();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        // Sin efecto
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.reproductormp3.repository;
+
+import android.app.Application;
+import androidx.lifecycle.LiveData;
+
+import com.example.reproductormp3.database.AppDatabase;
+import com.example.reproductormp3.database.DatabaseExecutor;
+import com.example.reproductormp3.database.PlaylistDao;
+import com.example.reproductormp3.models.Playlist;
+import com.example.reproductormp3.models.PlaylistSong;
+
+import java.util.List;
+
+public class PlaylistRepository {
+
+    private PlaylistDao playlistDao;
+
+    public PlaylistRepository(Application application) {
+        playlistDao = AppDatabase.getDatabase(application).playlistDao();
+    }
+
+    // ========== LISTAS ==========
+    public void createPlaylist(String name, OnPlaylistCreatedListener listener) {
+        AppDatabase.databaseWriteExecutor.execute(DatabaseExecutor.PRIORITY_UI, () -> {
+            long playlistId = playlistDao.insertPlaylist(new Playlist(name));
+            if (listener != null) listener.onCreated(playlistId);
+        });
+    }
+
+    public interface OnPlaylistCreatedListener {
+        void onCreated(long playlistId);
+    }
+
+    public void renamePlaylist(Playlist playlist, String name) {
+        playlist.setName(name);
+        AppDatabase.databaseWriteExecutor.execute(DatabaseExecutor.PRIORITY_UI, () -> {
+            playlistDao.updatePlaylist(playlist);
+        });
+    }
+
+    public void deletePlaylist(Playlist playlist) {
+        AppDatabase.databaseWriteExecutor.execute(DatabaseExecutor.PRIORITY_UI, () -> {
+            playlistDao.deletePlaylist(playlist);
+        });
+    }
+
+    public LiveData<List<Playlist>> getPlaylists() {
+        return playlistDao.getPlaylists();
+    }
+
+    public LiveData<List<PlaylistSong>> getPlaylistSongs(long playlistId) {
+        return playlistDao.getPlaylistSongs(playlistId);
+    }
+
+    public LiveData<Integer> getEntryCount(long playlistId) {
+        return playlistDao.getEntryCount(playlistId);
+    }
+
+    // ========== ENTRADAS ==========
+    public void appendSongs(long playlistId, List<Long> songIds) {
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            playlistDao.appendSongs(playlistId, songIds);
+        });
+    }
+
+    /**
+     * Agrega todo el álbum al final (una transacción)
+     */
+    public void appendAlbum(long playlistId, long albumId) {
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            playlistDao.appendAlbum(playlistId, albumId);
+        });
+    }
+
+    public void appendArtist(long playlistId, long artistId) {
+        AppDatabase.databaseWriteExecutor.execute(() -> {
+            playlistDao.appendArtist(playlistId, artistId);
+        });
+    }
+
+    public void insertSongAt(long playlistId, long songId, int index) {
+        AppDatabase.databaseWriteExecutor.execute(DatabaseExecutor.PRIORITY_UI, () -> {
+            playlistDao.insertSongAt(playlistId, songId, index);
+        });
+    }
+
+    /**
+     * Arrastrar para reordenar: solo se reescribe la entrada movida
+     */
+    public void moveEntry(long playlistId, long entryId, int toIndex) {
+        AppDatabase.databaseWriteExecutor.execute(DatabaseExecutor.PRIORITY_UI, () -> {
+            playlistDao.moveEntry(playlistId, entryId, toIndex);
+        });
+    }
+
+    public void removeEntry(long entryId) {
+        AppDatabase.databaseWriteExecutor.execute(DatabaseExecutor.PRIORITY_UI, () -> {
+            playlistDao.deleteEntry(entryId);
+        });
+    }
+}
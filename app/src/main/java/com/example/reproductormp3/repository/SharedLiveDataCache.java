@@ -0,0 +1,97 @@
+package com.example.reproductormp3.repository;
+
+import androidx.lifecycle.LiveData;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LiveData de consultas compartidos por clave: quien pida la misma consulta con los
+ * mismos argumentos recibe el mismo objeto (una sola consulta, un solo observador de
+ * invalidación y un solo resultado en memoria).
+ * <p>
+ * Se guardan con referencias débiles. Mientras alguien lo observa, el LifecycleOwner
+ * lo mantiene vivo; cuando nadie lo usa el GC lo libera y su entrada se limpia en la
+ * siguiente llamada. Con observeForever, quien observa debe guardar el LiveData.
+ */
+public final class SharedLiveDataCache {
+
+    private static volatile SharedLiveDataCache INSTANCE;
+
+    private final Map<List<Object>, Entry> entries = new HashMap<>();
+    private final ReferenceQueue<LiveData<?>> released = new ReferenceQueue<>();
+
+    public interface Factory<T> {
+        LiveData<T> create();
+    }
+
+    private static final class Entry extends WeakReference<LiveData<?>> {
+        final List<Object> key;
+
+        Entry(List<Object> key, LiveData<?> liveData, ReferenceQueue<LiveData<?>> queue) {
+            super(liveData, queue);
+            this.key = key;
+        }
+    }
+
+    // Una sola caché para toda la app (los tests crean la suya)
+    SharedLiveDataCache() {
+    }
+
+    public static SharedLiveDataCache getInstance() {
+        if (INSTANCE == null) {
+            synchronized (SharedLiveDataCache.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new SharedLiveDataCache();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * El LiveData compartido para la consulta {@code name} con {@code args};
+     * se crea con {@code factory} si no existe o ya se liberó
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> LiveData<T> get(String name, Factory<T> factory, Object... args) {
+        purge();
+        Object[] parts = new Object[args.length + 1];
+        parts[0] = name;
+        System.arraycopy(args, 0, parts, 1, args.length);
+        List<Object> key = Arrays.asList(parts);
+
+        Entry entry = entries.get(key);
+        LiveData<T> liveData = entry != null ? (LiveData<T>) entry.get() : null;
+        if (liveData == null) {
+            liveData = factory.create();
+            entries.put(key, new Entry(key, liveData, released));
+        }
+        return liveData;
+    }
+
+    /**
+     * Entradas vivas (las liberadas aún no limpiadas no cuentan)
+     */
+    public synchronized int size() {
+        purge();
+        return entries.size();
+    }
+
+    // Quita las entradas cuyo LiveData ya recogió el GC
+    private void purge() {
+        Reference<? extends LiveData<?>> reference;
+        while ((reference = released.poll()) != null) {
+            Entry entry = (Entry) reference;
+            // La clave pudo reutilizarse con un LiveData nuevo
+            if (entries.get(entry.key) == entry) {
+                entries.remove(entry.key);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.reproductormp3.repository;
+
+import android.app.Application;
+import androidx.lifecycle.LiveData;
+
+import com.example.reproductormp3.database.AppDatabase;
+import com.example.reproductormp3.database.DatabaseExecutor;
+import com.example.reproductormp3.database.SmartPlaylistDao;
+import com.example.reproductormp3.database.SmartPlaylistQuery;
+import com.example.reproductormp3.models.SmartPlaylist;
+import com.example.reproductormp3.models.SmartRule;
+import com.example.reproductormp3.models.Song;
+
+import java.util.List;
+
+public class SmartPlaylistRepository {
+
+    private SmartPlaylistDao smartPlaylistDao;
+    private SmartPlaylistUpdater updater;
+
+    public SmartPlaylistRepository(Application application) {
+        smartPlaylistDao = AppDatabase.getDatabase(application).smartPlaylistDao();
+        updater = SmartPlaylistUpdater.getInstance(application);
+    }
+
+    // ========== CONSULTAS ==========
+    public LiveData<List<SmartPlaylist>> getSmartPlaylists() {
+        return smartPlaylistDao.getPlaylists();
+    }
+
+    /**
+     * Canciones de la lista, ordenadas y limitadas según la lista
+     */
+    public LiveData<List<Song>> getSongs(SmartPlaylist playlist) {
+        return smartPlaylistDao.getPlaylistSongs(SmartPlaylistQuery.playlistSongs(playlist));
+    }
+
+    // ========== GUARDAR / ELIMINAR ==========
+    /**
+     * Guarda la lista y sus reglas y calcula su contenido. Reglas no válidas
+     * (campo u operador desconocido, valor no numérico) llegan a onError.
+     */
+    public void save(SmartPlaylist playlist, List<SmartRule> rules, OnSmartPlaylistSavedListener listener) {
+        AppDatabase.databaseWriteExecutor.execute(DatabaseExecutor.PRIORITY_UI, () -> {
+            try {
+                long playlistId = smartPlaylistDao.savePlaylist(playlist, rules);
+                updater.invalidateRules();
+                if (listener != null) listener.onSaved(playlistId);
+            } catch (Exception e) {
+                if (listener != null) listener.onError(e);
+            }
+        });
+    }
+
+    public void delete(SmartPlaylist playlist) {
+        AppDatabase.databaseWriteExecutor.execute(DatabaseExecutor.PRIORITY_UI, () -> {
+            smartPlaylistDao.deletePlaylist(playlist);
+            updater.invalidateRules();
+        });
+    }
+
+    public interface OnSmartPlaylistSavedListener {
+        void onSaved(long playlistId);
+        void onError(Exception e);
+    }
+}
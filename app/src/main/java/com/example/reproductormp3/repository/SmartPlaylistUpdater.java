@@ -0,0 +1,120 @@
+package com.example.reproductormp3.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.reproductormp3.database.AppDatabase;
+import com.example.reproductormp3.database.DatabaseExecutor;
+import com.example.reproductormp3.database.SmartPlaylistDao;
+import com.example.reproductormp3.models.SmartPlaylist;
+import com.example.reproductormp3.models.SmartRule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mantiene al día el contenido de las listas inteligentes a partir de
+ * {@link SongChangeFeed}: ante un favorito, una reproducción o un lote del escaneo
+ * solo se reevalúan las canciones que cambiaron, y solo en las listas cuyas
+ * reglas dependen de las columnas afectadas.
+ */
+public class SmartPlaylistUpdater implements SongChangeFeed.Listener {
+
+    private static final String TAG = "SmartPlaylistUpdater";
+
+    private static volatile SmartPlaylistUpdater INSTANCE;
+
+    private final SmartPlaylistDao smartPlaylistDao;
+
+    // Reglas en caché; se leen de nuevo después de guardar o borrar una lista
+    private volatile List<Entry> entries;
+
+    private static class Entry {
+        final SmartPlaylist playlist;
+        final List<SmartRule> rules;
+        final int columns;
+
+        Entry(SmartPlaylist playlist, List<SmartRule> rules) {
+            this.playlist = playlist;
+            this.rules = rules;
+            int mask = 0;
+            for (SmartRule rule : rules) {
+                mask |= columnsOf(rule.getField());
+            }
+            this.columns = mask;
+        }
+    }
+
+    private SmartPlaylistUpdater(Context context) {
+        smartPlaylistDao = AppDatabase.getDatabase(context).smartPlaylistDao();
+    }
+
+    /**
+     * Llamar desde el hilo principal (se registra en SongChangeFeed)
+     */
+    public static SmartPlaylistUpdater getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (SmartPlaylistUpdater.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new SmartPlaylistUpdater(context.getApplicationContext());
+                    SongChangeFeed.getInstance().addListener(INSTANCE);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public void invalidateRules() {
+        entries = null;
+    }
+
+    @Override
+    public void onSongsChanged(SongChange change) {
+        AppDatabase.databaseWriteExecutor.execute(DatabaseExecutor.PRIORITY_BACKGROUND, () -> {
+            try {
+                apply(change);
+            } catch (Exception e) {
+                Log.e(TAG, "Error al actualizar listas inteligentes: " + e.getMessage());
+            }
+        });
+    }
+
+    private void apply(SongChange change) {
+        List<Entry> current = loadEntries();
+        List<Long> songIds = new ArrayList<>(change.getSongIds());
+
+        for (Entry entry : current) {
+            if (!change.areRowsKnown()) {
+                smartPlaylistDao.rebuildMembers(entry.playlist, entry.rules);
+            } else if (!songIds.isEmpty() && change.affects(entry.columns)) {
+                // Las eliminadas salen solas (ON DELETE CASCADE)
+                smartPlaylistDao.refreshMembers(entry.playlist, entry.rules, songIds);
+            }
+        }
+    }
+
+    private List<Entry> loadEntries() {
+        List<Entry> current = entries;
+        if (current == null) {
+            current = new ArrayList<>();
+            for (SmartPlaylist playlist : smartPlaylistDao.getPlaylistsSync()) {
+                current.add(new Entry(playlist, smartPlaylistDao.getRules(playlist.getId())));
+            }
+            entries = current;
+        }
+        return current;
+    }
+
+    // Columnas de SongChange de las que depende una regla
+    private static int columnsOf(String field) {
+        switch (field) {
+            case SmartRule.FIELD_FAVORITE:
+                return SongChange.FAVORITE;
+            case SmartRule.FIELD_PLAY_COUNT:
+            case SmartRule.FIELD_LAST_PLAYED:
+                return SongChange.PLAY_STATS;
+            default:
+                return SongChange.TAGS;
+        }
+    }
+}
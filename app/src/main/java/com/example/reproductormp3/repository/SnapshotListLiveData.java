@@ -0,0 +1,81 @@
+package com.example.reproductormp3.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+
+import com.example.reproductormp3.models.SongListItem;
+import com.example.reproductormp3.utils.TaskScheduler;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Filas de un {@link SongRepository.SnapshotFilter} sobre la foto en memoria. El
+ * filtro y la creación de las filas corren en el carril {@link TaskScheduler#LANE_VIEW};
+ * el hilo principal solo publica, y solo si cambian las filas visibles. Un cálculo a
+ * la vez: si llega otra foto mientras corre, se calcula de nuevo con la última.
+ */
+class SnapshotListLiveData extends MediatorLiveData<List<SongListItem>> {
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final SongRepository.SnapshotFilter filter;
+
+    private LibrarySnapshot snapshot;
+    private boolean running;
+    private boolean dirty;
+
+    SnapshotListLiveData(LiveData<LibrarySnapshot> snapshots, SongRepository.SnapshotFilter filter) {
+        this.filter = filter;
+        addSource(snapshots, next -> {
+            snapshot = next;
+            recompute();
+        });
+    }
+
+    private void recompute() {
+        if (running) {
+            dirty = true;
+            return;
+        }
+        dirty = false;
+
+        LibrarySnapshot base = snapshot;
+        // Solo este cálculo publica: el valor actual no cambia mientras corre
+        List<SongListItem> current = getValue();
+        running = true;
+        TaskScheduler.Job<List<SongListItem>> job = TaskScheduler.getInstance()
+                .submit(TaskScheduler.LANE_VIEW, null, work -> {
+                    List<SongListItem> items = base.toListItems(filter.rows(base));
+                    // null: las filas visibles no cambiaron
+                    return sameListItems(current, items) ? null : items;
+                });
+        job.whenDone(done -> mainHandler.post(() -> onComputed(done)));
+    }
+
+    private void onComputed(TaskScheduler.Job<List<SongListItem>> job) {
+        running = false;
+        if (dirty) {
+            recompute();
+            return;
+        }
+        try {
+            List<SongListItem> items = job.get();
+            if (items != null) {
+                setValue(items);
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            // El carril ya registró el error; la lista se queda como estaba
+        }
+    }
+
+    private static boolean sameListItems(List<SongListItem> current, List<SongListItem> items) {
+        if (current == null || current.size() != items.size()) return false;
+        for (int i = 0; i < items.size(); i++) {
+            if (!current.get(i).hasSameContent(items.get(i))) return false;
+        }
+        return true;
+    }
+}
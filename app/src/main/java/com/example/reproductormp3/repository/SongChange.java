@@ -0,0 +1,92 @@
+package com.example.reproductormp3.repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Cambio en la tabla songs publicado por {@link SongChangeFeed}: qué canciones
+ * cambiaron y en qué columnas, o un cambio de pertenencia (altas/bajas) que
+ * obliga a volver a consultar.
+ */
+public final class SongChange {
+
+    /** isFavorite */
+    public static final int FAVORITE = 1;
+    /** playCount, lastPlayed */
+    public static final int PLAY_STATS = 1 << 1;
+    /** Etiquetas y datos del archivo (título, artista, álbum, duración...) */
+    public static final int TAGS = 1 << 2;
+    public static final int ALL_COLUMNS = FAVORITE | PLAY_STATS | TAGS;
+
+    private final Set<Long> songIds;
+    private final int columns;
+    private final boolean membership;
+    private final boolean rowsKnown;
+
+    private SongChange(Set<Long> songIds, int columns, boolean membership, boolean rowsKnown) {
+        this.songIds = songIds;
+        this.columns = columns;
+        this.membership = membership;
+        this.rowsKnown = rowsKnown;
+    }
+
+    /**
+     * Cambiaron {@code columns} en filas existentes
+     */
+    public static SongChange rows(int columns, Collection<Long> songIds) {
+        return new SongChange(Collections.unmodifiableSet(new HashSet<>(songIds)), columns, false, true);
+    }
+
+    public static SongChange row(int columns, long songId) {
+        return new SongChange(Collections.singleton(songId), columns, false, true);
+    }
+
+    /**
+     * Se agregaron o eliminaron canciones y no se sabe cuáles
+     */
+    public static SongChange membership() {
+        return new SongChange(Collections.emptySet(), ALL_COLUMNS, true, false);
+    }
+
+    /**
+     * Se agregaron o eliminaron canciones; {@code changedIds} son las insertadas o
+     * actualizadas (el resto de filas solo pudo haberse eliminado)
+     */
+    public static SongChange membership(Collection<Long> changedIds) {
+        return new SongChange(Collections.unmodifiableSet(new HashSet<>(changedIds)), ALL_COLUMNS, true, true);
+    }
+
+    public Set<Long> getSongIds() {
+        return songIds;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public boolean isMembership() {
+        return membership;
+    }
+
+    /**
+     * false si cualquier fila pudo cambiar (hay que reevaluar todo)
+     */
+    public boolean areRowsKnown() {
+        return rowsKnown;
+    }
+
+    /**
+     * true si el cambio puede alterar algo que dependa de {@code columns}
+     */
+    public boolean affects(int columns) {
+        return membership || (this.columns & columns) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return membership ? "SongChange{membership}"
+                : "SongChange{columns=" + columns + ", ids=" + songIds.size() + "}";
+    }
+}
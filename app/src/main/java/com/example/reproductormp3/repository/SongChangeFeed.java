@@ -0,0 +1,69 @@
+package com.example.reproductormp3.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Canal de cambios a nivel de fila de la tabla songs. Room invalida por tabla
+ * (un favorito vuelve a ejecutar todas las consultas observadas); aquí cada
+ * escritura de SongRepository y PlayEventBuffer publica qué ids y columnas
+ * cambió, y cada consulta decide si le basta con parchear sus filas.
+ * Los listeners se llaman en el hilo principal.
+ */
+public class SongChangeFeed {
+
+    private static volatile SongChangeFeed INSTANCE;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new ArrayList<>();
+    private final AtomicLong version = new AtomicLong();
+
+    public interface Listener {
+        void onSongsChanged(SongChange change);
+    }
+
+    public static SongChangeFeed getInstance() {
+        if (INSTANCE == null) {
+            synchronized (SongChangeFeed.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new SongChangeFeed();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Llamar después de que la escritura se haya confirmado (desde cualquier hilo)
+     */
+    public void publish(SongChange change) {
+        version.incrementAndGet();
+        mainHandler.post(() -> {
+            for (Listener listener : new ArrayList<>(listeners)) {
+                listener.onSongsChanged(change);
+            }
+        });
+    }
+
+    /**
+     * Aumenta con cada cambio publicado: sirve para saber si algo cambió mientras
+     * una consulta no estaba observada
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+}
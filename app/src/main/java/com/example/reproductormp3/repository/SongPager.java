@@ -0,0 +1,247 @@
+package com.example.reproductormp3.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.reproductormp3.database.AppDatabase;
+import com.example.reproductormp3.database.DatabaseExecutor;
+import com.example.reproductormp3.database.SongDao;
+import com.example.reproductormp3.models.SongListItem;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Carga por ventanas de la lista completa de canciones (orden título, id).
+ * Solo mantiene en memoria las páginas cercanas a lo que se ve en pantalla;
+ * las páginas consecutivas se piden por keyset (título, id) y los saltos
+ * lejanos (scroll rápido) caen a LIMIT/OFFSET.
+ *
+ * Escucha {@link SongChangeFeed}: si cambian altas/bajas o títulos se recargan
+ * las páginas en caché; si solo cambian otras columnas de algunas filas, solo las
+ * páginas que las contienen. En ambos casos se notifican únicamente las filas
+ * que cambiaron. Todos los métodos públicos
+ * deben llamarse desde el hilo principal.
+ */
+public class SongPager {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_CACHED_PAGES = 8;
+
+    private final SongDao songDao;
+    private final SongChangeFeed changeFeed = SongChangeFeed.getInstance();
+    private final SongChangeFeed.Listener changeListener = this::onSongsChanged;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final int pageSize;
+    private final int prefetchDistance;
+
+    // Orden de acceso: la primera entrada es la página menos usada
+    private final LinkedHashMap<Integer, Page> pages = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<Integer> loading = new HashSet<>();
+
+    private int count;
+    private int generation;
+    private boolean closed;
+    private Callback callback;
+
+    public interface Callback {
+        /** Cambió el número de canciones: la lista debe volver a dibujarse completa */
+        void onCountChanged(int count);
+
+        /** Cambiaron {@code itemCount} filas a partir de {@code positionStart} */
+        void onItemRangeChanged(int positionStart, int itemCount);
+    }
+
+    private static class Page {
+        final List<SongListItem> songs;
+        final int generation;
+
+        Page(List<SongListItem> songs, int generation) {
+            this.songs = songs;
+            this.generation = generation;
+        }
+    }
+
+    public SongPager(AppDatabase database) {
+        this(database, DEFAULT_PAGE_SIZE);
+    }
+
+    public SongPager(AppDatabase database, int pageSize) {
+        this.songDao = database.songDao();
+        this.pageSize = pageSize;
+        this.prefetchDistance = pageSize / 2;
+
+        changeFeed.addListener(changeListener);
+        invalidate();
+    }
+
+    public void setCallback(Callback callback) {
+        this.callback = callback;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Fila en la posición, o null si su página aún no está cargada
+     * (se pide en segundo plano junto con las vecinas si está cerca del borde).
+     */
+    public SongListItem getItem(int position) {
+        int pageIndex = position / pageSize;
+        int offset = position % pageSize;
+
+        Page page = pages.get(pageIndex);
+        ensurePage(pageIndex, page);
+
+        // Prefetch de la página vecina
+        if (offset < prefetchDistance && pageIndex > 0) {
+            ensurePage(pageIndex - 1, pages.get(pageIndex - 1));
+        } else if (offset >= pageSize - prefetchDistance && (pageIndex + 1) * pageSize < count) {
+            ensurePage(pageIndex + 1, pages.get(pageIndex + 1));
+        }
+
+        if (page == null || offset >= page.songs.size()) {
+            return null;
+        }
+        return page.songs.get(offset);
+    }
+
+    /**
+     * Deja de observar la base de datos
+     */
+    public void close() {
+        closed = true;
+        changeFeed.removeListener(changeListener);
+        mainHandler.removeCallbacksAndMessages(null);
+        callback = null;
+        pages.clear();
+    }
+
+    private void ensurePage(int pageIndex, Page page) {
+        if (page == null || page.generation != generation) {
+            requestPage(pageIndex);
+        }
+    }
+
+    private void requestPage(int pageIndex) {
+        if (closed || loading.contains(pageIndex)) return;
+        loading.add(pageIndex);
+
+        final int requestGeneration = generation;
+        // Keyset solo si la página anterior es de esta misma generación
+        Page previous = pages.get(pageIndex - 1);
+        SongListItem lastKey = null;
+        if (previous != null && previous.generation == generation && previous.songs.size() == pageSize) {
+            lastKey = previous.songs.get(pageSize - 1);
+        }
+        final SongListItem after = lastKey;
+
+        AppDatabase.databaseReadExecutor.execute(DatabaseExecutor.PRIORITY_UI, () -> {
+            List<SongListItem> songs;
+            if (pageIndex == 0) {
+                songs = songDao.getFirstPage(pageSize);
+            } else if (after != null && after.getTitle() != null) {
+                songs = songDao.getPageAfter(after.getTitle(), after.getId(), pageSize);
+            } else {
+                songs = songDao.getPageAt(pageIndex * pageSize, pageSize);
+            }
+            mainHandler.post(() -> onPageLoaded(pageIndex, requestGeneration, songs));
+        });
+    }
+
+    private void onPageLoaded(int pageIndex, int requestGeneration, List<SongListItem> songs) {
+        loading.remove(pageIndex);
+        if (closed || requestGeneration != generation) {
+            // Llegó tarde: la página se volverá a pedir al dibujarse
+            return;
+        }
+
+        Page old = pages.put(pageIndex, new Page(songs, requestGeneration));
+        trimCache(pageIndex);
+
+        if (callback == null) return;
+        int start = pageIndex * pageSize;
+        if (old == null) {
+            callback.onItemRangeChanged(start, songs.size());
+            return;
+        }
+
+        // Notificar solo los tramos de filas que cambiaron
+        int runStart = -1;
+        int size = Math.max(old.songs.size(), songs.size());
+        for (int i = 0; i <= size; i++) {
+            boolean changed = i < size && !sameRow(old.songs, songs, i);
+            if (changed && runStart < 0) {
+                runStart = i;
+            } else if (!changed && runStart >= 0) {
+                callback.onItemRangeChanged(start + runStart, i - runStart);
+                runStart = -1;
+            }
+        }
+    }
+
+    private boolean sameRow(List<SongListItem> oldSongs, List<SongListItem> newSongs, int index) {
+        if (index >= oldSongs.size() || index >= newSongs.size()) return false;
+        return oldSongs.get(index).hasSameContent(newSongs.get(index));
+    }
+
+    private void trimCache(int keepPage) {
+        Iterator<Map.Entry<Integer, Page>> iterator = pages.entrySet().iterator();
+        while (pages.size() > MAX_CACHED_PAGES && iterator.hasNext()) {
+            if (iterator.next().getKey() != keepPage) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void onSongsChanged(SongChange change) {
+        // El orden es por título: solo las altas/bajas y las etiquetas mueven filas
+        if (change.affects(SongChange.TAGS)) {
+            invalidate();
+            return;
+        }
+        for (Map.Entry<Integer, Page> entry : new ArrayList<>(pages.entrySet())) {
+            for (SongListItem item : entry.getValue().songs) {
+                if (change.getSongIds().contains(item.getId())) {
+                    requestPage(entry.getKey());
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * La tabla cambió: se recuenta y se recargan las páginas en caché
+     */
+    private void invalidate() {
+        if (closed) return;
+        generation++;
+        loading.clear();
+        final int requestGeneration = generation;
+
+        AppDatabase.databaseReadExecutor.execute(DatabaseExecutor.PRIORITY_UI, () -> {
+            int newCount = songDao.getSongsCount();
+            mainHandler.post(() -> {
+                if (closed || requestGeneration != generation) return;
+
+                if (newCount != count) {
+                    // Cambió la pertenencia: las posiciones ya no son fiables
+                    count = newCount;
+                    pages.clear();
+                    if (callback != null) callback.onCountChanged(count);
+                } else {
+                    for (Integer pageIndex : new HashSet<>(pages.keySet())) {
+                        requestPage(pageIndex);
+                    }
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.reproductormp3.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+
+import com.example.reproductormp3.database.AppDatabase;
+import com.example.reproductormp3.database.SongDao;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * LiveData de una consulta sobre songs que escucha {@link SongChangeFeed} en vez
+ * del InvalidationTracker de Room. Se vuelve a consultar solo si el cambio afecta
+ * a {@code requeryColumns} (orden o pertenencia) o si se agregaron/eliminaron
+ * canciones; si no, el {@link Patcher} reemplaza en la lista actual solo las filas
+ * que cambiaron.
+ */
+public class SongQueryLiveData<T> extends LiveData<T> implements SongChangeFeed.Listener {
+
+    public interface Loader<T> {
+        T load();
+    }
+
+    public interface Patcher<T> {
+        /** Nuevo valor con las filas actualizadas, o null si no hay nada que cambiar */
+        T patch(T current, Set<Long> songIds);
+    }
+
+    public interface RowId<R> {
+        long idOf(R row);
+    }
+
+    public interface RowLoader<R> {
+        List<R> loadRows(List<Long> songIds);
+    }
+
+    private final SongChangeFeed feed = SongChangeFeed.getInstance();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Loader<T> loader;
+    private final int requeryColumns;
+    private final Patcher<T> patcher;
+
+    private int generation;
+    private boolean running;
+    private long loadedVersion = -1;
+
+    /**
+     * @param requeryColumns columnas (ver {@link SongChange}) que afectan al orden o
+     *                       al filtro de la consulta
+     * @param patcher        null si los cambios en otras columnas no se ven en el resultado
+     */
+    public SongQueryLiveData(Loader<T> loader, int requeryColumns, Patcher<T> patcher) {
+        this.loader = loader;
+        this.requeryColumns = requeryColumns;
+        this.patcher = patcher;
+    }
+
+    @Override
+    protected void onActive() {
+        feed.addListener(this);
+        if (loadedVersion != feed.getVersion()) {
+            reload();
+        }
+    }
+
+    @Override
+    protected void onInactive() {
+        feed.removeListener(this);
+    }
+
+    @Override
+    public void onSongsChanged(SongChange change) {
+        if (change.affects(requeryColumns)) {
+            reload();
+        } else if (patcher != null) {
+            patch(change.getSongIds());
+        } else {
+            // El resultado no depende de esas columnas
+            if (!running) loadedVersion = feed.getVersion();
+        }
+    }
+
+    private void reload() {
+        final int requestGeneration = ++generation;
+        final long version = feed.getVersion();
+        running = true;
+        AppDatabase.databaseReadExecutor.execute(() -> {
+            T value = loader.load();
+            mainHandler.post(() -> {
+                if (requestGeneration != generation) return;
+                running = false;
+                loadedVersion = version;
+                setValue(value);
+            });
+        });
+    }
+
+    private void patch(Set<Long> songIds) {
+        final T current = getValue();
+        // Sin valor, o con otra operación en curso que partió de un valor viejo
+        if (current == null || running) {
+            reload();
+            return;
+        }
+        final int requestGeneration = ++generation;
+        final long version = feed.getVersion();
+        running = true;
+        AppDatabase.databaseReadExecutor.execute(() -> {
+            T patched = patcher.patch(current, songIds);
+            mainHandler.post(() -> {
+                if (requestGeneration != generation) return;
+                running = false;
+                loadedVersion = version;
+                if (patched != null) {
+                    setValue(patched);
+                }
+            });
+        });
+    }
+
+    /**
+     * Patcher para listas: vuelve a leer por id solo las filas presentes en la
+     * lista y las reemplaza en su posición
+     */
+    public static <R> Patcher<List<R>> rowPatcher(RowId<R> rowId, RowLoader<R> rowLoader) {
+        return (current, songIds) -> {
+            List<Long> present = new ArrayList<>();
+            for (R row : current) {
+                if (songIds.contains(rowId.idOf(row))) {
+                    present.add(rowId.idOf(row));
+                }
+            }
+            if (present.isEmpty()) return null;
+
+            Map<Long, R> fresh = new HashMap<>();
+            for (int i = 0; i < present.size(); i += SongDao.MAX_BIND_PARAMETERS) {
+                List<Long> chunk = present.subList(i, Math.min(i + SongDao.MAX_BIND_PARAMETERS, present.size()));
+                for (R row : rowLoader.loadRows(chunk)) {
+                    fresh.put(rowId.idOf(row), row);
+                }
+            }
+
+            List<R> patched = new ArrayList<>(current.size());
+            for (R row : current) {
+                R replacement = fresh.get(rowId.idOf(row));
+                patched.add(replacement != null ? replacement : row);
+            }
+            return patched;
+        };
+    }
+}
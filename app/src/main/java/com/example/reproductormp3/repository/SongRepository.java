@@ -1,129 +1,684 @@
 package com.example.reproductormp3.repository;
 
 import android.app.Application;
+import android.net.Uri;
+import android.util.Log;
 import androidx.lifecycle.LiveData;
 
 import com.example.reproductormp3.database.AppDatabase;
+import com.example.reproductormp3.database.DatabaseExecutor;
+import com.example.reproductormp3.database.ReconcileResult;
 import com.example.reproductormp3.database.SongDao;
+import com.example.reproductormp3.models.Album;
+import com.example.reproductormp3.models.Artist;
+import com.example.reproductormp3.models.Genre;
 import com.example.reproductormp3.models.Song;
+import com.example.reproductormp3.models.SongListItem;
+import com.example.reproductormp3.utils.FtsQuery;
+import com.example.reproductormp3.utils.MediaScanner;
+import com.example.reproductormp3.utils.ScanDiff;
+import com.example.reproductormp3.utils.TaskScheduler;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class SongRepository {
 
+    private static final String TAG = "SongRepository";
+    public static final String STAGE_DATABASE = "database";
+    private static final int SCAN_BATCH_SIZE = 500;
+
+    // Un escaneo (o una copia de seguridad) a la vez: el carril de escaneo tiene un solo hilo.
+    // Pedir otro escaneo con uno en cola o en marcha devuelve ese (misma clave)
+    private static final String KEY_RESCAN = "rescan";
+
+    // Lecturas que alguien está esperando: salen antes que las de fondo
+    private static final Executor UI_READS =
+            command -> AppDatabase.databaseReadExecutor.execute(DatabaseExecutor.PRIORITY_UI, command);
+
+    private Application application;
+    private AppDatabase database;
     private SongDao songDao;
+    private PlayEventBuffer playEventBuffer;
+    private PathIndex pathIndex;
+    private SongChangeFeed changeFeed;
     private LiveData<List<Song>> allSongs;
+    private LibrarySnapshotStore librarySnapshot;
+    private SharedLiveDataCache queries;
 
     public SongRepository(Application application) {
-        AppDatabase database = AppDatabase.getDatabase(application);
+        this.application = application;
+        database = AppDatabase.getDatabase(application);
         songDao = database.songDao();
-        allSongs = songDao.getAllSongs();
+        playEventBuffer = PlayEventBuffer.getInstance(application);
+        pathIndex = PathIndex.getInstance();
+        changeFeed = SongChangeFeed.getInstance();
+        // Las listas inteligentes siguen los cambios de songs mientras la app esté viva
+        SmartPlaylistUpdater.getInstance(application);
+        queries = SharedLiveDataCache.getInstance();
+        allSongs = queries.get("allSongs",
+                () -> new SongQueryLiveData<>(songDao::getAllSongsSync, SongChange.TAGS, songRowPatcher()));
+        librarySnapshot = LibrarySnapshotStore.getInstance(application);
     }
 
     // ========== INSERTAR ==========
+    // Se inserta o actualiza por ruta (reconcile): una ruta conocida conserva su id,
+    // reproducciones, favorito y listas
     public void insert(Song song) {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
-            songDao.insert(song);
-        });
+        insertAll(Collections.singletonList(song));
     }
 
     public void insertAll(List<Song> songs) {
         AppDatabase.databaseWriteExecutor.execute(() -> {
-            songDao.insertAll(songs);
+            addToPathIndex(songs);
+            publishReconcile(songDao.reconcile(songs, Collections.emptyList()));
         });
     }
 
     // ========== ACTUALIZAR ==========
     public void update(Song song) {
         AppDatabase.databaseWriteExecutor.execute(() -> {
-            songDao.update(song);
+            pathIndex.add(song.getPath());
+            songDao.updateWithTags(song);
+            changeFeed.publish(SongChange.row(SongChange.ALL_COLUMNS, song.getId()));
         });
     }
 
     // ========== ELIMINAR ==========
     public void delete(Song song) {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
+        AppDatabase.databaseWriteExecutor.execute(DatabaseExecutor.PRIORITY_UI, () -> {
             songDao.delete(song);
+            changeFeed.publish(SongChange.membership(Collections.emptyList()));
+        });
+    }
+
+    public void deleteById(long songId) {
+        AppDatabase.databaseWriteExecutor.execute(DatabaseExecutor.PRIORITY_UI, () -> {
+            songDao.deleteById(songId);
+            changeFeed.publish(SongChange.membership(Collections.emptyList()));
         });
     }
 
     public void deleteAll() {
         AppDatabase.databaseWriteExecutor.execute(() -> {
             songDao.deleteAll();
+            pathIndex.clear();
+            changeFeed.publish(SongChange.membership(Collections.emptyList()));
         });
     }
 
     // ========== CONSULTAS ==========
+    // Las consultas que devuelven LiveData se comparten por clave (SharedLiveDataCache):
+    // pedir la misma consulta dos veces devuelve el mismo objeto mientras alguien lo use
+
     public LiveData<List<Song>> getAllSongs() {
         return allSongs;
     }
 
+    /**
+     * Lista completa paginada por ventanas (hay que cerrarla con {@link SongPager#close()})
+     */
+    public SongPager createSongPager() {
+        return new SongPager(database);
+    }
+
+    /**
+     * Todas las canciones en el mismo orden que el pager, leídas en segundo plano
+     */
+    public void loadAllSongs(OnSongsLoadedListener listener) {
+        deliver(fetchAllSongs(), listener::onLoaded);
+    }
+
+    /**
+     * Favoritas completas (para la cola de reproducción), en el mismo orden que la lista
+     */
+    public void loadFavoriteSongs(OnSongsLoadedListener listener) {
+        deliver(fetchFavoriteSongs(), listener::onLoaded);
+    }
+
+    /**
+     * Canciones completas en el orden de {@code songIds}; las que ya no existen se omiten
+     */
+    public void loadSongs(List<Long> songIds, OnSongsLoadedListener listener) {
+        deliver(fetchSongs(songIds), listener::onLoaded);
+    }
+
+    public interface OnSongsLoadedListener {
+        void onLoaded(List<Song> songs);
+    }
+
     public LiveData<Song> getSongById(long songId) {
-        return songDao.getSongById(songId);
+        return queries.get("songById", () -> songDao.getSongById(songId), songId);
+    }
+
+    /**
+     * Canción completa a partir del id de una fila de la lista (null si ya no existe)
+     */
+    public void loadSong(long songId, OnSongLoadedListener listener) {
+        deliver(fetchSongById(songId), listener::onLoaded);
+    }
+
+    public interface OnSongLoadedListener {
+        void onLoaded(Song song);
+    }
+
+    // Entrega el resultado al listener en el hilo lector. Si la consulta o el listener
+    // fallan se registra el error: el listener no se llama con un resultado vacío
+    private static <T> void deliver(CompletableFuture<T> future, Consumer<T> listener) {
+        future.whenComplete((value, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Error al leer canciones", error);
+                return;
+            }
+            try {
+                listener.accept(value);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error al entregar canciones", e);
+            }
+        });
     }
 
     public LiveData<List<Song>> searchSongs(String query) {
-        return songDao.searchSongs(query);
+        String match = FtsQuery.toMatchExpression(query);
+        if (match == null) {
+            return allSongs;
+        }
+        return queries.get("searchSongs", () -> songQuery(() -> songDao.searchSongsSync(match)), match);
+    }
+
+    /**
+     * Una búsqueda puntual; {@code match} es una expresión de {@link FtsQuery}.
+     * No llamar desde el hilo principal.
+     */
+    public List<SongListItem> searchListItemsSync(String match) {
+        return songDao.searchListItemsSync(match);
     }
 
     public LiveData<List<Song>> getSongsByArtist(String artist) {
-        return songDao.getSongsByArtist(artist);
+        return queries.get("getSongsByArtist", () -> songQuery(() -> songDao.getSongsByArtistSync(artist)), artist);
     }
 
     public LiveData<List<Song>> getSongsByAlbum(String album) {
-        return songDao.getSongsByAlbum(album);
+        return queries.get("getSongsByAlbum", () -> songQuery(() -> songDao.getSongsByAlbumSync(album)), album);
+    }
+
+    public LiveData<List<Song>> getSongsByArtistId(long artistId) {
+        return queries.get("getSongsByArtistId",
+                () -> songQuery(() -> songDao.getSongsByArtistIdSync(artistId)), artistId);
+    }
+
+    public LiveData<List<Song>> getSongsByAlbumId(long albumId) {
+        return queries.get("getSongsByAlbumId",
+                () -> songQuery(() -> songDao.getSongsByAlbumIdSync(albumId)), albumId);
+    }
+
+    public LiveData<List<Song>> getSongsByGenreId(long genreId) {
+        return queries.get("getSongsByGenreId",
+                () -> songQuery(() -> songDao.getSongsByGenreIdSync(genreId)), genreId);
     }
 
     public LiveData<List<Song>> getFavoriteSongs() {
-        return songDao.getFavoriteSongs();
+        return queries.get("getFavoriteSongs", () -> new SongQueryLiveData<>(songDao::getFavoriteSongsSync,
+                SongChange.FAVORITE | SongChange.TAGS, songRowPatcher()));
+    }
+
+    public LiveData<List<SongListItem>> getFavoriteListItems() {
+        return queries.get("getFavoriteListItems", () -> snapshotListItems(LibrarySnapshot::favoriteRows));
     }
 
     public LiveData<List<Song>> getMostPlayedSongs(int limit) {
-        return songDao.getMostPlayedSongs(limit);
+        return queries.get("getMostPlayedSongs", () -> new SongQueryLiveData<>(
+                () -> songDao.getMostPlayedSongsSync(limit), SongChange.PLAY_STATS, songRowPatcher()), limit);
     }
 
     public LiveData<List<Song>> getRecentlyPlayedSongs(int limit) {
-        return songDao.getRecentlyPlayedSongs(limit);
+        return queries.get("getRecentlyPlayedSongs", () -> new SongQueryLiveData<>(
+                () -> songDao.getRecentlyPlayedSongsSync(limit), SongChange.PLAY_STATS, songRowPatcher()), limit);
+    }
+
+    // Filtros y búsquedas que dependen solo de las etiquetas: marcar un favorito o
+    // volcar reproducciones no las repite, solo vuelve a leer las filas que se ven
+    private SongQueryLiveData<List<Song>> songQuery(SongQueryLiveData.Loader<List<Song>> loader) {
+        return new SongQueryLiveData<>(loader, SongChange.TAGS, songRowPatcher());
+    }
+
+    // Un cambio que no toca el orden ni el filtro solo vuelve a leer las filas afectadas
+    private SongQueryLiveData.Patcher<List<Song>> songRowPatcher() {
+        return SongQueryLiveData.rowPatcher(Song::getId, songDao::getSongsByIds);
     }
 
     public LiveData<List<Song>> getRecentlyAddedSongs(int limit) {
-        return songDao.getRecentlyAddedSongs(limit);
+        return queries.get("getRecentlyAddedSongs",
+                () -> songQuery(() -> songDao.getRecentlyAddedSongsSync(limit)), limit);
+    }
+
+    // ========== CONSULTAS PUNTUALES ==========
+    // Una lectura del estado actual, sin LiveData ni observadores: las *Sync son para
+    // hilos de fondo (escaneo, copia de seguridad) y las fetch* devuelven un
+    // CompletableFuture resuelto en el lector de la base de datos con prioridad de UI.
+    // Para usar el resultado en el hilo principal: thenAcceptAsync(..., mainExecutor).
+
+    /** No llamar desde el hilo principal */
+    public List<Song> getAllSongsSync() {
+        return songDao.getAllSongsSync();
+    }
+
+    /** No llamar desde el hilo principal */
+    public int getSongsCountSync() {
+        return songDao.getSongsCount();
+    }
+
+    /** No llamar desde el hilo principal */
+    public Song getSongByIdSync(long songId) {
+        return songDao.getSongByIdSync(songId);
+    }
+
+    /**
+     * Canciones completas en el orden de {@code songIds}; las que ya no existen se omiten.
+     * No llamar desde el hilo principal.
+     */
+    public List<Song> getSongsByIdsSync(List<Long> songIds) {
+        Map<Long, Song> byId = new HashMap<>();
+        for (int i = 0; i < songIds.size(); i += SongDao.MAX_BIND_PARAMETERS) {
+            List<Long> chunk = songIds.subList(i, Math.min(i + SongDao.MAX_BIND_PARAMETERS, songIds.size()));
+            for (Song song : songDao.getSongsByIds(chunk)) {
+                byId.put(song.getId(), song);
+            }
+        }
+        List<Song> songs = new ArrayList<>(songIds.size());
+        for (Long id : songIds) {
+            Song song = byId.get(id);
+            if (song != null) songs.add(song);
+        }
+        return songs;
+    }
+
+    /** No llamar desde el hilo principal */
+    public List<Song> getFavoriteSongsSync() {
+        return songDao.getFavoriteSongsSync();
+    }
+
+    /** No llamar desde el hilo principal */
+    public List<Song> getMostPlayedSongsSync(int limit) {
+        return songDao.getMostPlayedSongsSync(limit);
+    }
+
+    /** No llamar desde el hilo principal */
+    public List<Song> getRecentlyPlayedSongsSync(int limit) {
+        return songDao.getRecentlyPlayedSongsSync(limit);
+    }
+
+    /** No llamar desde el hilo principal */
+    public long getTotalDurationSync() {
+        Long total = songDao.getTotalDurationSync();
+        return total != null ? total : 0;
+    }
+
+    public CompletableFuture<List<Song>> fetchAllSongs() {
+        return fetch(songDao::getAllSongsSync);
+    }
+
+    public CompletableFuture<Integer> fetchSongsCount() {
+        return fetch(songDao::getSongsCount);
+    }
+
+    /**
+     * Se completa con null si la canción ya no existe
+     */
+    public CompletableFuture<Song> fetchSongById(long songId) {
+        return fetch(() -> songDao.getSongByIdSync(songId));
+    }
+
+    public CompletableFuture<List<Song>> fetchSongs(List<Long> songIds) {
+        List<Long> ids = new ArrayList<>(songIds);
+        return fetch(() -> getSongsByIdsSync(ids));
+    }
+
+    public CompletableFuture<List<Song>> fetchFavoriteSongs() {
+        return fetch(songDao::getFavoriteSongsSync);
+    }
+
+    public CompletableFuture<List<Song>> fetchMostPlayedSongs(int limit) {
+        return fetch(() -> songDao.getMostPlayedSongsSync(limit));
+    }
+
+    public CompletableFuture<List<Song>> fetchRecentlyPlayedSongs(int limit) {
+        return fetch(() -> songDao.getRecentlyPlayedSongsSync(limit));
+    }
+
+    private static <T> CompletableFuture<T> fetch(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(query, UI_READS);
+    }
+
+    // ========== BIBLIOTECA EN MEMORIA ==========
+    /**
+     * Foto de la biblioteca en memoria; se mantiene al día con cada escritura
+     */
+    public LiveData<LibrarySnapshot> getLibrarySnapshot() {
+        return librarySnapshot;
+    }
+
+    public LiveData<List<SongListItem>> getListItemsByArtistId(long artistId) {
+        return queries.get("getListItemsByArtistId", () -> snapshotListItems(snapshot -> snapshot.rowsByArtistId(artistId)), artistId);
+    }
+
+    public LiveData<List<SongListItem>> getListItemsByAlbumId(long albumId) {
+        return queries.get("getListItemsByAlbumId", () -> snapshotListItems(snapshot -> snapshot.rowsByAlbumId(albumId)), albumId);
+    }
+
+    public LiveData<List<SongListItem>> getListItemsByGenreId(long genreId) {
+        return queries.get("getListItemsByGenreId", () -> snapshotListItems(snapshot -> snapshot.rowsByGenreId(genreId)), genreId);
+    }
+
+    public LiveData<List<SongListItem>> getMostPlayedListItems(int limit) {
+        return queries.get("getMostPlayedListItems", () -> snapshotListItems(snapshot -> snapshot.mostPlayedRows(limit)), limit);
+    }
+
+    public LiveData<List<SongListItem>> getRecentlyPlayedListItems(int limit) {
+        return queries.get("getRecentlyPlayedListItems", () -> snapshotListItems(snapshot -> snapshot.recentlyPlayedRows(limit)), limit);
+    }
+
+    public interface SnapshotFilter {
+        int[] rows(LibrarySnapshot snapshot);
+    }
+
+    /**
+     * Filtro sobre la foto en memoria (no toca SQLite), calculado fuera del hilo
+     * principal. Solo emite cuando cambian las filas visibles del resultado. Cada
+     * llamada crea un LiveData nuevo (el filtro no sirve de clave); los de arriba se
+     * comparten.
+     */
+    public LiveData<List<SongListItem>> snapshotListItems(SnapshotFilter filter) {
+        return new SnapshotListLiveData(librarySnapshot, filter);
     }
 
     // ========== ACCIONES ==========
     public void toggleFavorite(long songId, boolean isFavorite) {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
+        AppDatabase.databaseWriteExecutor.execute(DatabaseExecutor.PRIORITY_UI, () -> {
             songDao.updateFavoriteStatus(songId, isFavorite);
+            changeFeed.publish(SongChange.row(SongChange.FAVORITE, songId));
         });
     }
 
+    /**
+     * La reproducción se acumula en memoria y se vuelca por lotes (ver PlayEventBuffer)
+     */
     public void incrementPlayCount(long songId) {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
-            songDao.incrementPlayCount(songId, System.currentTimeMillis());
-        });
+        playEventBuffer.record(songId);
+    }
+
+    public void flushPlayEvents() {
+        playEventBuffer.flush();
     }
 
     // ========== ESTADÍSTICAS ==========
     public LiveData<Integer> getTotalSongsCount() {
-        return songDao.getTotalSongsCount();
+        return queries.get("getTotalSongsCount", () -> new SongQueryLiveData<>(songDao::getSongsCount, 0, null));
     }
 
     public LiveData<Long> getTotalDuration() {
-        return songDao.getTotalDuration();
+        return queries.get("getTotalDuration",
+                () -> new SongQueryLiveData<>(songDao::getTotalDurationSync, SongChange.TAGS, null));
     }
 
     public LiveData<List<String>> getAllArtists() {
-        return songDao.getAllArtists();
+        return queries.get("getAllArtists", songDao::getAllArtists);
     }
 
     public LiveData<List<String>> getAllAlbums() {
-        return songDao.getAllAlbums();
+        return queries.get("getAllAlbums", songDao::getAllAlbums);
+    }
+
+    public LiveData<List<String>> getAllGenres() {
+        return queries.get("getAllGenres", songDao::getAllGenres);
+    }
+
+    public LiveData<List<Artist>> getArtists() {
+        return queries.get("getArtists", songDao::getArtists);
+    }
+
+    public LiveData<List<Album>> getAlbums() {
+        return queries.get("getAlbums", songDao::getAlbums);
+    }
+
+    public LiveData<List<Genre>> getGenres() {
+        return queries.get("getGenres", songDao::getGenres);
+    }
+
+    public LiveData<Integer> getTotalArtistsCount() {
+        return queries.get("getTotalArtistsCount", songDao::getTotalArtistsCount);
+    }
+
+    public LiveData<Integer> getTotalAlbumsCount() {
+        return queries.get("getTotalAlbumsCount", songDao::getTotalAlbumsCount);
+    }
+
+    // ========== ESCANEO ==========
+    /**
+     * Escaneo incremental: lee solo los cambios de MediaStore desde la última marca,
+     * los aplica por lotes y guarda la nueva marca al terminar.
+     * Si ya hay un escaneo en cola o en marcha no se lanza otro: {@code listener}
+     * recibe el resultado de ese.
+     */
+    public void rescanLibrary(MediaScanner scanner, OnScanCompleteListener listener) {
+        // El cursor y la extracción de géneros corren en el carril de escaneo: el escritor
+        // solo se ocupa de cada lote, así una escritura de la UI se cuela entre lotes
+        TaskScheduler.Job<ScanOutcome> scanJob = TaskScheduler.getInstance().submit(
+                TaskScheduler.LANE_SCAN, KEY_RESCAN, job -> {
+                    ReconcileResult result = new ReconcileResult();
+                    ScanDiff diff = scan(scanner, job, result);
+                    return new ScanOutcome(diff, result);
+                });
+        // También avisa si la tarea se cancela en la cola, antes de llegar a correr
+        scanJob.whenDone(job -> {
+            try {
+                ScanOutcome outcome = job.get();
+                listener.onComplete(outcome.diff, outcome.result);
+            } catch (CancellationException e) {
+                listener.onError(e);
+            } catch (ExecutionException e) {
+                // El carril ya lo registró
+                Throwable cause = e.getCause();
+                listener.onError(cause instanceof Exception ? (Exception) cause : e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                listener.onError(e);
+            }
+        });
+    }
+
+    private static final class ScanOutcome {
+        final ScanDiff diff;
+        final ReconcileResult result;
+
+        ScanOutcome(ScanDiff diff, ReconcileResult result) {
+            this.diff = diff;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Detiene el escaneo: si aún espera en la cola no llega a correr; si ya corre, para
+     * después del lote que esté escribiendo. La marca no avanza, así que el próximo
+     * escaneo retoma lo que faltó; quienes lo esperaban reciben una CancellationException.
+     */
+    public void cancelScan() {
+        TaskScheduler.getInstance().cancel(TaskScheduler.LANE_SCAN, KEY_RESCAN);
+    }
+
+    private ScanDiff scan(MediaScanner scanner, TaskScheduler.Job<?> job, ReconcileResult result) {
+        // Agregadas o modificadas se decide por lote con el índice de rutas; la lista
+        // completa solo se lee si hay que buscar eliminaciones
+        MediaScanner.KnownPaths knownPaths = new MediaScanner.KnownPaths() {
+            @Override
+            public boolean isEmpty() {
+                return songDao.getSongsCount() == 0;
+            }
+
+            @Override
+            public Set<String> findExisting(Collection<String> paths) {
+                return findExistingPaths(paths);
+            }
+
+            @Override
+            public Collection<String> getAll() {
+                return songDao.getAllPaths();
+            }
+        };
+
+        // Cada lote se escribe en su propia transacción mientras el cursor sigue
+        // abierto, así la lista se va llenando durante el escaneo
+        ScanDiff diff = scanner.scanChanges(knownPaths, SCAN_BATCH_SIZE, (added, updated, stats) -> {
+            // Cortar el cursor aquí deja la marca sin avanzar
+            job.throwIfCancelled();
+            long begin = stats.begin();
+            List<Song> batch = new ArrayList<>(added.size() + updated.size());
+            batch.addAll(added);
+            batch.addAll(updated);
+            result.add(reconcileInWriter(batch, Collections.emptyList()));
+            stats.end(STAGE_DATABASE, begin, batch.size());
+        });
+        // Sin eliminaciones ni marca: no se sabe qué quedó sin leer
+        job.throwIfCancelled();
+
+        if (!diff.getRemovedPaths().isEmpty()) {
+            long begin = diff.getStats().begin();
+            result.add(reconcileInWriter(Collections.emptyList(), diff.getRemovedPaths()));
+            diff.getStats().end(STAGE_DATABASE, begin, diff.getRemovedPaths().size());
+        }
+        Log.i(TAG, result.toString());
+        diff.getStats().log();
+        Log.i(TAG, TaskScheduler.getInstance().getStats(TaskScheduler.LANE_SCAN).toString());
+        if (diff.getWatermark() != null) {
+            diff.getWatermark().save(application);
+        }
+        return diff;
+    }
+
+    /**
+     * Aplica un lote en el hilo escritor con prioridad baja y espera el resultado
+     */
+    private ReconcileResult reconcileInWriter(List<Song> scanned, List<String> removedPaths) {
+        Future<ReconcileResult> future = AppDatabase.databaseWriteExecutor.submit(
+                DatabaseExecutor.PRIORITY_BACKGROUND, () -> {
+                    addToPathIndex(scanned);
+                    return songDao.reconcile(scanned, removedPaths);
+                });
+        try {
+            return publishReconcile(future.get());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Escaneo interrumpido", e);
+        }
+    }
+
+    private ReconcileResult publishReconcile(ReconcileResult result) {
+        if (result.getInserted() + result.getUpdated() + result.getDeleted() > 0) {
+            changeFeed.publish(SongChange.membership(result.getChangedSongIds()));
+        }
+        return result;
+    }
+
+    /**
+     * Reconciliación completa con una lista ya escaneada: las canciones guardadas
+     * que no aparecen en {@code scanned} se eliminan.
+     */
+    public void reconcileLibrary(List<Song> scanned, OnReconcileListener listener) {
+        AppDatabase.databaseWriteExecutor.execute(DatabaseExecutor.PRIORITY_BACKGROUND, () -> {
+            addToPathIndex(scanned);
+            Set<String> scannedPaths = new HashSet<>();
+            for (Song song : scanned) {
+                scannedPaths.add(song.getPath());
+            }
+            List<String> removedPaths = new ArrayList<>();
+            for (String path : songDao.getAllPaths()) {
+                if (!scannedPaths.contains(path)) {
+                    removedPaths.add(path);
+                }
+            }
+            ReconcileResult result = publishReconcile(songDao.reconcile(scanned, removedPaths));
+            if (listener != null) {
+                listener.onResult(result);
+            }
+        });
+    }
+
+    public interface OnReconcileListener {
+        void onResult(ReconcileResult result);
+    }
+
+    public interface OnScanCompleteListener {
+        void onComplete(ScanDiff diff, ReconcileResult result);
+        void onError(Exception e);
+    }
+
+    // ========== COPIA DE SEGURIDAD ==========
+    /**
+     * Exporta reproducciones, favoritos y listas a {@code uri} (por ejemplo, uno elegido
+     * con ACTION_CREATE_DOCUMENT)
+     */
+    public void exportLibrary(Uri uri, OnBackupListener listener) {
+        TaskScheduler.getInstance().submit(TaskScheduler.LANE_SCAN, null, job -> {
+            try (OutputStream out = application.getContentResolver().openOutputStream(uri)) {
+                if (out == null) throw new IOException("No se pudo abrir " + uri);
+                // Las reproducciones del buffer todavía no están en songs
+                playEventBuffer.flushAndSync().get();
+                LibraryBackup.Result result = new LibraryBackup(application).export(out);
+                if (listener != null) listener.onComplete(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Error al exportar la biblioteca", e);
+                if (listener != null) listener.onError(e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Restaura una copia exportada con {@link #exportLibrary}. Se combina con lo que ya
+     * hay: los contadores nunca bajan y los favoritos no se quitan.
+     */
+    public void importLibrary(Uri uri, OnBackupListener listener) {
+        TaskScheduler.getInstance().submit(TaskScheduler.LANE_SCAN, null, job -> {
+            try (InputStream in = application.getContentResolver().openInputStream(uri)) {
+                if (in == null) throw new IOException("No se pudo abrir " + uri);
+                LibraryBackup.Result result = new LibraryBackup(application).restore(in);
+                if (listener != null) listener.onComplete(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Error al importar la biblioteca", e);
+                if (listener != null) listener.onError(e);
+            }
+            return null;
+        });
+    }
+
+    public interface OnBackupListener {
+        void onComplete(LibraryBackup.Result result);
+        void onError(Exception e);
     }
 
     // ========== VERIFICACIÓN ==========
     public void checkIfSongExists(String path, OnSongExistsListener listener) {
-        AppDatabase.databaseWriteExecutor.execute(() -> {
-            boolean exists = songDao.songExists(path);
+        AppDatabase.databaseReadExecutor.execute(() -> {
+            boolean exists = !findExistingPaths(Collections.singletonList(path)).isEmpty();
             listener.onResult(exists);
         });
     }
@@ -131,4 +686,52 @@ public class SongRepository {
     public interface OnSongExistsListener {
         void onResult(boolean exists);
     }
+
+    /**
+     * Versión por lotes de {@link #checkIfSongExists}: devuelve las rutas que ya están guardadas
+     */
+    public void checkPathsExist(Collection<String> paths, OnPathsCheckedListener listener) {
+        AppDatabase.databaseReadExecutor.execute(() -> listener.onResult(findExistingPaths(paths)));
+    }
+
+    public interface OnPathsCheckedListener {
+        void onResult(Set<String> existingPaths);
+    }
+
+    /**
+     * Rutas de {@code paths} que ya están guardadas. Las que el índice en memoria
+     * descarta no llegan a SQLite; el resto se consulta en bloques con IN (...).
+     * No llamar desde el hilo principal.
+     */
+    public Set<String> findExistingPaths(Collection<String> paths) {
+        ensurePathIndex();
+        List<String> candidates = new ArrayList<>();
+        for (String path : paths) {
+            if (pathIndex.mightContain(path)) {
+                candidates.add(path);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return new HashSet<>();
+        }
+        return songDao.findExistingPaths(candidates);
+    }
+
+    /**
+     * Carga el índice de rutas una sola vez por proceso
+     */
+    private void ensurePathIndex() {
+        if (!pathIndex.isLoaded()) {
+            pathIndex.load(songDao.getAllPaths());
+        }
+    }
+
+    // Las rutas se registran en el hilo escritor, justo antes de escribir: el índice
+    // nunca da falsos negativos y sigue el orden real de las escrituras (un deleteAll
+    // encolado antes no borra una ruta que se escribe después). Solo desde ese hilo.
+    private void addToPathIndex(List<Song> songs) {
+        for (Song song : songs) {
+            pathIndex.add(song.getPath());
+        }
+    }
 }
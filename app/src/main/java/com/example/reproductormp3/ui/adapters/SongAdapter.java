@@ -1,7 +1,8 @@
 package com.example.reproductormp3.ui.adapters;
 
 import android.content.Context;
-import android.net.Uri;
+import android.graphics.drawable.Drawable;
+import android.util.LongSparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,30 +10,90 @@ import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.example.reproductormp3.R;
-import com.example.reproductormp3.models.Song;
+import com.example.reproductormp3.models.SongListItem;
+import com.example.reproductormp3.repository.SongPager;
+import com.example.reproductormp3.ui.artwork.AlbumArt;
+import com.example.reproductormp3.ui.artwork.ArtworkPreloader;
+import com.example.reproductormp3.utils.DurationFormat;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
-public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder> {
+/**
+ * Lista de canciones en dos modos: una lista concreta ({@link #setSongs}), cuyo diff
+ * con la anterior calcula un AsyncListDiffer fuera del hilo principal, o la
+ * biblioteca completa paginada ({@link #setPager}). Los ids son estables: un cambio
+ * solo vuelve a dibujar las filas que lo muestran.
+ */
+public class SongAdapter extends ListAdapter<SongListItem, SongAdapter.SongViewHolder> {
 
-    private List<Song> songs = new ArrayList<>();
+    // Misma canción por id; mismo contenido si no cambia nada de lo que se dibuja
+    // (las reproducciones o el favorito no salen en la fila)
+    static final DiffUtil.ItemCallback<SongListItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<SongListItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull SongListItem oldItem, @NonNull SongListItem newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull SongListItem oldItem, @NonNull SongListItem newItem) {
+            return oldItem.getDuration() == newItem.getDuration()
+                    && Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getArtist(), newItem.getArtist())
+                    && oldItem.getAlbumId() == newItem.getAlbumId()
+                    && Objects.equals(oldItem.getAlbumArtUri(), newItem.getAlbumArtUri());
+        }
+    };
+
+    private SongPager pager;
     private Context context;
     private OnSongClickListener listener;
+    private RequestBuilder<Drawable> artRequest;
+    // Lado de la miniatura en píxeles: las filas y el preloader piden exactamente esto
+    private final int thumbnailSize;
+
+    // Un modelo de carátula por álbum (con su URI ya parseada); las canciones sin
+    // álbum se indexan por URI
+    private final LongSparseArray<AlbumArt> albumArt = new LongSparseArray<>();
+    private final Map<String, AlbumArt> looseArt = new HashMap<>();
+
+    // Notificaciones del pager hacia el RecyclerView
+    private final SongPager.Callback pagerCallback = new SongPager.Callback() {
+        @Override
+        public void onCountChanged(int count) {
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            notifyItemRangeChanged(positionStart, itemCount);
+        }
+    };
 
     public interface OnSongClickListener {
-        void onSongClick(Song song, int position);
-        void onMenuClick(Song song, int position);
+        void onSongClick(SongListItem song, int position);
+        void onMenuClick(SongListItem song, int position);
     }
 
     public SongAdapter(Context context, OnSongClickListener listener) {
+        super(DIFF_CALLBACK);
         this.context = context;
         this.listener = listener;
+        this.thumbnailSize = context.getResources().getDimensionPixelSize(R.dimen.song_thumbnail_size);
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -40,66 +101,184 @@ public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder
     public SongViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_song, parent, false);
-        return new SongViewHolder(view);
+        SongViewHolder holder = new SongViewHolder(view);
+
+        // Un par de listeners por fila, no por bind: la posición se resuelve al hacer click
+        holder.itemView.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            SongListItem song = songAt(position);
+            if (song != null && listener != null) {
+                listener.onSongClick(song, position);
+            }
+        });
+        holder.btnMenu.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            SongListItem song = songAt(position);
+            if (song != null && listener != null) {
+                listener.onMenuClick(song, position);
+            }
+        });
+        return holder;
     }
 
+    /**
+     * Se llama por cada fila que entra en pantalla: no reserva memoria propia (el
+     * texto de la duración va a un buffer de la fila y las URIs se reutilizan)
+     */
     @Override
     public void onBindViewHolder(@NonNull SongViewHolder holder, int position) {
-        Song song = songs.get(position);
+        SongListItem song = getSongAt(position);
 
-        // Título
-        holder.tvSongTitle.setText(song.getDisplayTitle());
+        // Página aún no cargada: fila vacía hasta que llegue
+        if (song == null) {
+            bindPlaceholder(holder);
+            return;
+        }
 
-        // Artista
+        holder.tvSongTitle.setText(song.getDisplayTitle());
         holder.tvArtist.setText(song.getArtist());
+        int length = DurationFormat.format(song.getDuration(), holder.durationText);
+        holder.tvDuration.setText(holder.durationText, 0, length);
 
-        // Duración
-        holder.tvDuration.setText(song.getFormattedDuration());
+        // Carátula del álbum: si la fila ya muestra la misma (otra canción del mismo álbum
+        // o un rebind de la misma fila), no se vuelve a pedir
+        AlbumArt art = albumArtOf(song);
+        if (art == null) {
+            if (holder.boundArt != null) {
+                Glide.with(context).clear(holder.imgAlbumArt);
+                holder.boundArt = null;
+            }
+            holder.imgAlbumArt.setImageResource(R.drawable.ic_music_placeholder);
+        } else if (art != holder.boundArt) {
+            holder.boundArt = art;
+            artRequest().load(art).into(holder.imgAlbumArt);
+        }
+    }
+
+    private void bindPlaceholder(SongViewHolder holder) {
+        holder.tvSongTitle.setText("");
+        holder.tvArtist.setText("");
+        holder.tvDuration.setText("");
+        Glide.with(context).clear(holder.imgAlbumArt);
+        holder.boundArt = null;
+        holder.imgAlbumArt.setImageResource(R.drawable.ic_music_placeholder);
+    }
 
-        // Carátula del álbum
-        if (song.getAlbumArtUri() != null && !song.getAlbumArtUri().isEmpty()) {
-            Glide.with(context)
-                    .load(Uri.parse(song.getAlbumArtUri()))
+    // Una sola petición base: cada carátula solo le cambia el modelo. El tamaño fijo
+    // hace que la petición de la fila y la del preloader compartan la entrada en caché
+    private RequestBuilder<Drawable> artRequest() {
+        if (artRequest == null) {
+            artRequest = Glide.with(context)
+                    .asDrawable()
                     .diskCacheStrategy(DiskCacheStrategy.ALL)
                     .placeholder(R.drawable.ic_music_placeholder)
                     .error(R.drawable.ic_music_placeholder)
-                    .centerCrop()
-                    .into(holder.imgAlbumArt);
-        } else {
-            holder.imgAlbumArt.setImageResource(R.drawable.ic_music_placeholder);
+                    .override(thumbnailSize)
+                    .centerCrop();
         }
+        return artRequest;
+    }
 
-        // Click en la canción
-        holder.itemView.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onSongClick(song, position);
+    // Las canciones de un álbum comparten un mismo AlbumArt: se crea una vez
+    private AlbumArt albumArtOf(SongListItem song) {
+        String artUri = song.getAlbumArtUri();
+        if (artUri == null || artUri.isEmpty()) return null;
+
+        long albumId = song.getAlbumId();
+        AlbumArt art = albumId != 0 ? albumArt.get(albumId) : looseArt.get(artUri);
+        // La URI de un álbum puede cambiar tras un reescaneo
+        if (art == null || !art.getUriString().equals(artUri)) {
+            art = new AlbumArt(albumId, artUri);
+            if (albumId != 0) {
+                albumArt.put(albumId, art);
+            } else {
+                looseArt.put(artUri, art);
             }
-        });
+        }
+        return art;
+    }
 
-        // Click en el menú
-        holder.btnMenu.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onMenuClick(song, position);
+    /**
+     * Listener de scroll que precarga las carátulas de las próximas
+     * {@code maxPreload} filas, al tamaño de la miniatura
+     */
+    public RecyclerView.OnScrollListener createArtworkPreloader(int maxPreload) {
+        ListPreloader.PreloadModelProvider<AlbumArt> models = new ListPreloader.PreloadModelProvider<AlbumArt>() {
+            @NonNull
+            @Override
+            public List<AlbumArt> getPreloadItems(int position) {
+                // En modo paginado, pedir la fila también adelanta la carga de su página
+                SongListItem song = songAt(position);
+                AlbumArt art = song != null ? albumArtOf(song) : null;
+                return art != null ? Collections.singletonList(art) : Collections.emptyList();
             }
-        });
+
+            @Override
+            public RequestBuilder<?> getPreloadRequestBuilder(@NonNull AlbumArt art) {
+                return artRequest().load(art);
+            }
+        };
+        return new ArtworkPreloader(Glide.with(context), models, thumbnailSize, maxPreload);
+    }
+
+    private SongListItem songAt(int position) {
+        return position != RecyclerView.NO_POSITION && position < getItemCount() ? getSongAt(position) : null;
     }
 
     @Override
     public int getItemCount() {
-        return songs.size();
+        return pager != null ? pager.getCount() : super.getItemCount();
     }
 
-    public void setSongs(List<Song> songs) {
-        this.songs = songs;
+    @Override
+    public long getItemId(int position) {
+        SongListItem song = getSongAt(position);
+        return song != null ? song.getId() : RecyclerView.NO_ID;
+    }
+
+    /**
+     * Lista concreta: el diff con la anterior se calcula en segundo plano y solo se
+     * notifican las filas que cambiaron. Al salir del modo paginado se redibuja todo.
+     */
+    public void setSongs(List<SongListItem> songs) {
+        if (pager != null) {
+            detachPager();
+            // Mientras mandaba el pager la lista del differ quedó vacía
+            notifyDataSetChanged();
+        }
+        submitList(songs);
+    }
+
+    /**
+     * Modo paginado: solo se cargan las filas visibles y las cercanas
+     */
+    public void setPager(SongPager pager) {
+        if (this.pager == pager) return;
+        // Vacía la lista del differ (y descarta un diff en curso) antes de cambiar de modo
+        submitList(null);
+        detachPager();
+        this.pager = pager;
+        pager.setCallback(pagerCallback);
         notifyDataSetChanged();
     }
 
-    public List<Song> getSongs() {
-        return new ArrayList<>(songs);
+    public boolean isPaged() {
+        return pager != null;
+    }
+
+    private void detachPager() {
+        if (pager != null) {
+            pager.setCallback(null);
+            pager = null;
+        }
+    }
+
+    public List<SongListItem> getSongs() {
+        return new ArrayList<>(getCurrentList());
     }
 
-    public Song getSongAt(int position) {
-        return songs.get(position);
+    public SongListItem getSongAt(int position) {
+        return pager != null ? pager.getItem(position) : getItem(position);
     }
 
     static class SongViewHolder extends RecyclerView.ViewHolder {
@@ -108,6 +287,10 @@ public class SongAdapter extends RecyclerView.Adapter<SongAdapter.SongViewHolder
         TextView tvArtist;
         TextView tvDuration;
         ImageButton btnMenu;
+        // El TextView se queda con el buffer: se reescribe en cada bind
+        final char[] durationText = new char[DurationFormat.MAX_LENGTH];
+        // Carátula que ya tiene pedida la fila
+        AlbumArt boundArt;
 
         public SongViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -0,0 +1,65 @@
+package com.example.reproductormp3.ui.artwork;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.Key;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Carátula de un álbum como modelo de Glide. La clave de caché es la URI de albumart,
+ * que lleva el ALBUM_ID de MediaStore: una entrada por álbum en memoria y en disco,
+ * estable aunque se borre la base de datos. El id de {@code albums} es local a la base
+ * (vuelve a empezar tras una migración destructiva, y la caché de disco de Glide
+ * sobrevive), así que solo sirve para reutilizar el objeto en la lista.
+ */
+public final class AlbumArt implements Key {
+
+    private final long albumId;
+    private final String uriString;
+    private final Uri uri;
+
+    public AlbumArt(long albumId, String uriString) {
+        this.albumId = albumId;
+        this.uriString = uriString;
+        this.uri = Uri.parse(uriString);
+    }
+
+    public long getAlbumId() {
+        return albumId;
+    }
+
+    public String getUriString() {
+        return uriString;
+    }
+
+    public Uri getUri() {
+        return uri;
+    }
+
+    @Override
+    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+        messageDigest.update(uriString.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AlbumArt)) return false;
+        return uriString.equals(((AlbumArt) o).uriString);
+    }
+
+    @Override
+    public int hashCode() {
+        return uriString.hashCode();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "AlbumArt{" + uriString + "}";
+    }
+}
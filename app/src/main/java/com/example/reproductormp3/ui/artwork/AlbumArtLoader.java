@@ -0,0 +1,49 @@
+package com.example.reproductormp3.ui.artwork;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+
+import java.io.InputStream;
+
+/**
+ * Lee una {@link AlbumArt} con el loader de URIs de Glide, con el propio AlbumArt
+ * como clave de caché
+ */
+final class AlbumArtLoader implements ModelLoader<AlbumArt, InputStream> {
+
+    private final ModelLoader<Uri, InputStream> uriLoader;
+
+    private AlbumArtLoader(ModelLoader<Uri, InputStream> uriLoader) {
+        this.uriLoader = uriLoader;
+    }
+
+    @Override
+    public LoadData<InputStream> buildLoadData(@NonNull AlbumArt model, int width, int height,
+                                               @NonNull Options options) {
+        LoadData<InputStream> data = uriLoader.buildLoadData(model.getUri(), width, height, options);
+        return data != null ? new LoadData<>(model, data.fetcher) : null;
+    }
+
+    @Override
+    public boolean handles(@NonNull AlbumArt model) {
+        return uriLoader.handles(model.getUri());
+    }
+
+    static final class Factory implements ModelLoaderFactory<AlbumArt, InputStream> {
+        @NonNull
+        @Override
+        public ModelLoader<AlbumArt, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new AlbumArtLoader(multiFactory.build(Uri.class, InputStream.class));
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+}
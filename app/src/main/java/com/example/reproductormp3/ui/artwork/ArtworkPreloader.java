@@ -0,0 +1,44 @@
+package com.example.reproductormp3.ui.artwork;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+
+/**
+ * Pide a Glide las carátulas de las filas que están por entrar en pantalla (en la
+ * dirección del scroll), al mismo tamaño en píxeles que la miniatura de la fila:
+ * cuando la fila llega, la carátula ya está en la caché de memoria.
+ * Es el RecyclerViewPreloader de Glide sin la dependencia extra.
+ */
+public class ArtworkPreloader extends RecyclerView.OnScrollListener {
+
+    private final ListPreloader<AlbumArt> preloader;
+
+    /**
+     * @param sizePx     lado de la miniatura; las peticiones de la fila deben usar el mismo
+     * @param maxPreload cuántas filas por delante de la última visible
+     */
+    public ArtworkPreloader(RequestManager requestManager, ListPreloader.PreloadModelProvider<AlbumArt> models,
+                            int sizePx, int maxPreload) {
+        preloader = new ListPreloader<>(requestManager, models,
+                new FixedPreloadSizeProvider<>(sizePx, sizePx), maxPreload);
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        RecyclerView.Adapter<?> adapter = recyclerView.getAdapter();
+        if (!(layoutManager instanceof LinearLayoutManager) || adapter == null) return;
+
+        LinearLayoutManager linear = (LinearLayoutManager) layoutManager;
+        int first = linear.findFirstVisibleItemPosition();
+        int last = linear.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) return;
+        // ListPreloader no usa la vista, solo las posiciones
+        preloader.onScroll(null, first, last - first + 1, adapter.getItemCount());
+    }
+}
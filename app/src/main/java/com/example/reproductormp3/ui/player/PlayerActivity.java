@@ -73,7 +73,7 @@ public class PlayerActivity extends AppCompatActivity {
 
     private void displaySongInfo() {
         songTitle.setText(currentSong.getTitle());
-        artistName.setText(currentSong.getArtist());
+        artistName.setText(currentSong.getDisplayArtist());
         totalTime.setText(currentSong.getFormattedDuration());
 
         // Carátula
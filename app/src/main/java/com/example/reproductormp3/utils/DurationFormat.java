@@ -0,0 +1,48 @@
+package com.example.reproductormp3.utils;
+
+/**
+ * Duraciones como "m:ss" (los minutos no se parten en horas, igual que antes con
+ * {@code String.format("%d:%02d", ...)}). {@link #format(long, char[])} escribe en
+ * un buffer propio y no reserva memoria: es lo que usa la lista al dibujar cada fila.
+ */
+public final class DurationFormat {
+
+    /** Tamaño de buffer suficiente para cualquier duración */
+    public static final int MAX_LENGTH = 23;
+
+    private DurationFormat() {
+    }
+
+    /**
+     * Escribe {@code millis} en {@code out} desde el principio
+     *
+     * @return cuántos caracteres se escribieron
+     */
+    public static int format(long millis, char[] out) {
+        long totalSeconds = Math.max(0, millis) / 1000;
+        long minutes = totalSeconds / 60;
+        int seconds = (int) (totalSeconds % 60);
+
+        int length = 0;
+        // Dígitos de los minutos al revés y luego se invierten en su sitio
+        do {
+            out[length++] = (char) ('0' + (int) (minutes % 10));
+            minutes /= 10;
+        } while (minutes > 0);
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            char tmp = out[i];
+            out[i] = out[j];
+            out[j] = tmp;
+        }
+
+        out[length++] = ':';
+        out[length++] = (char) ('0' + seconds / 10);
+        out[length++] = (char) ('0' + seconds % 10);
+        return length;
+    }
+
+    public static String format(long millis) {
+        char[] out = new char[MAX_LENGTH];
+        return new String(out, 0, format(millis, out));
+    }
+}
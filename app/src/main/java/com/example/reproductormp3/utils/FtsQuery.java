@@ -0,0 +1,40 @@
+package com.example.reproductormp3.utils;
+
+import java.util.Locale;
+
+/**
+ * Convierte lo que escribe el usuario en una expresión MATCH de FTS4.
+ */
+public final class FtsQuery {
+
+    private FtsQuery() {
+    }
+
+    /**
+     * Cada palabra se convierte en una búsqueda por prefijo ("cancio" -> "cancio*")
+     * y todas deben aparecer. Los signos de puntuación y operadores de FTS se
+     * descartan; las palabras van en minúsculas para que AND/OR/NOT no se
+     * interpreten como operadores.
+     *
+     * @return la expresión, o null si no queda ninguna palabra
+     */
+    public static String toMatchExpression(String input) {
+        if (input == null) return null;
+
+        StringBuilder expression = new StringBuilder();
+        StringBuilder token = new StringBuilder();
+        String lower = input.toLowerCase(Locale.ROOT);
+
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                if (expression.length() > 0) expression.append(' ');
+                expression.append(token).append('*');
+                token.setLength(0);
+            }
+        }
+        return expression.length() > 0 ? expression.toString() : null;
+    }
+}
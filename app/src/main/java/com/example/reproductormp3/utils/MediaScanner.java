@@ -8,21 +8,40 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.media.MediaMetadataRetriever;
 import android.net.Uri;
+import android.os.Build;
 import android.provider.MediaStore;
 import android.util.Log;
 
 import com.example.reproductormp3.models.Song;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class MediaScanner {
 
     private static final String TAG = "MediaScanner";
+
+    public static final String STAGE_CURSOR = "cursor";
+    public static final String STAGE_REMOVALS = "removals";
+
     private Context context;
+    private MetadataExtractor metadataExtractor;
+
+    // Filtro: solo música (no notificaciones, alarmas, etc.)
+    private static final String MUSIC_SELECTION = MediaStore.Audio.Media.IS_MUSIC + " != 0";
 
     public MediaScanner(Context context) {
         this.context = context;
+        this.metadataExtractor = new MetadataExtractor(context);
+    }
+
+    public MetadataExtractor getMetadataExtractor() {
+        return metadataExtractor;
     }
 
     /**
@@ -30,22 +49,8 @@ public class MediaScanner {
      */
     public List<Song> scanMusicFiles() {
         List<Song> songs = new ArrayList<>();
-
-        // Columnas que queremos obtener
-        String[] projection = {
-                MediaStore.Audio.Media._ID,
-                MediaStore.Audio.Media.TITLE,
-                MediaStore.Audio.Media.ARTIST,
-                MediaStore.Audio.Media.ALBUM,
-                MediaStore.Audio.Media.DATA,
-                MediaStore.Audio.Media.DURATION,
-                MediaStore.Audio.Media.ALBUM_ID,
-                MediaStore.Audio.Media.YEAR,
-                MediaStore.Audio.Media.DATE_ADDED
-        };
-
-        // Filtro: solo música (no notificaciones, alarmas, etc.)
-        String selection = MediaStore.Audio.Media.IS_MUSIC + " != 0";
+        ScanStats stats = new ScanStats();
+        long begin = stats.begin();
 
         // Ordenar por título
         String sortOrder = MediaStore.Audio.Media.TITLE + " ASC";
@@ -53,54 +58,23 @@ public class MediaScanner {
         ContentResolver contentResolver = context.getContentResolver();
         Uri uri = MediaStore.Audio.Media.EXTERNAL_CONTENT_URI;
 
-        try (Cursor cursor = contentResolver.query(uri, projection, selection, null, sortOrder)) {
+        try (Cursor cursor = contentResolver.query(uri, buildProjection(), MUSIC_SELECTION, null, sortOrder)) {
             if (cursor != null && cursor.moveToFirst()) {
-
-                int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID);
-                int titleColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.TITLE);
-                int artistColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ARTIST);
-                int albumColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM);
-                int dataColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATA);
-                int durationColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DURATION);
-                int albumIdColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM_ID);
-                int yearColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.YEAR);
-                int dateAddedColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATE_ADDED);
+                Columns columns = new Columns(cursor);
 
                 do {
-                    long id = cursor.getLong(idColumn);
-                    String title = cursor.getString(titleColumn);
-                    String artist = cursor.getString(artistColumn);
-                    String album = cursor.getString(albumColumn);
-                    String path = cursor.getString(dataColumn);
-                    long duration = cursor.getLong(durationColumn);
-                    long albumId = cursor.getLong(albumIdColumn);
-                    int year = cursor.getInt(yearColumn);
-                    long dateAdded = cursor.getLong(dateAddedColumn) * 1000; // Convertir a milisegundos
-
-                    // Obtener URI de la carátula del álbum
-                    String albumArtUri = getAlbumArtUri(albumId);
-
-                    // Crear objeto Song
-                    Song song = new Song(title, artist, album, path, duration, albumArtUri);
-                    song.setYear(year);
-                    song.setDateAdded(dateAdded);
-
-                    // Intentar obtener más metadatos (género)
-                    try {
-                        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
-                        retriever.setDataSource(path);
-                        String genre = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_GENRE);
-                        song.setGenre(genre);
-                        retriever.release();
-                    } catch (Exception e) {
-                        Log.w(TAG, "No se pudo obtener género de: " + path);
+                    Song song = readSong(cursor, columns);
+                    if (song != null) {
+                        songs.add(song);
                     }
-
-                    songs.add(song);
-
                 } while (cursor.moveToNext());
+                stats.end(STAGE_CURSOR, begin, songs.size());
+
+                // Géneros en una etapa aparte (consulta masiva + pool de retrievers)
+                metadataExtractor.extractGenres(songs, stats);
 
                 Log.i(TAG, "Se encontraron " + songs.size() + " canciones");
+                stats.log();
             } else {
                 Log.w(TAG, "No se encontró música en el dispositivo");
             }
@@ -111,6 +85,378 @@ public class MediaScanner {
         return songs;
     }
 
+    /**
+     * Escaneo incremental: solo lee las filas agregadas o modificadas desde la última
+     * marca de agua y detecta las eliminadas. Si no hay marca válida (o cambió la
+     * versión de MediaStore) hace un escaneo completo.
+     *
+     * @param knownPaths rutas que ya están en la base de datos
+     */
+    public ScanDiff scanChanges(KnownPaths knownPaths) {
+        return scanChanges(knownPaths, 0, null);
+    }
+
+    /**
+     * Igual que {@link #scanChanges(KnownPaths)} pero entrega las canciones agregadas y
+     * modificadas en lotes de {@code batchSize} mientras el cursor sigue abierto,
+     * así la memoria no crece con el tamaño de la biblioteca. Al terminar, el diff
+     * devuelto solo contiene las eliminadas (y los totales de lo ya entregado).
+     * Un error de MediaStore deja el diff sin marca; una excepción de
+     * {@code knownPaths} o de {@code batchListener} se propaga tal cual.
+     */
+    public ScanDiff scanChanges(KnownPaths knownPaths, int batchSize, OnBatchListener batchListener) {
+        long start = System.currentTimeMillis();
+        ScanWatermark previous = ScanWatermark.load(context);
+        String version = getMediaStoreVersion();
+
+        // Biblioteca vacía: todo lo leído es nuevo y no hace falta consultar rutas
+        boolean emptyLibrary = knownPaths.isEmpty();
+        boolean fullScan = !previous.isValid()
+                || emptyLibrary
+                || (version != null && !version.equals(previous.getMediaStoreVersion()));
+
+        ScanWatermark next = fullScan ? new ScanWatermark() : previous.copy();
+        next.setMediaStoreVersion(version);
+        ScanDiff diff = new ScanDiff(fullScan, next);
+        ScanStats stats = diff.getStats();
+        long begin = stats.begin();
+
+        List<String> selectionArgs = new ArrayList<>();
+        String selection = fullScan ? MUSIC_SELECTION : buildDeltaSelection(previous, selectionArgs);
+
+        // Las marcas por fecha nunca llegan al segundo actual: un archivo agregado en el
+        // mismo segundo del escaneo se volverá a reportar la próxima vez (es idempotente)
+        long dateCeiling = start / 1000 - 1;
+
+        Set<String> livePaths = fullScan ? new HashSet<>() : null;
+        // Géneros de MediaStore (API < 30): se leen con el primer lote y sirven para todos
+        Map<String, String> genresByPath = null;
+        int newRows = 0;
+        // Filas leídas que aún no se separaron en agregadas y modificadas: las nuevas en
+        // MediaStore y las que ya estaban (una de estas con una ruta desconocida es un
+        // archivo movido o renombrado)
+        List<Song> freshRows = new ArrayList<>();
+        List<Song> oldRows = new ArrayList<>();
+        boolean pathsMoved = false;
+        int rows = 0;
+        long flushMillis = 0;
+
+        ContentResolver contentResolver = context.getContentResolver();
+        Uri uri = MediaStore.Audio.Media.EXTERNAL_CONTENT_URI;
+
+        try (Cursor cursor = contentResolver.query(uri, buildProjection(), selection,
+                selectionArgs.toArray(new String[0]), null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                Columns columns = new Columns(cursor);
+
+                do {
+                    boolean newRow = isNewRow(cursor, columns, previous);
+                    if (newRow) {
+                        newRows++;
+                    }
+                    advanceWatermark(cursor, columns, next, dateCeiling);
+
+                    Song song = readSong(cursor, columns);
+                    if (song == null) continue;
+
+                    if (livePaths != null) {
+                        livePaths.add(song.getPath());
+                    }
+                    (newRow ? freshRows : oldRows).add(song);
+                    rows++;
+
+                    if (batchListener != null && freshRows.size() + oldRows.size() >= batchSize) {
+                        long flushBegin = stats.begin();
+                        pathsMoved |= classify(freshRows, oldRows, emptyLibrary ? null : knownPaths, diff);
+                        if (genresByPath == null) {
+                            genresByPath = metadataExtractor.loadGenresByPath(stats);
+                        }
+                        flushBatch(diff, genresByPath, batchListener);
+                        flushMillis += stats.begin() - flushBegin;
+                    }
+                } while (cursor.moveToNext());
+            }
+            // El tiempo de cada lote (géneros y escritura) se mide en su propia etapa
+            stats.end(STAGE_CURSOR, begin + flushMillis, rows);
+
+            pathsMoved |= classify(freshRows, oldRows, emptyLibrary ? null : knownPaths, diff);
+            if (!diff.getAdded().isEmpty() || !diff.getUpdated().isEmpty()) {
+                if (genresByPath == null) {
+                    genresByPath = metadataExtractor.loadGenresByPath(stats);
+                }
+                if (batchListener != null) {
+                    flushBatch(diff, genresByPath, batchListener);
+                } else {
+                    // Solo se abren los archivos agregados o modificados
+                    metadataExtractor.extractGenres(pending(diff), genresByPath, stats);
+                }
+            }
+        } catch (LibraryFailure e) {
+            // El error es de la biblioteca (consulta de rutas, escritura de un lote,
+            // cancelación), no de MediaStore: le toca a quien escanea
+            throw e.getFailure();
+        } catch (Exception e) {
+            // Sin la lectura completa no podemos avanzar la marca ni deducir eliminaciones
+            Log.e(TAG, "Error en escaneo incremental: " + e.getMessage());
+            diff.discardWatermark();
+            return diff;
+        }
+
+        // Eliminaciones: si el total actual coincide con el anterior más las filas nuevas,
+        // no se borró nada y evitamos recorrer MediaStore (y cargar las rutas guardadas).
+        // Un archivo movido conserva su _ID y su fecha de alta (el total cuadra), pero su
+        // ruta vieja sigue guardada
+        begin = stats.begin();
+        int liveCount = countMusicRows();
+        next.setRowCount(liveCount);
+
+        if (livePaths == null && (pathsMoved || liveCount != previous.getRowCount() + newRows)) {
+            livePaths = queryLivePaths();
+        }
+        if (livePaths != null && !emptyLibrary) {
+            for (String path : knownPaths.getAll()) {
+                if (!livePaths.contains(path)) {
+                    diff.getRemovedPaths().add(path);
+                }
+            }
+        }
+        stats.end(STAGE_REMOVALS, begin, diff.getRemovedPaths().size());
+
+        Log.i(TAG, diff + " en " + (System.currentTimeMillis() - start) + " ms");
+        return diff;
+    }
+
+    /**
+     * Separa las filas leídas en agregadas y modificadas con una consulta por lote
+     * ({@code knownPaths} null: biblioteca vacía, todas son agregadas) y las vacía.
+     *
+     * @return true si una fila que ya estaba en MediaStore trae una ruta desconocida
+     */
+    private static boolean classify(List<Song> freshRows, List<Song> oldRows, KnownPaths knownPaths,
+                                    ScanDiff diff) {
+        if (freshRows.isEmpty() && oldRows.isEmpty()) return false;
+
+        Set<String> existing = Collections.emptySet();
+        if (knownPaths != null) {
+            List<String> paths = new ArrayList<>(freshRows.size() + oldRows.size());
+            for (Song song : freshRows) paths.add(song.getPath());
+            for (Song song : oldRows) paths.add(song.getPath());
+            try {
+                existing = knownPaths.findExisting(paths);
+            } catch (RuntimeException e) {
+                throw new LibraryFailure(e);
+            }
+        }
+
+        boolean moved = false;
+        for (Song song : freshRows) {
+            (existing.contains(song.getPath()) ? diff.getUpdated() : diff.getAdded()).add(song);
+        }
+        for (Song song : oldRows) {
+            if (existing.contains(song.getPath())) {
+                diff.getUpdated().add(song);
+            } else {
+                diff.getAdded().add(song);
+                moved = true;
+            }
+        }
+        freshRows.clear();
+        oldRows.clear();
+        return moved;
+    }
+
+    /**
+     * Completa los géneros del lote pendiente y lo entrega al listener
+     */
+    private void flushBatch(ScanDiff diff, Map<String, String> genresByPath, OnBatchListener batchListener) {
+        if (diff.getAdded().isEmpty() && diff.getUpdated().isEmpty()) return;
+
+        // Agregadas y modificadas juntas: una sola pasada de retrievers por lote
+        metadataExtractor.extractGenres(pending(diff), genresByPath, diff.getStats());
+
+        List<Song> added = new ArrayList<>(diff.getAdded());
+        List<Song> updated = new ArrayList<>(diff.getUpdated());
+        diff.markStreamed();
+        try {
+            batchListener.onBatch(added, updated, diff.getStats());
+        } catch (RuntimeException e) {
+            throw new LibraryFailure(e);
+        }
+    }
+
+    /**
+     * Error de la base de datos (rutas conocidas) o del listener de lotes: atraviesa el
+     * catch de errores de lectura de MediaStore
+     */
+    private static final class LibraryFailure extends RuntimeException {
+        LibraryFailure(RuntimeException failure) {
+            super(failure);
+        }
+
+        RuntimeException getFailure() {
+            return (RuntimeException) getCause();
+        }
+    }
+
+    private static List<Song> pending(ScanDiff diff) {
+        List<Song> songs = new ArrayList<>(diff.getAdded().size() + diff.getUpdated().size());
+        songs.addAll(diff.getAdded());
+        songs.addAll(diff.getUpdated());
+        return songs;
+    }
+
+    /**
+     * Columnas que queremos obtener
+     */
+    private String[] buildProjection() {
+        List<String> projection = new ArrayList<>();
+        projection.add(MediaStore.Audio.Media._ID);
+        projection.add(MediaStore.Audio.Media.TITLE);
+        projection.add(MediaStore.Audio.Media.ARTIST);
+        projection.add(MediaStore.Audio.Media.ALBUM);
+        projection.add(MediaStore.Audio.Media.DATA);
+        projection.add(MediaStore.Audio.Media.DURATION);
+        projection.add(MediaStore.Audio.Media.ALBUM_ID);
+        projection.add(MediaStore.Audio.Media.YEAR);
+        projection.add(MediaStore.Audio.Media.DATE_ADDED);
+        projection.add(MediaStore.Audio.Media.DATE_MODIFIED);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            projection.add(MediaStore.Audio.Media.VOLUME_NAME);
+            projection.add(MediaStore.Audio.Media.GENERATION_ADDED);
+            projection.add(MediaStore.Audio.Media.GENERATION_MODIFIED);
+            projection.add(MediaStore.Audio.Media.GENRE);
+        }
+        return projection.toArray(new String[0]);
+    }
+
+    /**
+     * Filtro para las filas agregadas o modificadas desde la marca anterior
+     */
+    private String buildDeltaSelection(ScanWatermark previous, List<String> args) {
+        StringBuilder selection = new StringBuilder(MUSIC_SELECTION).append(" AND (");
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            // La generación es un contador por volumen
+            for (String volume : previous.getGenerations().keySet()) {
+                selection.append('(').append(MediaStore.Audio.Media.VOLUME_NAME).append(" = ? AND ")
+                        .append(MediaStore.Audio.Media.GENERATION_MODIFIED).append(" > ?) OR ");
+                args.add(volume);
+                args.add(String.valueOf(previous.getGeneration(volume)));
+            }
+            // Volúmenes que no existían en el escaneo anterior (p. ej. una SD nueva)
+            selection.append(MediaStore.Audio.Media.VOLUME_NAME).append(" NOT IN (");
+            int i = 0;
+            for (String volume : previous.getGenerations().keySet()) {
+                selection.append(i++ > 0 ? ", ?" : "?");
+                args.add(volume);
+            }
+            selection.append(')');
+        } else {
+            selection.append(MediaStore.Audio.Media.DATE_ADDED).append(" > ? OR ")
+                    .append(MediaStore.Audio.Media.DATE_MODIFIED).append(" > ?");
+            args.add(String.valueOf(previous.getLastDateAdded()));
+            args.add(String.valueOf(previous.getLastDateModified()));
+        }
+
+        return selection.append(')').toString();
+    }
+
+    /**
+     * true si la fila se agregó a MediaStore después de la marca anterior
+     */
+    private boolean isNewRow(Cursor cursor, Columns columns, ScanWatermark previous) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            String volume = cursor.getString(columns.volume);
+            return cursor.getLong(columns.generationAdded) > previous.getGeneration(volume);
+        }
+        return cursor.getLong(columns.dateAdded) > previous.getLastDateAdded();
+    }
+
+    private void advanceWatermark(Cursor cursor, Columns columns, ScanWatermark next, long dateCeiling) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            next.updateGeneration(cursor.getString(columns.volume), cursor.getLong(columns.generationModified));
+        } else {
+            long dateAdded = Math.min(cursor.getLong(columns.dateAdded), dateCeiling);
+            long dateModified = Math.min(cursor.getLong(columns.dateModified), dateCeiling);
+            next.setLastDateAdded(Math.max(next.getLastDateAdded(), dateAdded));
+            next.setLastDateModified(Math.max(next.getLastDateModified(), dateModified));
+        }
+    }
+
+    /**
+     * Convierte la fila actual del cursor en un Song (null si no tiene ruta)
+     */
+    private Song readSong(Cursor cursor, Columns columns) {
+        String path = cursor.getString(columns.data);
+        if (path == null) {
+            return null;
+        }
+
+        String title = cursor.getString(columns.title);
+        String artist = cursor.getString(columns.artist);
+        String album = cursor.getString(columns.album);
+        long duration = cursor.getLong(columns.duration);
+        long albumId = cursor.getLong(columns.albumId);
+        int year = cursor.getInt(columns.year);
+        long dateAdded = cursor.getLong(columns.dateAdded) * 1000; // Convertir a milisegundos
+
+        // Obtener URI de la carátula del álbum
+        String albumArtUri = getAlbumArtUri(albumId);
+
+        // Crear objeto Song
+        Song song = new Song(title, artist, album, path, duration, albumArtUri);
+        song.setYear(year);
+        song.setDateAdded(dateAdded);
+
+        // El resto de géneros los completa MetadataExtractor
+        if (columns.genre >= 0) {
+            song.setGenre(cursor.getString(columns.genre));
+        }
+
+        return song;
+    }
+
+    /**
+     * Número de canciones en MediaStore (solo lee el _ID)
+     */
+    private int countMusicRows() {
+        try (Cursor cursor = context.getContentResolver().query(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+                new String[]{MediaStore.Audio.Media._ID}, MUSIC_SELECTION, null, null)) {
+            return cursor != null ? cursor.getCount() : 0;
+        } catch (Exception e) {
+            Log.e(TAG, "Error al contar canciones: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Rutas de todas las canciones en MediaStore (sin abrir los archivos)
+     */
+    private Set<String> queryLivePaths() {
+        Set<String> paths = new HashSet<>();
+        try (Cursor cursor = context.getContentResolver().query(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+                new String[]{MediaStore.Audio.Media.DATA}, MUSIC_SELECTION, null, null)) {
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    String path = cursor.getString(0);
+                    if (path != null) paths.add(path);
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error al leer rutas: " + e.getMessage());
+            return null;
+        }
+        return paths;
+    }
+
+    private String getMediaStoreVersion() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return MediaStore.getVersion(context);
+        }
+        return null;
+    }
+
     /**
      * Obtiene la URI de la carátula del álbum
      */
@@ -161,4 +507,66 @@ public class MediaScanner {
         }
         return null;
     }
+
+    /**
+     * Rutas guardadas en la base de datos, consultadas solo cuando hacen falta: un
+     * reescaneo sin cambios no las lee
+     */
+    public interface KnownPaths {
+        /** true si no hay ninguna canción guardada */
+        boolean isEmpty();
+
+        /** Rutas de {@code paths} que ya están guardadas */
+        Set<String> findExisting(Collection<String> paths);
+
+        /** Todas las rutas guardadas; solo para deducir eliminaciones */
+        Collection<String> getAll();
+    }
+
+    public interface OnBatchListener {
+        void onBatch(List<Song> added, List<Song> updated, ScanStats stats);
+    }
+
+    /**
+     * Índices de columna del cursor, resueltos una sola vez
+     */
+    private static class Columns {
+        final int title;
+        final int artist;
+        final int album;
+        final int data;
+        final int duration;
+        final int albumId;
+        final int year;
+        final int dateAdded;
+        final int dateModified;
+        final int volume;
+        final int generationAdded;
+        final int generationModified;
+        final int genre;
+
+        Columns(Cursor cursor) {
+            title = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.TITLE);
+            artist = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ARTIST);
+            album = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM);
+            data = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATA);
+            duration = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DURATION);
+            albumId = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM_ID);
+            year = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.YEAR);
+            dateAdded = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATE_ADDED);
+            dateModified = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATE_MODIFIED);
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                volume = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.VOLUME_NAME);
+                generationAdded = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.GENERATION_ADDED);
+                generationModified = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.GENERATION_MODIFIED);
+                genre = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.GENRE);
+            } else {
+                volume = -1;
+                generationAdded = -1;
+                generationModified = -1;
+                genre = -1;
+            }
+        }
+    }
 }
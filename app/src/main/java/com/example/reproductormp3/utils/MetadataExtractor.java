@@ -0,0 +1,186 @@
+package com.example.reproductormp3.utils;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.media.MediaMetadataRetriever;
+import android.os.Build;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import com.example.reproductormp3.models.Song;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Etapa de extracción de géneros del escaneo.
+ * Primero intenta con MediaStore (una consulta por género, no por canción) y solo
+ * las canciones que siguen sin género pasan por MediaMetadataRetriever, repartidas
+ * en el carril de metadatos del {@link TaskScheduler}; cada tarea reutiliza su
+ * propio retriever.
+ */
+public class MetadataExtractor {
+
+    private static final String TAG = "MetadataExtractor";
+
+    public static final String STAGE_GENRES_MEDIASTORE = "genres_mediastore";
+    public static final String STAGE_GENRES_RETRIEVER = "genres_retriever";
+
+    private static final int MAX_WORKERS = 4;
+
+    private Context context;
+    private boolean retrieverFallback = true;
+
+    public MetadataExtractor(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Si es false, las canciones sin género en MediaStore se quedan sin género
+     * (no se abre ningún archivo)
+     */
+    public void setRetrieverFallback(boolean retrieverFallback) {
+        this.retrieverFallback = retrieverFallback;
+    }
+
+    /**
+     * Completa el género de las canciones que aún no lo tienen
+     */
+    public void extractGenres(List<Song> songs, ScanStats stats) {
+        if (songs.isEmpty()) return;
+        extractGenres(songs, loadGenresByPath(stats), stats);
+    }
+
+    /**
+     * Igual que {@link #extractGenres(List, ScanStats)} con los géneros de MediaStore ya
+     * leídos con {@link #loadGenresByPath}: un escaneo por lotes los lee una sola vez
+     */
+    public void extractGenres(List<Song> songs, Map<String, String> genresByPath, ScanStats stats) {
+        if (songs.isEmpty()) return;
+
+        for (Song song : songs) {
+            if (song.getGenre() == null) {
+                song.setGenre(genresByPath.get(song.getPath()));
+            }
+        }
+
+        if (!retrieverFallback) return;
+
+        List<Song> missing = new ArrayList<>();
+        for (Song song : songs) {
+            if (song.getGenre() == null) {
+                missing.add(song);
+            }
+        }
+        if (missing.isEmpty()) return;
+
+        long begin = stats.begin();
+        extractWithRetrievers(missing);
+        stats.end(STAGE_GENRES_RETRIEVER, begin, missing.size());
+    }
+
+    /**
+     * Géneros de MediaStore por ruta (una consulta por género y sus miembros).
+     * En API 30+ devuelve un mapa vacío: el género ya viene en la consulta principal
+     * (columna GENRE).
+     */
+    public Map<String, String> loadGenresByPath(ScanStats stats) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            return Collections.emptyMap();
+        }
+        long begin = stats.begin();
+        Map<String, String> genresByPath = queryGenresByPath();
+        stats.end(STAGE_GENRES_MEDIASTORE, begin, genresByPath.size());
+        return genresByPath;
+    }
+
+    /**
+     * Lee las tablas MediaStore.Audio.Genres: ruta -> nombre de género
+     */
+    private Map<String, String> queryGenresByPath() {
+        Map<String, String> genresByPath = new HashMap<>();
+
+        try (Cursor genres = context.getContentResolver().query(
+                MediaStore.Audio.Genres.EXTERNAL_CONTENT_URI,
+                new String[]{MediaStore.Audio.Genres._ID, MediaStore.Audio.Genres.NAME},
+                null, null, null)) {
+            if (genres == null) return genresByPath;
+
+            while (genres.moveToNext()) {
+                long genreId = genres.getLong(0);
+                String name = genres.getString(1);
+                if (name == null) continue;
+
+                try (Cursor members = context.getContentResolver().query(
+                        MediaStore.Audio.Genres.Members.getContentUri("external", genreId),
+                        new String[]{MediaStore.Audio.Genres.Members.DATA},
+                        null, null, null)) {
+                    if (members == null) continue;
+                    while (members.moveToNext()) {
+                        String path = members.getString(0);
+                        if (path != null) {
+                            genresByPath.put(path, name);
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "No se pudieron leer los géneros de MediaStore: " + e.getMessage());
+        }
+        return genresByPath;
+    }
+
+    /**
+     * Reparte las canciones entre hilos; cada hilo usa un único retriever para su parte
+     */
+    private void extractWithRetrievers(List<Song> songs) {
+        int workers = Math.max(1, Math.min(MAX_WORKERS,
+                Math.min(Runtime.getRuntime().availableProcessors(), songs.size())));
+        TaskScheduler scheduler = TaskScheduler.getInstance();
+        List<Future<Void>> tasks = new ArrayList<>();
+
+        try {
+            for (int w = 0; w < workers; w++) {
+                final int offset = w;
+                tasks.add(scheduler.submit(TaskScheduler.LANE_METADATA, null, job -> {
+                    MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+                    try {
+                        for (int i = offset; i < songs.size() && !job.isCancelled(); i += workers) {
+                            Song song = songs.get(i);
+                            try {
+                                retriever.setDataSource(song.getPath());
+                                song.setGenre(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_GENRE));
+                            } catch (Exception e) {
+                                Log.w(TAG, "No se pudo obtener género de: " + song.getPath());
+                            }
+                        }
+                    } finally {
+                        try {
+                            retriever.release();
+                        } catch (Exception ignored) {
+                            // release() declara IOException desde API 29
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<Void> future : tasks) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Log.e(TAG, "Error al extraer géneros: " + e.getMessage());
+        } finally {
+            // Si el escaneo se interrumpe, las tareas que sigan en cola ya no hacen falta
+            for (Future<Void> future : tasks) {
+                future.cancel(false);
+            }
+        }
+    }
+}
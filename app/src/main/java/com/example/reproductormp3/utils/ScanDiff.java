@@ -0,0 +1,105 @@
+package com.example.reproductormp3.utils;
+
+import com.example.reproductormp3.models.Song;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de un escaneo incremental: canciones nuevas, modificadas y eliminadas
+ * desde la última marca de agua.
+ */
+public class ScanDiff {
+
+    private final List<Song> added = new ArrayList<>();
+    private final List<Song> updated = new ArrayList<>();
+    private final List<String> removedPaths = new ArrayList<>();
+    private int streamedAdded;
+    private int streamedUpdated;
+    private final boolean fullScan;
+    private ScanWatermark watermark;
+    private final ScanStats stats = new ScanStats();
+
+    public ScanDiff(boolean fullScan, ScanWatermark watermark) {
+        this.fullScan = fullScan;
+        this.watermark = watermark;
+    }
+
+    public List<Song> getAdded() {
+        return added;
+    }
+
+    public List<Song> getUpdated() {
+        return updated;
+    }
+
+    public List<String> getRemovedPaths() {
+        return removedPaths;
+    }
+
+    /**
+     * Total de agregadas, incluidas las ya entregadas en lotes
+     */
+    public int getAddedCount() {
+        return streamedAdded + added.size();
+    }
+
+    /**
+     * Total de modificadas, incluidas las ya entregadas en lotes
+     */
+    public int getUpdatedCount() {
+        return streamedUpdated + updated.size();
+    }
+
+    /**
+     * Cuenta las listas actuales como entregadas y las vacía
+     */
+    void markStreamed() {
+        streamedAdded += added.size();
+        streamedUpdated += updated.size();
+        added.clear();
+        updated.clear();
+    }
+
+    /**
+     * true si se leyó todo MediaStore (primer escaneo o cambio de versión)
+     */
+    public boolean isFullScan() {
+        return fullScan;
+    }
+
+    /**
+     * Marca a guardar una vez aplicado el diff (null si el escaneo falló a medias)
+     */
+    public ScanWatermark getWatermark() {
+        return watermark;
+    }
+
+    public void discardWatermark() {
+        this.watermark = null;
+    }
+
+    /**
+     * Tiempos por etapa del escaneo que produjo este diff
+     */
+    public ScanStats getStats() {
+        return stats;
+    }
+
+    /**
+     * true si no quedan cambios pendientes de aplicar
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && updated.isEmpty() && removedPaths.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ScanDiff{" +
+                "full=" + fullScan +
+                ", added=" + getAddedCount() +
+                ", updated=" + getUpdatedCount() +
+                ", removed=" + removedPaths.size() +
+                '}';
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.reproductormp3.utils;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tiempos por etapa de un escaneo (cursor, géneros, base de datos...)
+ */
+public class ScanStats {
+
+    private static final String TAG = "ScanStats";
+
+    private final Map<String, Long> stageMillis = new LinkedHashMap<>();
+    private final Map<String, Integer> stageItems = new LinkedHashMap<>();
+
+    /**
+     * Marca de inicio para medir una etapa con {@link #end(String, long, int)}
+     */
+    public long begin() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    public synchronized void end(String stage, long beginMillis, int items) {
+        long elapsed = SystemClock.elapsedRealtime() - beginMillis;
+        Long previous = stageMillis.get(stage);
+        Integer previousItems = stageItems.get(stage);
+        stageMillis.put(stage, previous != null ? previous + elapsed : elapsed);
+        stageItems.put(stage, previousItems != null ? previousItems + items : items);
+    }
+
+    public synchronized long getMillis(String stage) {
+        Long millis = stageMillis.get(stage);
+        return millis != null ? millis : 0;
+    }
+
+    public synchronized int getItems(String stage) {
+        Integer items = stageItems.get(stage);
+        return items != null ? items : 0;
+    }
+
+    public void log() {
+        Log.i(TAG, toString());
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder("ScanStats{");
+        boolean first = true;
+        for (Map.Entry<String, Long> entry : stageMillis.entrySet()) {
+            if (!first) builder.append(", ");
+            builder.append(entry.getKey()).append('=').append(entry.getValue()).append("ms/")
+                    .append(stageItems.get(entry.getKey()));
+            first = false;
+        }
+        return builder.append('}').toString();
+    }
+}
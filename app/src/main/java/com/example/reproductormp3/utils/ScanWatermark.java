@@ -0,0 +1,150 @@
+package com.example.reproductormp3.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Marca de agua del último escaneo aplicado a la base de datos.
+ * En API 30+ guarda la generación de MediaStore por volumen; en versiones
+ * anteriores usa DATE_ADDED / DATE_MODIFIED (en segundos).
+ */
+public class ScanWatermark {
+
+    private static final String PREFS_NAME = "scan_watermark";
+    private static final String KEY_VALID = "valid";
+    private static final String KEY_VERSION = "mediastore_version";
+    private static final String KEY_GENERATIONS = "generations";
+    private static final String KEY_DATE_ADDED = "last_date_added";
+    private static final String KEY_DATE_MODIFIED = "last_date_modified";
+    private static final String KEY_ROW_COUNT = "row_count";
+
+    private boolean valid;
+    private String mediaStoreVersion;
+    private final Map<String, Long> generations = new HashMap<>();
+    private long lastDateAdded;
+    private long lastDateModified;
+    private int rowCount;
+
+    /**
+     * Carga la marca guardada (o una inválida si nunca se ha escaneado)
+     */
+    public static ScanWatermark load(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        ScanWatermark watermark = new ScanWatermark();
+        watermark.valid = prefs.getBoolean(KEY_VALID, false);
+        watermark.mediaStoreVersion = prefs.getString(KEY_VERSION, null);
+        watermark.lastDateAdded = prefs.getLong(KEY_DATE_ADDED, 0);
+        watermark.lastDateModified = prefs.getLong(KEY_DATE_MODIFIED, 0);
+        watermark.rowCount = prefs.getInt(KEY_ROW_COUNT, 0);
+
+        // Formato "volumen=generación"
+        for (String entry : prefs.getStringSet(KEY_GENERATIONS, new HashSet<>())) {
+            int separator = entry.lastIndexOf('=');
+            if (separator <= 0) continue;
+            try {
+                watermark.generations.put(entry.substring(0, separator),
+                        Long.parseLong(entry.substring(separator + 1)));
+            } catch (NumberFormatException ignored) {
+                // Entrada corrupta: el volumen se volverá a leer completo
+            }
+        }
+        return watermark;
+    }
+
+    /**
+     * Persiste la marca. Solo debe llamarse después de aplicar el diff en la base de datos.
+     */
+    public void save(Context context) {
+        Set<String> encoded = new HashSet<>();
+        for (Map.Entry<String, Long> entry : generations.entrySet()) {
+            encoded.add(entry.getKey() + "=" + entry.getValue());
+        }
+
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putBoolean(KEY_VALID, true)
+                .putString(KEY_VERSION, mediaStoreVersion)
+                .putStringSet(KEY_GENERATIONS, encoded)
+                .putLong(KEY_DATE_ADDED, lastDateAdded)
+                .putLong(KEY_DATE_MODIFIED, lastDateModified)
+                .putInt(KEY_ROW_COUNT, rowCount)
+                .apply();
+    }
+
+    /**
+     * Fuerza que el próximo escaneo sea completo
+     */
+    public static void clear(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().clear().apply();
+    }
+
+    /**
+     * Copia para construir la siguiente marca sin modificar la anterior
+     */
+    public ScanWatermark copy() {
+        ScanWatermark copy = new ScanWatermark();
+        copy.valid = valid;
+        copy.mediaStoreVersion = mediaStoreVersion;
+        copy.generations.putAll(generations);
+        copy.lastDateAdded = lastDateAdded;
+        copy.lastDateModified = lastDateModified;
+        copy.rowCount = rowCount;
+        return copy;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public String getMediaStoreVersion() {
+        return mediaStoreVersion;
+    }
+
+    public void setMediaStoreVersion(String mediaStoreVersion) {
+        this.mediaStoreVersion = mediaStoreVersion;
+    }
+
+    public Map<String, Long> getGenerations() {
+        return generations;
+    }
+
+    public long getGeneration(String volume) {
+        Long generation = generations.get(volume);
+        return generation != null ? generation : -1;
+    }
+
+    public void updateGeneration(String volume, long generation) {
+        if (generation > getGeneration(volume)) {
+            generations.put(volume, generation);
+        }
+    }
+
+    public long getLastDateAdded() {
+        return lastDateAdded;
+    }
+
+    public void setLastDateAdded(long lastDateAdded) {
+        this.lastDateAdded = lastDateAdded;
+    }
+
+    public long getLastDateModified() {
+        return lastDateModified;
+    }
+
+    public void setLastDateModified(long lastDateModified) {
+        this.lastDateModified = lastDateModified;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+}
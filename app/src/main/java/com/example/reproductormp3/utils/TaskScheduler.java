@@ -0,0 +1,460 @@
+package com.example.reproductormp3.utils;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Trabajo de fondo de toda la app, repartido en carriles con nombre: cada carril
+ * tiene sus propios hilos y su prioridad de hilo, así un escaneo largo no le quita
+ * CPU a lo que el usuario tiene en pantalla.
+ * <ul>
+ *     <li>Una tarea con clave no se duplica: mientras otra con la misma clave esté en
+ *     cola o corriendo en el carril, {@link #submit} devuelve esa.</li>
+ *     <li>La cancelación es cooperativa: {@link Job#cancel} saca la tarea de la cola
+ *     si aún no empezó; si ya corre, la tarea debe consultar {@link Job#isCancelled()}
+ *     y terminar antes.</li>
+ *     <li>Cada carril lleva su profundidad de cola y sus tiempos ({@link #getStats}).</li>
+ * </ul>
+ * Las operaciones de base de datos siguen en {@code AppDatabase}: los carriles
+ * esperan al escritor, no lo reemplazan.
+ */
+public final class TaskScheduler {
+
+    private static final String TAG = "TaskScheduler";
+
+    /** Escaneo de MediaStore y copias de seguridad (uno a la vez) */
+    public static final String LANE_SCAN = "scan";
+    /** Lectura de etiquetas de archivos (MediaMetadataRetriever) */
+    public static final String LANE_METADATA = "metadata";
+    /** Filtrado y orden de la lista en pantalla (uno a la vez) */
+    public static final String LANE_VIEW = "view";
+
+    private static volatile TaskScheduler INSTANCE;
+
+    private final Map<String, Lane> lanes = new LinkedHashMap<>();
+
+    /**
+     * Trabajo de una tarea. {@code job} permite consultar si se canceló.
+     */
+    public interface Work<T> {
+        T run(Job<T> job) throws Exception;
+    }
+
+    /**
+     * Aviso de que una tarea terminó (bien, con error o cancelada); {@code job.get()}
+     * ya no bloquea
+     */
+    public interface DoneListener<T> {
+        void onDone(Job<T> job);
+    }
+
+    public static TaskScheduler getInstance() {
+        if (INSTANCE == null) {
+            synchronized (TaskScheduler.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new TaskScheduler();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    private TaskScheduler() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        addLane(LANE_SCAN, 1, Process.THREAD_PRIORITY_BACKGROUND);
+        addLane(LANE_METADATA, Math.max(1, Math.min(4, cpus)), Process.THREAD_PRIORITY_BACKGROUND);
+        addLane(LANE_VIEW, 1, Process.THREAD_PRIORITY_DEFAULT);
+    }
+
+    private void addLane(String name, int threads, int threadPriority) {
+        lanes.put(name, new Lane(name, threads, threadPriority));
+    }
+
+    /**
+     * Pone {@code work} en la cola de {@code lane}.
+     *
+     * @param key clave de deduplicación, o null si cada llamada es una tarea distinta
+     * @return la tarea nueva, o la que ya estaba en marcha con la misma clave
+     */
+    public <T> Job<T> submit(String lane, String key, Work<T> work) {
+        return lane(lane).submit(key, work);
+    }
+
+    /**
+     * Cancela la tarea con {@code key} de {@code lane}, si hay una
+     *
+     * @return true si había una tarea que cancelar
+     */
+    public boolean cancel(String lane, String key) {
+        Job<?> job = lane(lane).find(key);
+        return job != null && job.cancel(false);
+    }
+
+    /**
+     * Foto de las métricas del carril
+     */
+    public LaneStats getStats(String lane) {
+        return lane(lane).stats();
+    }
+
+    public void logStats() {
+        for (Lane lane : lanes.values()) {
+            Log.i(TAG, lane.stats().toString());
+        }
+    }
+
+    private Lane lane(String name) {
+        Lane lane = lanes.get(name);
+        if (lane == null) {
+            throw new IllegalArgumentException("Carril desconocido: " + name);
+        }
+        return lane;
+    }
+
+    // ========== TAREA ==========
+    /**
+     * Una tarea puesta en un carril. Se usa como cualquier Future; {@link #cancel}
+     * con true además interrumpe el hilo.
+     */
+    public static final class Job<T> implements Future<T> {
+        private final Lane lane;
+        private final String key;
+        private final FutureTask<T> task;
+        private final long enqueuedAt = SystemClock.elapsedRealtime();
+        private final List<DoneListener<T>> doneListeners = new ArrayList<>();
+        private boolean finished;
+
+        Job(Lane lane, String key, Work<T> work) {
+            this.lane = lane;
+            this.key = key;
+            task = new FutureTask<T>(() -> work.run(this)) {
+                @Override
+                public void run() {
+                    lane.run(Job.this, super::run);
+                }
+
+                @Override
+                protected void done() {
+                    lane.done(Job.this);
+                    finish();
+                }
+            };
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getLane() {
+            return lane.name;
+        }
+
+        /**
+         * Llama a {@code listener} cuando la tarea termine, también si se cancela antes
+         * de empezar. Corre en el hilo que la terminó (el del carril o el que canceló);
+         * si ya terminó, en el que llama.
+         */
+        public void whenDone(DoneListener<T> listener) {
+            synchronized (doneListeners) {
+                if (!finished) {
+                    doneListeners.add(listener);
+                    return;
+                }
+            }
+            listener.onDone(this);
+        }
+
+        private void finish() {
+            List<DoneListener<T>> listeners;
+            synchronized (doneListeners) {
+                finished = true;
+                listeners = new ArrayList<>(doneListeners);
+                doneListeners.clear();
+            }
+            for (DoneListener<T> listener : listeners) {
+                try {
+                    listener.onDone(this);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, lane.name + "/" + key + ": error en un aviso de fin", e);
+                }
+            }
+        }
+
+        /**
+         * Lanza CancellationException si la tarea se canceló; para usar entre pasos
+         */
+        public void throwIfCancelled() {
+            if (task.isCancelled()) {
+                throw new CancellationException(lane.name + "/" + key + " cancelada");
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = task.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                lane.cancelled(this);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return task.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return task.isDone();
+        }
+
+        @Override
+        public T get() throws ExecutionException, InterruptedException {
+            return task.get();
+        }
+
+        @Override
+        public T get(long timeout, @NonNull TimeUnit unit)
+                throws ExecutionException, InterruptedException, TimeoutException {
+            return task.get(timeout, unit);
+        }
+    }
+
+    // ========== CARRIL ==========
+    private static final class Lane {
+        final String name;
+        final ThreadPoolExecutor executor;
+
+        // Tareas con clave que están en cola o corriendo
+        private final Map<String, Job<?>> byKey = new HashMap<>();
+
+        private int submitted;
+        private int deduplicated;
+        private int cancelled;
+        private int failed;
+        private int completed;
+        private int runs;
+        private long totalRunMillis;
+        private long maxRunMillis;
+        private long totalWaitMillis;
+
+        Lane(String name, int threads, int threadPriority) {
+            this.name = name;
+            executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new LaneThreadFactory(name, threadPriority));
+            // Los hilos de un carril ocioso no quedan vivos
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> Job<T> submit(String key, Work<T> work) {
+            Job<T> job;
+            synchronized (this) {
+                if (key != null) {
+                    Job<?> existing = byKey.get(key);
+                    if (existing != null && !existing.isCancelled()) {
+                        deduplicated++;
+                        return (Job<T>) existing;
+                    }
+                }
+                job = new Job<>(this, key, work);
+                if (key != null) {
+                    byKey.put(key, job);
+                }
+                submitted++;
+            }
+            executor.execute(job.task);
+            return job;
+        }
+
+        synchronized Job<?> find(String key) {
+            return byKey.get(key);
+        }
+
+        void run(Job<?> job, Runnable body) {
+            long start = SystemClock.elapsedRealtime();
+            synchronized (this) {
+                totalWaitMillis += start - job.enqueuedAt;
+            }
+            try {
+                body.run();
+            } finally {
+                long millis = SystemClock.elapsedRealtime() - start;
+                synchronized (this) {
+                    runs++;
+                    totalRunMillis += millis;
+                    maxRunMillis = Math.max(maxRunMillis, millis);
+                }
+            }
+        }
+
+        void done(Job<?> job) {
+            synchronized (this) {
+                if (job.key != null && byKey.get(job.key) == job) {
+                    byKey.remove(job.key);
+                }
+            }
+            if (job.isCancelled()) return;
+            try {
+                job.task.get();
+                synchronized (this) {
+                    completed++;
+                }
+            } catch (ExecutionException e) {
+                synchronized (this) {
+                    failed++;
+                }
+                Log.e(TAG, name + "/" + job.key + " falló", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void cancelled(Job<?> job) {
+            synchronized (this) {
+                cancelled++;
+            }
+            // Las canceladas antes de empezar no ocupan la cola
+            executor.purge();
+        }
+
+        synchronized LaneStats stats() {
+            return new LaneStats(name, executor.getQueue().size(), executor.getActiveCount(), submitted,
+                    deduplicated, cancelled, failed, completed, runs, totalRunMillis, maxRunMillis, totalWaitMillis);
+        }
+    }
+
+    private static final class LaneThreadFactory implements ThreadFactory {
+        private final String name;
+        private final int threadPriority;
+        private final AtomicInteger count = new AtomicInteger();
+
+        LaneThreadFactory(String name, int threadPriority) {
+            this.name = name;
+            this.threadPriority = threadPriority;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(threadPriority);
+                runnable.run();
+            }, "task-" + name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    // ========== MÉTRICAS ==========
+    /**
+     * Métricas de un carril en un momento dado
+     */
+    public static final class LaneStats {
+        private final String lane;
+        private final int queueDepth;
+        private final int running;
+        private final int submitted;
+        private final int deduplicated;
+        private final int cancelled;
+        private final int failed;
+        private final int completed;
+        private final int runs;
+        private final long totalRunMillis;
+        private final long maxRunMillis;
+        private final long totalWaitMillis;
+
+        LaneStats(String lane, int queueDepth, int running, int submitted, int deduplicated, int cancelled,
+                  int failed, int completed, int runs, long totalRunMillis, long maxRunMillis,
+                  long totalWaitMillis) {
+            this.lane = lane;
+            this.queueDepth = queueDepth;
+            this.running = running;
+            this.submitted = submitted;
+            this.deduplicated = deduplicated;
+            this.cancelled = cancelled;
+            this.failed = failed;
+            this.completed = completed;
+            this.runs = runs;
+            this.totalRunMillis = totalRunMillis;
+            this.maxRunMillis = maxRunMillis;
+            this.totalWaitMillis = totalWaitMillis;
+        }
+
+        public String getLane() {
+            return lane;
+        }
+
+        /** Tareas esperando un hilo */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public int getRunning() {
+            return running;
+        }
+
+        public int getSubmitted() {
+            return submitted;
+        }
+
+        /** Llamadas que se unieron a una tarea ya en marcha con la misma clave */
+        public int getDeduplicated() {
+            return deduplicated;
+        }
+
+        public int getCancelled() {
+            return cancelled;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public int getCompleted() {
+            return completed;
+        }
+
+        /** Tareas que llegaron a correr (incluye las canceladas a mitad) */
+        public int getRuns() {
+            return runs;
+        }
+
+        public long getTotalRunMillis() {
+            return totalRunMillis;
+        }
+
+        public long getMaxRunMillis() {
+            return maxRunMillis;
+        }
+
+        public long getTotalWaitMillis() {
+            return totalWaitMillis;
+        }
+
+        @Override
+        public String toString() {
+            return lane + ": cola=" + queueDepth + " corriendo=" + running + " enviadas=" + submitted
+                    + " unidas=" + deduplicated + " canceladas=" + cancelled + " fallidas=" + failed
+                    + " run avg=" + (runs > 0 ? totalRunMillis / runs : 0) + "ms max=" + maxRunMillis + "ms";
+        }
+    }
+}
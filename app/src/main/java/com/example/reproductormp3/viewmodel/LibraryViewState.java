@@ -0,0 +1,120 @@
+package com.example.reproductormp3.viewmodel;
+
+import com.example.reproductormp3.models.SongListItem;
+import com.example.reproductormp3.repository.LibrarySnapshot;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lo que muestra la lista principal: qué se pidió ({@link Selection}: origen, orden
+ * y filtros) y el resultado ya calculado. El diff con la lista anterior lo calcula
+ * el adaptador (AsyncListDiffer). La lista completa en orden de título no se
+ * materializa: va paginada ({@link #isPaged()}) y la UI usa el SongPager.
+ */
+public final class LibraryViewState {
+
+    public static final int SOURCE_ALL = 0;
+    public static final int SOURCE_FAVORITES = 1;
+    public static final int SOURCE_ARTIST = 2;
+    public static final int SOURCE_ALBUM = 3;
+    public static final int SOURCE_GENRE = 4;
+    public static final int SOURCE_SEARCH = 5;
+
+    // Orden propio del origen: título, o relevancia en la búsqueda
+    public static final int SORT_DEFAULT = -1;
+
+    /**
+     * Qué se quiere ver. Inmutable: cada cambio crea una selección nueva.
+     */
+    public static final class Selection {
+        private final int source;
+        private final long sourceId;
+        private final int sortField;
+        private final boolean descending;
+        private final boolean favoritesOnly;
+
+        public static final Selection ALL = new Selection(SOURCE_ALL, 0, SORT_DEFAULT, false, false);
+
+        private Selection(int source, long sourceId, int sortField, boolean descending, boolean favoritesOnly) {
+            this.source = source;
+            this.sourceId = sourceId;
+            this.sortField = sortField;
+            this.descending = descending;
+            this.favoritesOnly = favoritesOnly;
+        }
+
+        /**
+         * @param sourceId id del artista, álbum o género (se ignora en los demás orígenes)
+         */
+        public Selection withSource(int source, long sourceId) {
+            return new Selection(source, sourceId, sortField, descending, favoritesOnly);
+        }
+
+        /**
+         * @param sortField SORT_DEFAULT o un LibrarySnapshot.SORT_*
+         */
+        public Selection withSort(int sortField, boolean descending) {
+            return new Selection(source, sourceId, sortField, descending, favoritesOnly);
+        }
+
+        public Selection withFavoritesOnly(boolean favoritesOnly) {
+            return new Selection(source, sourceId, sortField, descending, favoritesOnly);
+        }
+
+        public int getSource() {
+            return source;
+        }
+
+        public long getSourceId() {
+            return sourceId;
+        }
+
+        public int getSortField() {
+            return sortField;
+        }
+
+        public boolean isDescending() {
+            return descending;
+        }
+
+        public boolean isFavoritesOnly() {
+            return favoritesOnly;
+        }
+
+        /**
+         * La lista completa por título: la sirve el pager sin cargarla entera
+         */
+        public boolean isPaged() {
+            return source == SOURCE_ALL && !favoritesOnly && !descending
+                    && (sortField == SORT_DEFAULT || sortField == LibrarySnapshot.SORT_TITLE);
+        }
+    }
+
+    private final Selection selection;
+    private final List<SongListItem> items;
+
+    LibraryViewState(Selection selection, List<SongListItem> items) {
+        this.selection = selection;
+        this.items = items;
+    }
+
+    static LibraryViewState paged(Selection selection) {
+        return new LibraryViewState(selection, Collections.emptyList());
+    }
+
+    public Selection getSelection() {
+        return selection;
+    }
+
+    public boolean isPaged() {
+        return selection.isPaged();
+    }
+
+    /**
+     * Filas a mostrar (vacía si {@link #isPaged()})
+     */
+    public List<SongListItem> getItems() {
+        return items;
+    }
+}
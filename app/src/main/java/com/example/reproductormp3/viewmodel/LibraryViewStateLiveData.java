@@ -0,0 +1,154 @@
+package com.example.reproductormp3.viewmodel;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+
+import com.example.reproductormp3.models.SongListItem;
+import com.example.reproductormp3.repository.LibrarySnapshot;
+import com.example.reproductormp3.utils.TaskScheduler;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Combina la selección (origen, orden, filtros), la foto de la biblioteca y los
+ * resultados de la búsqueda en un único {@link LibraryViewState}. El filtrado y el
+ * orden se calculan en el carril {@link TaskScheduler#LANE_VIEW}; el hilo principal
+ * solo publica el resultado. Un cálculo a la vez: si algo cambia mientras corre, su
+ * resultado se descarta y se calcula de nuevo con lo último.
+ */
+class LibraryViewStateLiveData extends MediatorLiveData<LibraryViewState> {
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private LibraryViewState.Selection selection = LibraryViewState.Selection.ALL;
+    private LibrarySnapshot snapshot;
+    private List<SongListItem> searchResults;
+    private boolean running;
+    private boolean dirty;
+
+    LibraryViewStateLiveData(LiveData<LibrarySnapshot> snapshots, LiveData<List<SongListItem>> search) {
+        addSource(snapshots, next -> {
+            snapshot = next;
+            // La lista paginada se actualiza sola (SongPager)
+            if (!selection.isPaged()) recompute();
+        });
+        addSource(search, results -> {
+            searchResults = results;
+            if (selection.getSource() == LibraryViewState.SOURCE_SEARCH) recompute();
+        });
+        setValue(LibraryViewState.paged(selection));
+    }
+
+    LibraryViewState.Selection getSelection() {
+        return selection;
+    }
+
+    void select(LibraryViewState.Selection next) {
+        selection = next;
+        recompute();
+    }
+
+    private void recompute() {
+        if (running) {
+            dirty = true;
+            return;
+        }
+        dirty = false;
+
+        LibraryViewState.Selection current = selection;
+        LibraryViewState previous = getValue();
+        if (current.isPaged()) {
+            if (previous == null || previous.getSelection() != current) {
+                setValue(LibraryViewState.paged(current));
+            }
+            return;
+        }
+        // Se calcula cuando lleguen los datos
+        LibrarySnapshot base = snapshot;
+        List<SongListItem> results = searchResults;
+        if (base == null || (current.getSource() == LibraryViewState.SOURCE_SEARCH && results == null)) {
+            return;
+        }
+
+        running = true;
+        TaskScheduler.Job<LibraryViewState> job = TaskScheduler.getInstance()
+                .submit(TaskScheduler.LANE_VIEW, null, work -> compute(current, base, results));
+        job.whenDone(done -> mainHandler.post(() -> onComputed(done)));
+    }
+
+    private void onComputed(TaskScheduler.Job<LibraryViewState> job) {
+        running = false;
+        if (dirty) {
+            recompute();
+            return;
+        }
+        try {
+            setValue(job.get());
+        } catch (ExecutionException | InterruptedException e) {
+            // El carril ya registró el error; la lista se queda como estaba
+        }
+    }
+
+    // ========== CÁLCULO (hilo de fondo) ==========
+    private static LibraryViewState compute(LibraryViewState.Selection selection, LibrarySnapshot snapshot,
+                                            List<SongListItem> searchResults) {
+        int[] rows = sourceRows(selection, snapshot, searchResults);
+        if (selection.isFavoritesOnly()) {
+            rows = favoritesOnly(snapshot, rows);
+        }
+        if (selection.getSortField() != LibraryViewState.SORT_DEFAULT) {
+            rows = snapshot.sort(rows, selection.getSortField(), selection.isDescending());
+        } else if (selection.isDescending()) {
+            reverse(rows);
+        }
+
+        return new LibraryViewState(selection, snapshot.toListItems(rows));
+    }
+
+    private static int[] sourceRows(LibraryViewState.Selection selection, LibrarySnapshot snapshot,
+                                    List<SongListItem> searchResults) {
+        switch (selection.getSource()) {
+            case LibraryViewState.SOURCE_FAVORITES:
+                return snapshot.favoriteRows();
+            case LibraryViewState.SOURCE_ARTIST:
+                return snapshot.rowsByArtistId(selection.getSourceId());
+            case LibraryViewState.SOURCE_ALBUM:
+                return snapshot.rowsByAlbumId(selection.getSourceId());
+            case LibraryViewState.SOURCE_GENRE:
+                return snapshot.rowsByGenreId(selection.getSourceId());
+            case LibraryViewState.SOURCE_SEARCH:
+                // En orden de relevancia; las que aún no están en la foto se omiten
+                int[] rows = new int[searchResults.size()];
+                int count = 0;
+                for (SongListItem item : searchResults) {
+                    int row = snapshot.rowOf(item.getId());
+                    if (row >= 0) rows[count++] = row;
+                }
+                return Arrays.copyOf(rows, count);
+            default:
+                return snapshot.allRows();
+        }
+    }
+
+    private static int[] favoritesOnly(LibrarySnapshot snapshot, int[] rows) {
+        int[] favorites = new int[rows.length];
+        int count = 0;
+        for (int row : rows) {
+            if (snapshot.isFavorite(row)) favorites[count++] = row;
+        }
+        return Arrays.copyOf(favorites, count);
+    }
+
+    private static void reverse(int[] rows) {
+        for (int i = 0, j = rows.length - 1; i < j; i++, j--) {
+            int tmp = rows[i];
+            rows[i] = rows[j];
+            rows[j] = tmp;
+        }
+    }
+}
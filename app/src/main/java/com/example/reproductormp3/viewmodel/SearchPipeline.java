@@ -0,0 +1,197 @@
+package com.example.reproductormp3.viewmodel;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+
+import com.example.reproductormp3.database.AppDatabase;
+import com.example.reproductormp3.database.DatabaseExecutor;
+import com.example.reproductormp3.models.SongListItem;
+import com.example.reproductormp3.repository.SongChange;
+import com.example.reproductormp3.repository.SongChangeFeed;
+import com.example.reproductormp3.utils.FtsQuery;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Future;
+
+/**
+ * Búsqueda del buscador: una sola entrada ({@link #setQuery}) y una sola salida
+ * (este LiveData). Se consulta cuando el usuario deja de teclear durante
+ * DEBOUNCE_MILLIS; una consulta nueva reemplaza a la anterior (si aún no empezó no
+ * se ejecuta y si ya terminó su resultado se descarta), así que solo llegan a la UI
+ * los resultados de la última. Los resultados recientes se guardan en un LRU que
+ * vale mientras la biblioteca no cambie. Un cambio en la biblioteca no corta la
+ * búsqueda en curso (un escaneo publica uno por lote y la dejaría sin terminar):
+ * se deja llegar y se repite una vez al final.
+ * Todos los métodos se llaman desde el hilo principal.
+ */
+class SearchPipeline extends LiveData<List<SongListItem>> implements SongChangeFeed.Listener {
+
+    private static final String TAG = "SearchPipeline";
+
+    static final long DEBOUNCE_MILLIS = 250;
+    private static final int CACHE_SIZE = 16;
+    // Resultados más grandes no se guardan (una sola letra puede traer media biblioteca)
+    private static final int MAX_CACHED_ROWS = 2000;
+
+    interface Loader {
+        /** Ejecuta la búsqueda en un hilo de fondo */
+        List<SongListItem> search(String match);
+    }
+
+    private static class CachedResult {
+        final long version;
+        final List<SongListItem> items;
+
+        CachedResult(long version, List<SongListItem> items) {
+            this.version = version;
+            this.items = items;
+        }
+    }
+
+    private final Loader loader;
+    private final SongChangeFeed changeFeed = SongChangeFeed.getInstance();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable runQuery = this::runQuery;
+
+    // Orden de acceso: la primera entrada es la búsqueda menos reciente
+    private final Map<String, CachedResult> cache = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    // Expresión MATCH vigente (null: no hay búsqueda)
+    private String match;
+    private int generation;
+    private long loadedVersion = -1;
+    private Future<?> inFlight;
+    // runQuery está programado (esperando el debounce)
+    private boolean scheduled;
+    // La biblioteca cambió con una búsqueda en curso: repetirla cuando llegue
+    private boolean rerun;
+
+    SearchPipeline(Loader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Texto del buscador; se puede llamar en cada tecla
+     */
+    void setQuery(String query) {
+        String next = FtsQuery.toMatchExpression(query);
+        if (Objects.equals(next, match) && getValue() != null) {
+            return;
+        }
+        match = next;
+        cancel();
+
+        if (next == null) {
+            setValue(Collections.emptyList());
+            return;
+        }
+        CachedResult cached = cache.get(next);
+        if (cached != null && cached.version == changeFeed.getVersion()) {
+            loadedVersion = cached.version;
+            setValue(cached.items);
+            return;
+        }
+        schedule();
+    }
+
+    /**
+     * Descarta la búsqueda pendiente y deja de seguir la biblioteca
+     */
+    void close() {
+        cancel();
+        changeFeed.removeListener(this);
+    }
+
+    @Override
+    protected void onActive() {
+        changeFeed.addListener(this);
+        // La biblioteca cambió mientras nadie miraba: repetir la búsqueda visible
+        if (match != null && inFlight == null && loadedVersion != changeFeed.getVersion()) {
+            cancel();
+            runQuery();
+        }
+    }
+
+    @Override
+    protected void onInactive() {
+        changeFeed.removeListener(this);
+    }
+
+    @Override
+    public void onSongsChanged(SongChange change) {
+        // Los resultados del LRU quedan viejos por versión; la búsqueda visible se repite,
+        // sin cancelar la que está en curso ni reiniciar un debounce ya programado
+        if (match == null) return;
+        if (inFlight != null) {
+            rerun = true;
+        } else if (!scheduled) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        scheduled = true;
+        mainHandler.postDelayed(runQuery, DEBOUNCE_MILLIS);
+    }
+
+    private void cancel() {
+        generation++;
+        scheduled = false;
+        rerun = false;
+        mainHandler.removeCallbacks(runQuery);
+        if (inFlight != null) {
+            inFlight.cancel(false);
+            inFlight = null;
+        }
+    }
+
+    private void runQuery() {
+        scheduled = false;
+        String query = match;
+        if (query == null) return;
+
+        int requestGeneration = generation;
+        long version = changeFeed.getVersion();
+        inFlight = AppDatabase.databaseReadExecutor.submit(DatabaseExecutor.PRIORITY_UI, () -> {
+            List<SongListItem> items;
+            try {
+                items = loader.search(query);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error en la búsqueda: " + e.getMessage());
+                items = Collections.emptyList();
+            }
+            List<SongListItem> result = items;
+            mainHandler.post(() -> onLoaded(requestGeneration, query, version, result));
+            return null;
+        });
+    }
+
+    private void onLoaded(int requestGeneration, String query, long version, List<SongListItem> items) {
+        if (requestGeneration != generation) {
+            // Ya hay una búsqueda más nueva
+            return;
+        }
+        inFlight = null;
+        loadedVersion = version;
+        if (items.size() <= MAX_CACHED_ROWS) {
+            cache.put(query, new CachedResult(version, items));
+        }
+        setValue(items);
+        if (rerun) {
+            rerun = false;
+            schedule();
+        }
+    }
+}
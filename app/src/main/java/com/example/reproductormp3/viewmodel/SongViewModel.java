@@ -1,24 +1,58 @@
 package com.example.reproductormp3.viewmodel;
 
 import android.app.Application;
+import android.net.Uri;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.annotation.NonNull;
 
+import com.example.reproductormp3.models.Album;
+import com.example.reproductormp3.models.Artist;
+import com.example.reproductormp3.models.Genre;
+import com.example.reproductormp3.models.Playlist;
+import com.example.reproductormp3.models.PlaylistSong;
+import com.example.reproductormp3.models.SmartPlaylist;
+import com.example.reproductormp3.models.SmartRule;
 import com.example.reproductormp3.models.Song;
+import com.example.reproductormp3.models.SongListItem;
+import com.example.reproductormp3.repository.LibrarySnapshot;
+import com.example.reproductormp3.repository.PlaylistRepository;
+import com.example.reproductormp3.repository.SmartPlaylistRepository;
+import com.example.reproductormp3.repository.SongPager;
 import com.example.reproductormp3.repository.SongRepository;
+import com.example.reproductormp3.utils.MediaScanner;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class SongViewModel extends AndroidViewModel {
 
     private SongRepository repository;
+    private SmartPlaylistRepository smartPlaylistRepository;
+    private PlaylistRepository playlistRepository;
     private LiveData<List<Song>> allSongs;
+    private SongPager songPager;
+    private SearchPipeline search;
+    private LibraryViewStateLiveData viewState;
 
     public SongViewModel(@NonNull Application application) {
         super(application);
         repository = new SongRepository(application);
+        smartPlaylistRepository = new SmartPlaylistRepository(application);
+        playlistRepository = new PlaylistRepository(application);
         allSongs = repository.getAllSongs();
+        search = new SearchPipeline(repository::searchListItemsSync);
+        viewState = new LibraryViewStateLiveData(repository.getLibrarySnapshot(), search);
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        search.close();
+        if (songPager != null) {
+            songPager.close();
+            songPager = null;
+        }
     }
 
     // ========== INSERTAR ==========
@@ -40,6 +74,10 @@ public class SongViewModel extends AndroidViewModel {
         repository.delete(song);
     }
 
+    public void deleteById(long songId) {
+        repository.deleteById(songId);
+    }
+
     public void deleteAll() {
         repository.deleteAll();
     }
@@ -49,10 +87,99 @@ public class SongViewModel extends AndroidViewModel {
         return allSongs;
     }
 
+    /**
+     * Pager de la biblioteca completa, compartido mientras viva el ViewModel
+     */
+    public SongPager getSongPager() {
+        if (songPager == null) {
+            songPager = repository.createSongPager();
+        }
+        return songPager;
+    }
+
+    public void loadAllSongs(SongRepository.OnSongsLoadedListener listener) {
+        repository.loadAllSongs(listener);
+    }
+
+    public void loadFavoriteSongs(SongRepository.OnSongsLoadedListener listener) {
+        repository.loadFavoriteSongs(listener);
+    }
+
+    /**
+     * Canciones completas en el orden de {@code songIds} (la cola de una lista filtrada)
+     */
+    public void loadSongs(List<Long> songIds, SongRepository.OnSongsLoadedListener listener) {
+        repository.loadSongs(songIds, listener);
+    }
+
     public LiveData<Song> getSongById(long songId) {
         return repository.getSongById(songId);
     }
 
+    public void loadSong(long songId, SongRepository.OnSongLoadedListener listener) {
+        repository.loadSong(songId, listener);
+    }
+
+    /**
+     * Total de canciones, leído una vez (sin observar)
+     */
+    public CompletableFuture<Integer> fetchSongsCount() {
+        return repository.fetchSongsCount();
+    }
+
+    public CompletableFuture<List<Song>> fetchAllSongs() {
+        return repository.fetchAllSongs();
+    }
+
+    public CompletableFuture<Song> fetchSongById(long songId) {
+        return repository.fetchSongById(songId);
+    }
+
+    // ========== VISTA DE LA BIBLIOTECA ==========
+    /**
+     * Estado de la lista principal: origen, orden, filtros y resultado ya calculado
+     */
+    public LiveData<LibraryViewState> getViewState() {
+        return viewState;
+    }
+
+    public LibraryViewState.Selection getSelection() {
+        return viewState.getSelection();
+    }
+
+    /**
+     * @param source LibraryViewState.SOURCE_*
+     * @param sourceId id del artista, álbum o género (0 en los demás orígenes)
+     */
+    public void selectSource(int source, long sourceId) {
+        viewState.select(viewState.getSelection().withSource(source, sourceId));
+    }
+
+    public void setSort(int sortField, boolean descending) {
+        viewState.select(viewState.getSelection().withSort(sortField, descending));
+    }
+
+    public void setFavoritesOnly(boolean favoritesOnly) {
+        viewState.select(viewState.getSelection().withFavoritesOnly(favoritesOnly));
+    }
+
+    // ========== BÚSQUEDA ==========
+    /**
+     * Texto del buscador; se puede llamar en cada tecla. Los resultados de la última
+     * búsqueda llegan por {@link #getSearchResults()} (lista vacía si no hay texto).
+     */
+    public void setSearchQuery(String query) {
+        search.setQuery(query);
+    }
+
+    public LiveData<List<SongListItem>> getSearchResults() {
+        return search;
+    }
+
+    /**
+     * @deprecated crea una consulta nueva en cada llamada; usar {@link #setSearchQuery}
+     */
+    @Deprecated
     public LiveData<List<Song>> searchSongs(String query) {
         return repository.searchSongs(query);
     }
@@ -65,10 +192,26 @@ public class SongViewModel extends AndroidViewModel {
         return repository.getSongsByAlbum(album);
     }
 
+    public LiveData<List<Song>> getSongsByArtistId(long artistId) {
+        return repository.getSongsByArtistId(artistId);
+    }
+
+    public LiveData<List<Song>> getSongsByAlbumId(long albumId) {
+        return repository.getSongsByAlbumId(albumId);
+    }
+
+    public LiveData<List<Song>> getSongsByGenreId(long genreId) {
+        return repository.getSongsByGenreId(genreId);
+    }
+
     public LiveData<List<Song>> getFavoriteSongs() {
         return repository.getFavoriteSongs();
     }
 
+    public LiveData<List<SongListItem>> getFavoriteListItems() {
+        return repository.getFavoriteListItems();
+    }
+
     public LiveData<List<Song>> getMostPlayedSongs(int limit) {
         return repository.getMostPlayedSongs(limit);
     }
@@ -81,6 +224,31 @@ public class SongViewModel extends AndroidViewModel {
         return repository.getRecentlyAddedSongs(limit);
     }
 
+    // ========== BIBLIOTECA EN MEMORIA ==========
+    public LiveData<LibrarySnapshot> getLibrarySnapshot() {
+        return repository.getLibrarySnapshot();
+    }
+
+    public LiveData<List<SongListItem>> getListItemsByArtistId(long artistId) {
+        return repository.getListItemsByArtistId(artistId);
+    }
+
+    public LiveData<List<SongListItem>> getListItemsByAlbumId(long albumId) {
+        return repository.getListItemsByAlbumId(albumId);
+    }
+
+    public LiveData<List<SongListItem>> getListItemsByGenreId(long genreId) {
+        return repository.getListItemsByGenreId(genreId);
+    }
+
+    public LiveData<List<SongListItem>> getMostPlayedListItems(int limit) {
+        return repository.getMostPlayedListItems(limit);
+    }
+
+    public LiveData<List<SongListItem>> getRecentlyPlayedListItems(int limit) {
+        return repository.getRecentlyPlayedListItems(limit);
+    }
+
     // ========== ACCIONES ==========
     public void toggleFavorite(long songId, boolean isFavorite) {
         repository.toggleFavorite(songId, isFavorite);
@@ -90,6 +258,10 @@ public class SongViewModel extends AndroidViewModel {
         repository.incrementPlayCount(songId);
     }
 
+    public void flushPlayEvents() {
+        repository.flushPlayEvents();
+    }
+
     // ========== ESTADÍSTICAS ==========
     public LiveData<Integer> getTotalSongsCount() {
         return repository.getTotalSongsCount();
@@ -106,4 +278,105 @@ public class SongViewModel extends AndroidViewModel {
     public LiveData<List<String>> getAllAlbums() {
         return repository.getAllAlbums();
     }
+
+    public LiveData<List<String>> getAllGenres() {
+        return repository.getAllGenres();
+    }
+
+    public LiveData<List<Artist>> getArtists() {
+        return repository.getArtists();
+    }
+
+    public LiveData<List<Album>> getAlbums() {
+        return repository.getAlbums();
+    }
+
+    public LiveData<List<Genre>> getGenres() {
+        return repository.getGenres();
+    }
+
+    public LiveData<Integer> getTotalArtistsCount() {
+        return repository.getTotalArtistsCount();
+    }
+
+    public LiveData<Integer> getTotalAlbumsCount() {
+        return repository.getTotalAlbumsCount();
+    }
+
+    // ========== LISTAS ==========
+    public void createPlaylist(String name, PlaylistRepository.OnPlaylistCreatedListener listener) {
+        playlistRepository.createPlaylist(name, listener);
+    }
+
+    public void renamePlaylist(Playlist playlist, String name) {
+        playlistRepository.renamePlaylist(playlist, name);
+    }
+
+    public void deletePlaylist(Playlist playlist) {
+        playlistRepository.deletePlaylist(playlist);
+    }
+
+    public LiveData<List<Playlist>> getPlaylists() {
+        return playlistRepository.getPlaylists();
+    }
+
+    public LiveData<List<PlaylistSong>> getPlaylistSongs(long playlistId) {
+        return playlistRepository.getPlaylistSongs(playlistId);
+    }
+
+    public void appendSongsToPlaylist(long playlistId, List<Long> songIds) {
+        playlistRepository.appendSongs(playlistId, songIds);
+    }
+
+    public void appendAlbumToPlaylist(long playlistId, long albumId) {
+        playlistRepository.appendAlbum(playlistId, albumId);
+    }
+
+    public void appendArtistToPlaylist(long playlistId, long artistId) {
+        playlistRepository.appendArtist(playlistId, artistId);
+    }
+
+    public void movePlaylistEntry(long playlistId, long entryId, int toIndex) {
+        playlistRepository.moveEntry(playlistId, entryId, toIndex);
+    }
+
+    public void removePlaylistEntry(long entryId) {
+        playlistRepository.removeEntry(entryId);
+    }
+
+    // ========== LISTAS INTELIGENTES ==========
+    public LiveData<List<SmartPlaylist>> getSmartPlaylists() {
+        return smartPlaylistRepository.getSmartPlaylists();
+    }
+
+    public LiveData<List<Song>> getSmartPlaylistSongs(SmartPlaylist playlist) {
+        return smartPlaylistRepository.getSongs(playlist);
+    }
+
+    public void saveSmartPlaylist(SmartPlaylist playlist, List<SmartRule> rules,
+                                  SmartPlaylistRepository.OnSmartPlaylistSavedListener listener) {
+        smartPlaylistRepository.save(playlist, rules, listener);
+    }
+
+    public void deleteSmartPlaylist(SmartPlaylist playlist) {
+        smartPlaylistRepository.delete(playlist);
+    }
+
+    // ========== ESCANEO ==========
+    public void rescanLibrary(MediaScanner scanner, SongRepository.OnScanCompleteListener listener) {
+        repository.rescanLibrary(scanner, listener);
+    }
+
+    public void cancelScan() {
+        repository.cancelScan();
+    }
+
+    // ========== COPIA DE SEGURIDAD ==========
+    public void exportLibrary(Uri uri, SongRepository.OnBackupListener listener) {
+        repository.exportLibrary(uri, listener);
+    }
+
+    public void importLibrary(Uri uri, SongRepository.OnBackupListener listener) {
+        repository.importLibrary(uri, listener);
+    }
 }
@@ -0,0 +1,109 @@
+package com.example.reproductormp3.database;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Resultados de un benchmark en JSON (una entrada por operación y tamaño de biblioteca),
+ * pensado para compararse entre ramas en la revisión.
+ */
+final class BenchmarkReport {
+
+    static final int FORMAT_VERSION = 1;
+
+    private final String name;
+    private final List<Entry> entries = new ArrayList<>();
+
+    static final class Entry {
+        final int librarySize;
+        final String operation;
+        final int rows;
+        final long[] nanos;
+
+        Entry(int librarySize, String operation, int rows, long[] nanos) {
+            this.librarySize = librarySize;
+            this.operation = operation;
+            this.rows = rows;
+            this.nanos = nanos.clone();
+            Arrays.sort(this.nanos);
+        }
+
+        long min() {
+            return nanos[0];
+        }
+
+        long median() {
+            return nanos[nanos.length / 2];
+        }
+
+        long p95() {
+            return nanos[Math.min(nanos.length - 1, (int) Math.ceil(nanos.length * 0.95) - 1)];
+        }
+
+        long max() {
+            return nanos[nanos.length - 1];
+        }
+    }
+
+    BenchmarkReport(String name) {
+        this.name = name;
+    }
+
+    void add(int librarySize, String operation, int rows, long[] nanos) {
+        entries.add(new Entry(librarySize, operation, rows, nanos));
+    }
+
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    void write(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("No se pudo crear " + parent);
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            write(out);
+        }
+    }
+
+    void write(Writer out) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writer.setIndent("  ");
+        writer.beginObject();
+        writer.name("version").value(FORMAT_VERSION);
+        writer.name("benchmark").value(name);
+        writer.name("timestamp").value(System.currentTimeMillis());
+        writer.name("environment").beginObject();
+        writer.name("java").value(System.getProperty("java.version"));
+        writer.name("os").value(System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        writer.name("processors").value(Runtime.getRuntime().availableProcessors());
+        writer.endObject();
+
+        writer.name("results").beginArray();
+        for (Entry entry : entries) {
+            writer.beginObject();
+            writer.name("librarySize").value(entry.librarySize);
+            writer.name("operation").value(entry.operation);
+            writer.name("rows").value(entry.rows);
+            writer.name("iterations").value(entry.nanos.length);
+            writer.name("minUs").value(entry.min() / 1000.0);
+            writer.name("medianUs").value(entry.median() / 1000.0);
+            writer.name("p95Us").value(entry.p95() / 1000.0);
+            writer.name("maxUs").value(entry.max() / 1000.0);
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+        writer.flush();
+    }
+}
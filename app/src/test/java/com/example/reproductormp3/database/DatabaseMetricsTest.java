@@ -0,0 +1,29 @@
+package com.example.reproductormp3.database;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DatabaseMetricsTest {
+
+    @Test
+    public void bindListsOfAnySizeShareAKey() {
+        String one = DatabaseMetrics.queryKey("SELECT * FROM songs WHERE id IN (?)");
+        String many = DatabaseMetrics.queryKey("SELECT * FROM songs WHERE id IN (?,?,?,?)");
+        assertEquals("SELECT * FROM songs WHERE id IN (?…)", one);
+        assertEquals(one, many);
+    }
+
+    @Test
+    public void everyListInTheStatementIsReduced() {
+        assertEquals("DELETE FROM songs WHERE path IN (?…) OR id IN (?…)",
+                DatabaseMetrics.queryKey("DELETE FROM songs WHERE path IN ( ?, ? ) OR id IN (?,?)"));
+    }
+
+    @Test
+    public void otherStatementsAreUnchanged() {
+        String sql = "SELECT * FROM songs WHERE title > ? AND id > ? LIMIT ?";
+        assertEquals(sql, DatabaseMetrics.queryKey(sql));
+        assertEquals("SELECT COUNT(*) FROM songs", DatabaseMetrics.queryKey("SELECT COUNT(*) FROM songs"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.reproductormp3.database;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.reproductormp3.models.Artist;
+import com.example.reproductormp3.models.Genre;
+import com.example.reproductormp3.models.Song;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Triggers de artistas, álbumes y géneros con las sentencias que usa Room
+ * (INSERT OR IGNORE, UPDATE OR ABORT), que imponen su política de conflicto
+ * a lo que corre dentro del trigger.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class LibraryTriggersTest {
+
+    private AppDatabase database;
+    private SongDao songDao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .addCallback(AppDatabase.LIBRARY_CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        songDao = database.songDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void retagThroughReconcileMovesSongToNewArtist() {
+        songDao.reconcile(Collections.singletonList(song("/m/1.mp3", "Artista A", "Rock")),
+                Collections.emptyList());
+
+        // El archivo cambió de artista: reconcile crea "Artista B" antes de actualizar
+        ReconcileResult result = songDao.reconcile(
+                Collections.singletonList(song("/m/1.mp3", "Artista B", "Rock")), Collections.emptyList());
+
+        assertEquals(1, result.getUpdated());
+        Song stored = songDao.getSongByPath("/m/1.mp3");
+        Artist artist = artist("Artista B");
+        assertEquals(Long.valueOf(artist.getId()), stored.getArtistId());
+        assertEquals(1, artist.getSongCount());
+        // La fila vieja se queda sin canciones y se elimina
+        assertTrue(songDao.getArtistsByNames(Collections.singletonList("Artista A")).isEmpty());
+    }
+
+    @Test
+    public void insertWithoutIdsLinksExistingGenre() {
+        songDao.reconcile(Collections.singletonList(song("/m/1.mp3", "Artista A", "Rock")),
+                Collections.emptyList());
+
+        songDao.insertAll(Arrays.asList(song("/m/2.mp3", "Artista C", "Rock"),
+                song("/m/3.mp3", "Artista C", "Pop")));
+
+        Genre rock = genre("Rock");
+        assertEquals(2, rock.getSongCount());
+        assertEquals(Long.valueOf(rock.getId()), songDao.getSongByPath("/m/2.mp3").getGenreId());
+        assertEquals(1, genre("Pop").getSongCount());
+        assertEquals(2, artist("Artista C").getSongCount());
+        assertNotNull(songDao.getSongByPath("/m/3.mp3").getAlbumId());
+    }
+
+    @Test
+    public void tagEditResolvesIdsByName() {
+        songDao.reconcile(Arrays.asList(song("/m/1.mp3", "Artista A", "Rock"),
+                song("/m/2.mp3", "Artista B", "Rock")), Collections.emptyList());
+
+        Song edited = songDao.getSongByPath("/m/1.mp3");
+        edited.setArtist("Artista B");
+        edited.setGenre("Jazz");
+        songDao.updateWithTags(edited);
+
+        Song stored = songDao.getSongByPath("/m/1.mp3");
+        assertEquals(Long.valueOf(artist("Artista B").getId()), stored.getArtistId());
+        assertEquals(2, artist("Artista B").getSongCount());
+        assertEquals(Long.valueOf(genre("Jazz").getId()), stored.getGenreId());
+        assertEquals(1, genre("Rock").getSongCount());
+    }
+
+    @Test
+    public void untaggedSongGetsNoInventedArtistOrAlbum() {
+        Song untagged = new Song("Sin etiquetas", null, null, "/m/1.mp3", 180_000,
+                "content://media/external/audio/albumart/1");
+        songDao.reconcile(Collections.singletonList(untagged), Collections.emptyList());
+
+        Song stored = songDao.getSongByPath("/m/1.mp3");
+        assertNull(stored.getArtist());
+        assertNull(stored.getArtistId());
+        assertNull(stored.getAlbumId());
+        assertEquals(0, count("artists"));
+        assertEquals(0, count("albums"));
+        assertEquals("Artista Desconocido", stored.getDisplayArtist());
+    }
+
+    private int count(String table) {
+        try (Cursor cursor = database.query("SELECT COUNT(*) FROM " + table, null)) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+
+    private Artist artist(String name) {
+        List<Artist> artists = songDao.getArtistsByNames(Collections.singletonList(name));
+        assertEquals(name, 1, artists.size());
+        return artists.get(0);
+    }
+
+    private Genre genre(String name) {
+        List<Genre> genres = songDao.getGenresByNames(Collections.singletonList(name));
+        assertEquals(name, 1, genres.size());
+        return genres.get(0);
+    }
+
+    private static Song song(String path, String artist, String genre) {
+        Song song = new Song("Canción " + path, artist, "Álbum de " + artist, path, 180_000,
+                "content://media/external/audio/albumart/" + artist.hashCode());
+        song.setGenre(genre);
+        return song;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.reproductormp3.database;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.reproductormp3.models.PlayEvent;
+import com.example.reproductormp3.models.Song;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Los eventos de reproducción siguen a su canción: se borran con ella y los que
+ * llegan tarde para una canción borrada no hacen fallar el lote
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class PlayEventDaoTest {
+
+    private AppDatabase database;
+    private SongDao songDao;
+    private PlayEventDao playEventDao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        songDao = database.songDao();
+        playEventDao = database.playEventDao();
+        songDao.reconcile(Arrays.asList(song("/m/1.mp3"), song("/m/2.mp3")), Collections.emptyList());
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void eventsAreDeletedWithTheirSong() {
+        long songId = songDao.getSongByPath("/m/1.mp3").getId();
+        playEventDao.appendAndRollUp(Arrays.asList(new PlayEvent(songId, 1_000L),
+                new PlayEvent(songId, 2_000L)));
+        assertEquals(2, playEventDao.getPlayCount(songId));
+
+        songDao.deleteByPaths(Collections.singletonList("/m/1.mp3"));
+
+        assertEquals(0, playEventDao.getPlayCount(songId));
+    }
+
+    @Test
+    public void eventsOfDeletedSongsAreDropped() {
+        long kept = songDao.getSongByPath("/m/1.mp3").getId();
+        long deleted = songDao.getSongByPath("/m/2.mp3").getId();
+        songDao.deleteByPaths(Collections.singletonList("/m/2.mp3"));
+
+        int songs = playEventDao.appendAndRollUp(Arrays.asList(new PlayEvent(kept, 1_000L),
+                new PlayEvent(deleted, 1_000L)));
+
+        assertEquals(1, songs);
+        assertEquals(1, songDao.getSongByPath("/m/1.mp3").getPlayCount());
+        assertEquals(0, playEventDao.getPlayCount(deleted));
+    }
+
+    private static Song song(String path) {
+        return new Song("Canción " + path, "Artista", "Álbum", path, 180_000,
+                "content://media/external/audio/albumart/1");
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.reproductormp3.database;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PlaylistPositionsTest {
+
+    @Test
+    public void emptyListStartsAtGap() {
+        assertEquals(Long.valueOf(PlaylistPositions.GAP), PlaylistPositions.between(null, null));
+    }
+
+    @Test
+    public void endsLeaveAFullGap() {
+        assertEquals(Long.valueOf(3 * PlaylistPositions.GAP), PlaylistPositions.between(2 * PlaylistPositions.GAP, null));
+        assertEquals(Long.valueOf(0L), PlaylistPositions.between(null, PlaylistPositions.GAP));
+    }
+
+    @Test
+    public void repeatedInsertsInOneGapEventuallyNeedRebalance() {
+        long before = PlaylistPositions.atIndex(0);
+        long after = PlaylistPositions.atIndex(1);
+        int inserts = 0;
+        Long position;
+        while ((position = PlaylistPositions.between(before, after)) != null) {
+            assertTrue(position > before && position < after);
+            after = position;
+            inserts++;
+        }
+        assertEquals(20, inserts);
+    }
+
+    @Test
+    public void midpointDoesNotOverflow() {
+        Long position = PlaylistPositions.between(Long.MAX_VALUE - 4, Long.MAX_VALUE);
+        assertNotNull(position);
+        assertTrue(position > Long.MAX_VALUE - 4);
+    }
+}
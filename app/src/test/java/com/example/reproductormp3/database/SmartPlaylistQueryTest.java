@@ -0,0 +1,55 @@
+package com.example.reproductormp3.database;
+
+import com.example.reproductormp3.models.SmartRule;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SmartPlaylistQueryTest {
+
+    @Test
+    public void rulesAreJoinedWithBoundValues() {
+        List<Object> args = new ArrayList<>();
+        String where = SmartPlaylistQuery.where(Arrays.asList(
+                new SmartRule(SmartRule.FIELD_GENRE, SmartRule.OP_EQUALS, "Rock"),
+                new SmartRule(SmartRule.FIELD_YEAR, SmartRule.OP_LESS, "1990"),
+                new SmartRule(SmartRule.FIELD_PLAY_COUNT, SmartRule.OP_GREATER, "5")), true, args);
+
+        assertEquals("(songs.genreId IN (SELECT id FROM genres WHERE name = ?)) AND (songs.year < ?) "
+                + "AND (songs.playCount > ?)", where);
+        assertEquals(Arrays.<Object>asList("Rock", 1990L, 5L), args);
+    }
+
+    @Test
+    public void containsEscapesLikeWildcards() {
+        List<Object> args = new ArrayList<>();
+        String where = SmartPlaylistQuery.where(Collections.singletonList(
+                new SmartRule(SmartRule.FIELD_TITLE, SmartRule.OP_CONTAINS, "100%_live")), false, args);
+
+        assertEquals("(songs.title LIKE ? ESCAPE '\\')", where);
+        assertEquals("%100\\%\\_live%", args.get(0));
+    }
+
+    @Test
+    public void noRulesMatchEverything() {
+        assertEquals("1", SmartPlaylistQuery.where(Collections.emptyList(), true, new ArrayList<>()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownFieldIsRejected() {
+        SmartPlaylistQuery.where(Collections.singletonList(
+                new SmartRule("path; DROP TABLE songs", SmartRule.OP_EQUALS, "x")), true, new ArrayList<>());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonNumericValueIsRejected() {
+        SmartPlaylistQuery.where(Collections.singletonList(
+                new SmartRule(SmartRule.FIELD_YEAR, SmartRule.OP_GREATER, "noventa")), true, new ArrayList<>());
+    }
+}
@@ -0,0 +1,368 @@
+package com.example.reproductormp3.database;
+
+import android.content.Context;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.reproductormp3.models.Song;
+import com.example.reproductormp3.models.SongListItem;
+import com.example.reproductormp3.repository.SongPager;
+import com.example.reproductormp3.utils.FtsQuery;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+/**
+ * Benchmark de SongDao sobre bibliotecas sintéticas, en la JVM (Robolectric con SQLite nativo).
+ * No corre con el resto de los tests: se activa indicando los tamaños,
+ * <pre>
+ * ./gradlew testDebugUnitTest --tests "*SongDaoBenchmark" -Pbenchmark.sizes=10000,100000,500000
+ * </pre>
+ * y deja el reporte JSON en app/build/reports/benchmarks/songdao.json.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class SongDaoBenchmark {
+
+    private static final String SIZES_PROPERTY = "benchmark.sizes";
+    private static final String OUTPUT_PROPERTY = "benchmark.output";
+
+    private static final long SEED = 42;
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 15;
+    // Consultas que leen la biblioteca entera
+    private static final int FULL_SCAN_ITERATIONS = 5;
+    private static final int SCAN_BATCH_SIZE = 500;
+    private static final int PAGE_SIZE = SongPager.DEFAULT_PAGE_SIZE;
+    private static final int LIMIT = 50;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private interface Operation {
+        /** Ejecuta la operación y devuelve cuántas filas leyó o escribió */
+        int run();
+    }
+
+    @Test
+    public void benchmarkSongDao() throws Exception {
+        List<Integer> sizes = parseSizes(System.getProperty(SIZES_PROPERTY, ""));
+        assumeFalse("Benchmark omitido: indicar -P" + SIZES_PROPERTY + "=10000,100000", sizes.isEmpty());
+
+        BenchmarkReport report = new BenchmarkReport("SongDao");
+        for (int size : sizes) {
+            run(new SyntheticLibrary(size, SEED), report);
+        }
+        report.write(new File(System.getProperty(OUTPUT_PROPERTY, "build/reports/benchmarks/songdao.json")));
+    }
+
+    private void run(SyntheticLibrary library, BenchmarkReport report) {
+        Context context = ApplicationProvider.getApplicationContext();
+        String name = "benchmark-" + library.getSize() + ".db";
+        context.deleteDatabase(name);
+
+        // Mismas tablas y triggers que la app; todo en el hilo del test
+        AppDatabase database = Room.databaseBuilder(context, AppDatabase.class, name)
+                .addCallback(AppDatabase.LIBRARY_CALLBACK)
+                .allowMainThreadQueries()
+                .setQueryExecutor(Runnable::run)
+                .setTransactionExecutor(Runnable::run)
+                .build();
+        try {
+            SongDao songDao = database.songDao();
+            int size = library.getSize();
+
+            List<Long> ids = benchmarkImport(songDao, library, report);
+            assertEquals(size, songDao.getSongsCount());
+
+            benchmarkReads(songDao, library, ids, report);
+            benchmarkLiveQueries(songDao, library, ids, report);
+            benchmarkWrites(songDao, library, ids, report);
+            benchmarkRescan(songDao, library, report);
+        } finally {
+            database.close();
+            context.deleteDatabase(name);
+        }
+    }
+
+    // ========== IMPORTACIÓN ==========
+    // Primer escaneo: reconcile por lotes sobre la base vacía, como SongRepository.rescanLibrary
+    private List<Long> benchmarkImport(SongDao songDao, SyntheticLibrary library, BenchmarkReport report) {
+        List<Song> songs = library.songs();
+        List<Long> ids = new ArrayList<>(songs.size());
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < songs.size(); i += SCAN_BATCH_SIZE) {
+            List<Song> batch = songs.subList(i, Math.min(i + SCAN_BATCH_SIZE, songs.size()));
+            ids.addAll(songDao.reconcile(batch, Collections.emptyList()).getChangedSongIds());
+        }
+        report.add(library.getSize(), "reconcile[import]", songs.size(), new long[]{System.nanoTime() - begin});
+        return ids;
+    }
+
+    // ========== LECTURAS ==========
+    private void benchmarkReads(SongDao songDao, SyntheticLibrary library, List<Long> ids, BenchmarkReport report) {
+        int size = library.getSize();
+        int middle = size / 2;
+        long songId = ids.get(middle);
+        String path = SyntheticLibrary.path(middle);
+        List<Long> someIds = sample(ids, 200);
+        List<String> somePaths = samplePaths(size, 1000);
+        List<String> scanPaths = samplePaths(size, SCAN_BATCH_SIZE);
+        List<String> artists = Collections.singletonList(SyntheticLibrary.artistName(library.getArtistCount() / 2));
+        List<String> albums = Collections.singletonList(SyntheticLibrary.albumName(library.getAlbumCount() / 2));
+        List<String> genres = Collections.singletonList(SyntheticLibrary.genreName(0));
+
+        List<SongListItem> before = songDao.getPageAt(Math.max(0, middle - PAGE_SIZE), PAGE_SIZE);
+        SongListItem after = before.get(before.size() - 1);
+
+        measure(report, size, "getSongsCount", ITERATIONS, songDao::getSongsCount);
+        measure(report, size, "getFirstPage", ITERATIONS, () -> songDao.getFirstPage(PAGE_SIZE).size());
+        measure(report, size, "getPageAfter[middle]", ITERATIONS,
+                () -> songDao.getPageAfter(after.getTitle(), after.getId(), PAGE_SIZE).size());
+        measure(report, size, "getPageAt[middle]", ITERATIONS, () -> songDao.getPageAt(middle, PAGE_SIZE).size());
+        measure(report, size, "getAllSongsSync", FULL_SCAN_ITERATIONS, () -> songDao.getAllSongsSync().size());
+        measure(report, size, "getSongByIdSync", ITERATIONS, () -> songDao.getSongByIdSync(songId) != null ? 1 : 0);
+        measure(report, size, "getSongsByIds[200]", ITERATIONS, () -> songDao.getSongsByIds(someIds).size());
+        measure(report, size, "getListItemsByIds[200]", ITERATIONS, () -> songDao.getListItemsByIds(someIds).size());
+        measure(report, size, "getSongByPath", ITERATIONS, () -> songDao.getSongByPath(path) != null ? 1 : 0);
+        measure(report, size, "getFavoriteListItemsSync", ITERATIONS, () -> songDao.getFavoriteListItemsSync().size());
+        measure(report, size, "getFavoriteSongsSync", ITERATIONS, () -> songDao.getFavoriteSongsSync().size());
+        measure(report, size, "getMostPlayedSongsSync", ITERATIONS, () -> songDao.getMostPlayedSongsSync(LIMIT).size());
+        measure(report, size, "getRecentlyPlayedSongsSync", ITERATIONS,
+                () -> songDao.getRecentlyPlayedSongsSync(LIMIT).size());
+        measure(report, size, "getTotalDurationSync", ITERATIONS, () -> songDao.getTotalDurationSync() != null ? 1 : 0);
+        measure(report, size, "songExists", ITERATIONS, () -> songDao.songExists(path) ? 1 : 0);
+        measure(report, size, "getAllPaths", FULL_SCAN_ITERATIONS, () -> songDao.getAllPaths().size());
+        measure(report, size, "findExistingPaths[1000]", ITERATIONS, () -> songDao.findExistingPaths(somePaths).size());
+        measure(report, size, "getSongsByPaths[500]", ITERATIONS, () -> songDao.getSongsByPaths(scanPaths).size());
+        measure(report, size, "getArtistsByNames", ITERATIONS, () -> songDao.getArtistsByNames(artists).size());
+        measure(report, size, "getAlbumsByNames", ITERATIONS, () -> songDao.getAlbumsByNames(albums).size());
+        measure(report, size, "getGenresByNames", ITERATIONS, () -> songDao.getGenresByNames(genres).size());
+    }
+
+    // ========== CONSULTAS LIVEDATA ==========
+    // Cada iteración crea el LiveData, lo observa hasta recibir el primer valor y lo suelta
+    private void benchmarkLiveQueries(SongDao songDao, SyntheticLibrary library, List<Long> ids,
+                                      BenchmarkReport report) {
+        int size = library.getSize();
+        long songId = ids.get(size / 2);
+        long artistId = songDao.getSongByIdSync(songId).getArtistId();
+        long albumId = songDao.getSongByIdSync(songId).getAlbumId();
+        long genreId = songDao.getSongByIdSync(songId).getGenreId();
+        String artist = SyntheticLibrary.artistName(library.getArtistCount() / 2);
+        String album = SyntheticLibrary.albumName(library.getAlbumCount() / 2);
+        String genre = SyntheticLibrary.genreName(0);
+        String match = FtsQuery.toMatchExpression("amor noc");
+
+        measureLive(report, size, "getAllSongs", FULL_SCAN_ITERATIONS, songDao::getAllSongs);
+        measureLive(report, size, "getSongById", ITERATIONS, () -> songDao.getSongById(songId));
+        measure(report, size, "searchListItemsSync", ITERATIONS, () -> songDao.searchListItemsSync(match).size());
+        measure(report, size, "searchSongsSync", ITERATIONS, () -> songDao.searchSongsSync(match).size());
+        measure(report, size, "getSongsByArtistSync", ITERATIONS, () -> songDao.getSongsByArtistSync(artist).size());
+        measure(report, size, "getSongsByAlbumSync", ITERATIONS, () -> songDao.getSongsByAlbumSync(album).size());
+        measureLive(report, size, "getSongsByGenre", ITERATIONS, () -> songDao.getSongsByGenre(genre));
+        measure(report, size, "getSongsByArtistIdSync", ITERATIONS,
+                () -> songDao.getSongsByArtistIdSync(artistId).size());
+        measure(report, size, "getSongsByAlbumIdSync", ITERATIONS, () -> songDao.getSongsByAlbumIdSync(albumId).size());
+        measure(report, size, "getSongsByGenreIdSync", ITERATIONS, () -> songDao.getSongsByGenreIdSync(genreId).size());
+        measureLive(report, size, "getFavoriteSongs", ITERATIONS, songDao::getFavoriteSongs);
+        measureLive(report, size, "getMostPlayedSongs", ITERATIONS, () -> songDao.getMostPlayedSongs(LIMIT));
+        measureLive(report, size, "getRecentlyPlayedSongs", ITERATIONS, () -> songDao.getRecentlyPlayedSongs(LIMIT));
+        measure(report, size, "getRecentlyAddedSongsSync", ITERATIONS,
+                () -> songDao.getRecentlyAddedSongsSync(LIMIT).size());
+        measureLive(report, size, "getSongsByYear", FULL_SCAN_ITERATIONS, songDao::getSongsByYear);
+        measureLive(report, size, "getAllArtists", ITERATIONS, songDao::getAllArtists);
+        measureLive(report, size, "getAllAlbums", ITERATIONS, songDao::getAllAlbums);
+        measureLive(report, size, "getAllGenres", ITERATIONS, songDao::getAllGenres);
+        measureLive(report, size, "getArtists", ITERATIONS, songDao::getArtists);
+        measureLive(report, size, "getAlbums", ITERATIONS, songDao::getAlbums);
+        measureLive(report, size, "getGenres", ITERATIONS, songDao::getGenres);
+        measureLive(report, size, "getTotalSongsCount", ITERATIONS, songDao::getTotalSongsCount);
+        measureLive(report, size, "getTotalDuration", ITERATIONS, songDao::getTotalDuration);
+        measureLive(report, size, "getTotalArtistsCount", ITERATIONS, songDao::getTotalArtistsCount);
+        measureLive(report, size, "getTotalAlbumsCount", ITERATIONS, songDao::getTotalAlbumsCount);
+    }
+
+    // ========== ESCRITURAS ==========
+    private void benchmarkWrites(SongDao songDao, SyntheticLibrary library, List<Long> ids, BenchmarkReport report) {
+        int size = library.getSize();
+        long songId = ids.get(size / 3);
+        boolean[] favorite = {false};
+        int[] edits = {0};
+
+        measure(report, size, "updateFavoriteStatus", ITERATIONS, () -> {
+            favorite[0] = !favorite[0];
+            songDao.updateFavoriteStatus(songId, favorite[0]);
+            return 1;
+        });
+        measure(report, size, "incrementPlayCount", ITERATIONS, () -> {
+            songDao.incrementPlayCount(songId, System.currentTimeMillis());
+            return 1;
+        });
+        measure(report, size, "update[title]", ITERATIONS, () -> {
+            Song song = songDao.getSongByIdSync(songId);
+            song.setTitle("Editada " + edits[0]++);
+            songDao.update(song);
+            return 1;
+        });
+
+        // insertAll sin ids resueltos y su borrado: los triggers crean artista y álbum y
+        // enlazan los géneros, que ya existen
+        int batches = WARMUP + ITERATIONS;
+        List<List<Song>> inserted = new ArrayList<>(batches);
+        long[] insertNanos = new long[ITERATIONS];
+        for (int b = 0; b < batches; b++) {
+            List<Song> batch = extraSongs(b, SCAN_BATCH_SIZE);
+            long begin = System.nanoTime();
+            List<Long> insertedIds = songDao.insertAll(batch);
+            if (b >= WARMUP) insertNanos[b - WARMUP] = System.nanoTime() - begin;
+            assertFalse("insertAll ignoró filas", insertedIds.contains(-1L));
+            inserted.add(batch);
+        }
+        report.add(size, "insertAll[500]", SCAN_BATCH_SIZE, insertNanos);
+
+        long[] deleteNanos = new long[ITERATIONS];
+        for (int b = 0; b < batches; b++) {
+            List<String> paths = new ArrayList<>(SCAN_BATCH_SIZE);
+            for (Song song : inserted.get(b)) {
+                paths.add(song.getPath());
+            }
+            long begin = System.nanoTime();
+            int deleted = songDao.deleteByPaths(paths);
+            if (b >= WARMUP) deleteNanos[b - WARMUP] = System.nanoTime() - begin;
+            assertEquals(SCAN_BATCH_SIZE, deleted);
+        }
+        report.add(size, "deleteByPaths[500]", SCAN_BATCH_SIZE, deleteNanos);
+        assertEquals(size, songDao.getSongsCount());
+    }
+
+    // ========== REESCANEO ==========
+    private void benchmarkRescan(SongDao songDao, SyntheticLibrary library, BenchmarkReport report) {
+        int size = library.getSize();
+
+        long[] unchanged = new long[FULL_SCAN_ITERATIONS];
+        for (int i = 0; i < unchanged.length; i++) {
+            unchanged[i] = reconcileInBatches(songDao, library.songs(), Collections.emptyList());
+        }
+        report.add(size, "reconcile[rescan unchanged]", size, unchanged);
+
+        // 1% de etiquetas cambiadas, 1% de canciones nuevas y 1% borradas
+        List<Song> scanned = library.songs();
+        int changed = Math.max(1, size / 100);
+        List<String> removed = new ArrayList<>(changed);
+        for (int i = 0; i < changed; i++) {
+            scanned.get(i * 100 % size).setTitle("Remasterizada " + i);
+        }
+        for (int i = 0; i < changed; i++) {
+            removed.add(scanned.remove(scanned.size() - 1).getPath());
+        }
+        scanned.addAll(extraSongs(Integer.MAX_VALUE, changed));
+        long nanos = reconcileInBatches(songDao, scanned, removed);
+        report.add(size, "reconcile[rescan 1% changed]", scanned.size(), new long[]{nanos});
+        assertEquals(size, songDao.getSongsCount());
+    }
+
+    private long reconcileInBatches(SongDao songDao, List<Song> scanned, List<String> removedPaths) {
+        long begin = System.nanoTime();
+        for (int i = 0; i < scanned.size(); i += SCAN_BATCH_SIZE) {
+            songDao.reconcile(scanned.subList(i, Math.min(i + SCAN_BATCH_SIZE, scanned.size())),
+                    Collections.emptyList());
+        }
+        songDao.reconcile(Collections.emptyList(), removedPaths);
+        return System.nanoTime() - begin;
+    }
+
+    // ========== UTILIDADES ==========
+    private static void measure(BenchmarkReport report, int size, String operation, int iterations, Operation op) {
+        for (int i = 0; i < WARMUP; i++) {
+            op.run();
+        }
+        int rows = 0;
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long begin = System.nanoTime();
+            rows = op.run();
+            nanos[i] = System.nanoTime() - begin;
+        }
+        report.add(size, operation, rows, nanos);
+    }
+
+    private static <T> void measureLive(BenchmarkReport report, int size, String operation, int iterations,
+                                        Supplier<LiveData<T>> query) {
+        measure(report, size, operation, iterations, () -> {
+            Object[] value = new Object[1];
+            boolean[] delivered = {false};
+            Observer<T> observer = result -> {
+                value[0] = result;
+                delivered[0] = true;
+            };
+            LiveData<T> liveData = query.get();
+            liveData.observeForever(observer);
+            liveData.removeObserver(observer);
+            assertTrue(operation + " no entregó resultado", delivered[0]);
+            return value[0] instanceof List ? ((List<?>) value[0]).size() : 1;
+        });
+    }
+
+    private static List<Long> sample(List<Long> ids, int count) {
+        List<Long> sample = new ArrayList<>(count);
+        int step = Math.max(1, ids.size() / count);
+        for (int i = 0; i < ids.size() && sample.size() < count; i += step) {
+            sample.add(ids.get(i));
+        }
+        return sample;
+    }
+
+    // Mitad rutas guardadas, mitad rutas que no existen
+    private static List<String> samplePaths(int size, int count) {
+        List<String> paths = new ArrayList<>(count);
+        int step = Math.max(1, size / (count / 2));
+        for (int i = 0; paths.size() < count; i += step) {
+            paths.add(SyntheticLibrary.path(i % size));
+            paths.add("/storage/emulated/0/Download/" + i + ".mp3");
+        }
+        return paths;
+    }
+
+    private static List<Song> extraSongs(int batch, int count) {
+        List<Song> songs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Song song = new Song("Nueva " + i, "Artista nuevo " + (i % 7), "Álbum nuevo " + (i % 50),
+                    "/storage/emulated/0/Nuevas/" + batch + "/" + i + ".mp3", 180_000,
+                    "content://media/external/audio/albumart/nuevo" + (i % 50));
+            song.setGenre(SyntheticLibrary.genreName(i % SyntheticLibrary.GENRES));
+            songs.add(song);
+        }
+        return songs;
+    }
+
+    private static List<Integer> parseSizes(String value) {
+        List<Integer> sizes = new ArrayList<>();
+        for (String part : value.split(",")) {
+            String trimmed = part.trim();
+            if (!trimmed.isEmpty()) {
+                sizes.add(Integer.parseInt(trimmed.replace("_", "")));
+            }
+        }
+        return sizes;
+    }
+}
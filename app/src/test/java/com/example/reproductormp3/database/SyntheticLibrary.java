@@ -0,0 +1,105 @@
+package com.example.reproductormp3.database;
+
+import com.example.reproductormp3.models.Song;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Biblioteca falsa y reproducible para los benchmarks. Las proporciones se parecen
+ * a una colección real: 10 canciones por álbum, 3 álbumes por artista,
+ * pocos géneros, pocos favoritos y reproducciones concentradas en pocas canciones.
+ */
+final class SyntheticLibrary {
+
+    static final int SONGS_PER_ALBUM = 10;
+    static final int ALBUMS_PER_ARTIST = 3;
+    static final int GENRES = 24;
+
+    private static final String[] WORDS = {
+            "amor", "noche", "luna", "fuego", "camino", "corazón", "cielo", "mar", "sueño",
+            "ciudad", "tiempo", "canción", "vida", "sol", "río", "viento", "sombra", "luz",
+            "baile", "ayer", "siempre", "nunca", "tierra", "estrella", "silencio", "verano"
+    };
+
+    private final int size;
+    private final long seed;
+
+    SyntheticLibrary(int size, long seed) {
+        this.size = size;
+        this.seed = seed;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    int getAlbumCount() {
+        return (size + SONGS_PER_ALBUM - 1) / SONGS_PER_ALBUM;
+    }
+
+    int getArtistCount() {
+        return (getAlbumCount() + ALBUMS_PER_ARTIST - 1) / ALBUMS_PER_ARTIST;
+    }
+
+    static String artistName(int artist) {
+        return "Artista " + artist;
+    }
+
+    static String albumName(int album) {
+        return "Álbum " + album;
+    }
+
+    static String genreName(int genre) {
+        return "Género " + genre;
+    }
+
+    static String path(int index) {
+        int album = index / SONGS_PER_ALBUM;
+        return "/storage/emulated/0/Music/" + artistName(album / ALBUMS_PER_ARTIST) + "/"
+                + albumName(album) + "/" + (index % SONGS_PER_ALBUM + 1) + ".mp3";
+    }
+
+    /**
+     * Todas las canciones, en el orden en que las devolvería MediaStore
+     */
+    List<Song> songs() {
+        Random random = new Random(seed);
+        List<Song> songs = new ArrayList<>(size);
+        long now = 1_700_000_000_000L;
+
+        for (int i = 0; i < size; i++) {
+            int album = i / SONGS_PER_ALBUM;
+            int artist = album / ALBUMS_PER_ARTIST;
+
+            Song song = new Song(title(random), artistName(artist), albumName(album), path(i),
+                    120_000 + random.nextInt(300_000),
+                    "content://media/external/audio/albumart/" + album);
+            song.setGenre(genreName(artist % GENRES));
+            song.setYear(1960 + album % 65);
+            song.setDateAdded(now - random.nextInt(1_000_000) * 1000L);
+
+            // Reproducciones muy concentradas: la mayoría nunca se escuchó
+            if (random.nextInt(100) < 30) {
+                int plays = (int) Math.min(500, Math.round(1 / (random.nextDouble() + 0.002)));
+                song.setPlayCount(plays);
+                song.setLastPlayed(now - random.nextInt(100_000) * 1000L);
+            }
+            song.setFavorite(random.nextInt(100) < 2);
+            songs.add(song);
+        }
+        return songs;
+    }
+
+    private static String title(Random random) {
+        int words = 1 + random.nextInt(4);
+        StringBuilder title = new StringBuilder();
+        for (int w = 0; w < words; w++) {
+            if (w > 0) title.append(' ');
+            String word = WORDS[random.nextInt(WORDS.length)];
+            title.append(w == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+        }
+        return title.toString();
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.reproductormp3.repository;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.reproductormp3.database.AppDatabase;
+import com.example.reproductormp3.database.BackupDao;
+import com.example.reproductormp3.database.SongDao;
+import com.example.reproductormp3.models.Playlist;
+import com.example.reproductormp3.models.SmartPlaylist;
+import com.example.reproductormp3.models.SmartRule;
+import com.example.reproductormp3.models.Song;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exportar y restaurar entre dos bibliotecas con las mismas rutas
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class LibraryBackupTest {
+
+    private static final String[] PATHS = {"/m/a.mp3", "/m/b.mp3", "/m/c.mp3"};
+
+    private Context context;
+    private AppDatabase source;
+    private AppDatabase target;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        source = openDatabase();
+        target = openDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        source.close();
+        target.close();
+    }
+
+    @Test
+    public void restoreCopiesStateAndPlaylists() throws Exception {
+        byte[] backup = exportSource();
+
+        LibraryBackup.Result result = new LibraryBackup(context, target)
+                .restore(new ByteArrayInputStream(backup));
+
+        assertEquals(2, result.getSongs());
+        assertEquals(1, result.getPlaylists());
+        assertEquals(1, result.getSmartPlaylists());
+
+        SongDao songDao = target.songDao();
+        Song played = songDao.getSongByPath(PATHS[0]);
+        assertEquals(7, played.getPlayCount());
+        assertEquals(1_000L, played.getLastPlayed());
+        assertTrue(songDao.getSongByPath(PATHS[1]).isFavorite());
+        assertFalse(songDao.getSongByPath(PATHS[2]).isFavorite());
+
+        List<Playlist> playlists = target.backupDao().getPlaylistsSync();
+        assertEquals(1, playlists.size());
+        assertEquals("Viaje", playlists.get(0).getName());
+        assertEquals(Arrays.asList(PATHS[2], PATHS[0]), playlistPaths(target.backupDao(), playlists.get(0).getId()));
+        assertEquals(1, target.smartPlaylistDao().getPlaylistsSync().size());
+    }
+
+    @Test
+    public void restoringTwiceDoesNotDuplicate() throws Exception {
+        byte[] backup = exportSource();
+        LibraryBackup restore = new LibraryBackup(context, target);
+
+        restore.restore(new ByteArrayInputStream(backup));
+        restore.restore(new ByteArrayInputStream(backup));
+
+        List<Playlist> playlists = target.backupDao().getPlaylistsSync();
+        assertEquals(1, playlists.size());
+        assertEquals(Arrays.asList(PATHS[2], PATHS[0]), playlistPaths(target.backupDao(), playlists.get(0).getId()));
+        assertEquals(1, target.smartPlaylistDao().getPlaylistsSync().size());
+        // Los contadores se combinan con MAX: restaurar de nuevo no los suma
+        assertEquals(7, target.songDao().getSongByPath(PATHS[0]).getPlayCount());
+    }
+
+    @Test
+    public void playlistKeysInAnyOrder() throws Exception {
+        // "paths" antes que "name" y "dateCreated": la lista se identifica igual
+        String json = "{\"version\":1,\"playlists\":[{\"paths\":[\"" + PATHS[1] + "\",\"" + PATHS[0]
+                + "\"],\"dateCreated\":5000,\"name\":\"Viaje\"}]}";
+        byte[] backup = json.getBytes(StandardCharsets.UTF_8);
+        LibraryBackup restore = new LibraryBackup(context, target);
+
+        restore.restore(new ByteArrayInputStream(backup));
+        restore.restore(new ByteArrayInputStream(backup));
+
+        List<Playlist> playlists = target.backupDao().getPlaylistsSync();
+        assertEquals(1, playlists.size());
+        assertEquals("Viaje", playlists.get(0).getName());
+        assertEquals(5000L, playlists.get(0).getDateCreated());
+        assertEquals(Arrays.asList(PATHS[1], PATHS[0]), playlistPaths(target.backupDao(), playlists.get(0).getId()));
+    }
+
+    private byte[] exportSource() throws Exception {
+        SongDao songDao = source.songDao();
+        List<Long> ids = new ArrayList<>();
+        for (String path : PATHS) {
+            ids.add(songDao.getSongByPath(path).getId());
+        }
+        for (int i = 0; i < 7; i++) {
+            songDao.incrementPlayCount(ids.get(0), 1_000L);
+        }
+        songDao.updateFavoriteStatus(ids.get(1), true);
+
+        long playlistId = source.playlistDao().insertPlaylist(new Playlist("Viaje"));
+        source.playlistDao().appendSongs(playlistId, Arrays.asList(ids.get(2), ids.get(0)));
+
+        SmartPlaylist smart = new SmartPlaylist("Favoritas");
+        source.smartPlaylistDao().savePlaylist(smart, new ArrayList<>(Collections.singletonList(
+                new SmartRule(SmartRule.FIELD_FAVORITE, SmartRule.OP_EQUALS, "1"))));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new LibraryBackup(context, source).export(out);
+        return out.toByteArray();
+    }
+
+    private AppDatabase openDatabase() {
+        AppDatabase database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        List<Song> songs = new ArrayList<>();
+        for (String path : PATHS) {
+            Song song = new Song("Canción " + path, "Artista", "Álbum", path, 180_000,
+                    "content://media/external/audio/albumart/1");
+            songs.add(song);
+        }
+        database.songDao().reconcile(songs, Collections.emptyList());
+        return database;
+    }
+
+    private static List<String> playlistPaths(BackupDao backupDao, long playlistId) {
+        List<String> paths = new ArrayList<>();
+        try (Cursor cursor = backupDao.getPlaylistPathCursor(playlistId)) {
+            while (cursor.moveToNext()) {
+                paths.add(cursor.getString(0));
+            }
+        }
+        return paths;
+    }
+}
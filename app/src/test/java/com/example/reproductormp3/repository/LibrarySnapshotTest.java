@@ -0,0 +1,131 @@
+package com.example.reproductormp3.repository;
+
+import com.example.reproductormp3.models.SongListItem;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LibrarySnapshotTest {
+
+    private static LibrarySnapshot.Row row(long id, String title, long artistId, long albumId, int playCount,
+                                           boolean favorite) {
+        return new LibrarySnapshot.Row(id, title, 200_000, 2000, id, playCount, playCount > 0 ? id * 10 : 0,
+                favorite, artistId, "Artista " + artistId, albumId, "Álbum " + albumId,
+                "content://media/external/audio/albumart/" + albumId, 1L, "Rock");
+    }
+
+    private static LibrarySnapshot library() {
+        LibrarySnapshot.Builder builder = new LibrarySnapshot.Builder(4);
+        builder.add(row(1, "Delta", 10, 100, 0, false));
+        builder.add(row(2, "Alfa", 20, 200, 5, true));
+        builder.add(row(3, "Charlie", 10, 101, 5, false));
+        builder.add(row(4, null, 20, 200, 1, false));
+        builder.add(row(5, "Bravo", 10, 100, 9, true));
+        return builder.build();
+    }
+
+    private static long[] ids(LibrarySnapshot snapshot, int[] rows) {
+        return snapshot.toIds(rows);
+    }
+
+    @Test
+    public void allRowsFollowTitleOrderWithNullsFirst() {
+        LibrarySnapshot snapshot = library();
+        assertArrayEquals(new long[]{4, 2, 5, 3, 1}, ids(snapshot, snapshot.allRows()));
+    }
+
+    @Test
+    public void postingListsFilterByIdInTitleOrder() {
+        LibrarySnapshot snapshot = library();
+        assertArrayEquals(new long[]{5, 3, 1}, ids(snapshot, snapshot.rowsByArtistId(10)));
+        assertArrayEquals(new long[]{5, 1}, ids(snapshot, snapshot.rowsByAlbumId(100)));
+        assertArrayEquals(new long[]{4, 2, 5, 3, 1}, ids(snapshot, snapshot.rowsByGenreId(1)));
+        assertEquals(0, snapshot.rowsByArtistId(99).length);
+        assertArrayEquals(new long[]{2, 5}, ids(snapshot, snapshot.favoriteRows()));
+    }
+
+    @Test
+    public void sortBreaksTiesByTitle() {
+        LibrarySnapshot snapshot = library();
+        int[] sorted = snapshot.sort(snapshot.allRows(), LibrarySnapshot.SORT_PLAY_COUNT, true);
+        assertArrayEquals(new long[]{5, 2, 3, 4, 1}, ids(snapshot, sorted));
+        assertArrayEquals(new long[]{5, 2, 3}, ids(snapshot, snapshot.mostPlayedRows(3)));
+    }
+
+    @Test
+    public void favoriteChangeKeepsOtherIndexes() {
+        LibrarySnapshot snapshot = library();
+        LibrarySnapshot next = snapshot.apply(Collections.singletonList(row(3, "Charlie", 10, 101, 6, true)),
+                null, SongChange.FAVORITE | SongChange.PLAY_STATS);
+
+        assertArrayEquals(new long[]{2, 5, 3}, ids(next, next.favoriteRows()));
+        assertEquals(6, next.getPlayCount(next.rowOf(3)));
+        assertArrayEquals(ids(snapshot, snapshot.allRows()), ids(next, next.allRows()));
+        // La foto anterior no cambia
+        assertFalse(snapshot.isFavorite(snapshot.rowOf(3)));
+    }
+
+    @Test
+    public void membershipChangeMergesInsertsUpdatesAndDeletes() {
+        LibrarySnapshot snapshot = library();
+        List<LibrarySnapshot.Row> changed = new ArrayList<>();
+        changed.add(row(1, "Eco", 30, 300, 0, false));
+        changed.add(row(6, "Aaa", 30, 300, 0, true));
+
+        LibrarySnapshot next = snapshot.apply(changed, new long[]{1, 2, 3, 5, 6}, SongChange.ALL_COLUMNS);
+
+        assertEquals(5, next.size());
+        assertEquals(-1, next.rowOf(4));
+        assertArrayEquals(new long[]{6, 2, 5, 3, 1}, ids(next, next.allRows()));
+        assertArrayEquals(new long[]{6, 1}, ids(next, next.rowsByArtistId(30)));
+        assertArrayEquals(new long[]{5, 3}, ids(next, next.rowsByArtistId(10)));
+        assertArrayEquals(new long[]{6, 2, 5}, ids(next, next.favoriteRows()));
+    }
+
+    @Test
+    public void listItemsCarryDisplayColumns() {
+        LibrarySnapshot snapshot = library();
+        List<SongListItem> items = snapshot.toListItems(snapshot.rowsByAlbumId(200));
+
+        assertEquals(2, items.size());
+        SongListItem first = items.get(1);
+        assertEquals(2, first.getId());
+        assertEquals("Alfa", first.getTitle());
+        assertEquals("Artista 20", first.getArtist());
+        assertEquals(200, first.getAlbumId());
+        assertEquals("content://media/external/audio/albumart/200", first.getAlbumArtUri());
+        assertTrue(first.isFavorite());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rowsMustArriveInIdOrder() {
+        LibrarySnapshot.Builder builder = new LibrarySnapshot.Builder(2);
+        builder.add(row(2, "B", 1, 1, 0, false));
+        builder.add(row(1, "A", 1, 1, 0, false));
+    }
+
+    @Test
+    public void largeLibraryStaysSorted() {
+        LibrarySnapshot.Builder builder = new LibrarySnapshot.Builder(0);
+        for (int i = 1; i <= 1000; i++) {
+            builder.add(row(i, "T" + (i * 7919 % 1000), i % 13, i % 97, i % 5, i % 11 == 0));
+        }
+        LibrarySnapshot snapshot = builder.build();
+        int[] rows = snapshot.allRows();
+        for (int i = 1; i < rows.length; i++) {
+            assertTrue(snapshot.getTitle(rows[i - 1]).compareTo(snapshot.getTitle(rows[i])) <= 0);
+        }
+        int total = 0;
+        for (long artist = 0; artist < 13; artist++) {
+            total += snapshot.rowsByArtistId(artist).length;
+        }
+        assertEquals(1000, total);
+        assertEquals(Arrays.stream(rows).filter(snapshot::isFavorite).count(), snapshot.favoriteRows().length);
+    }
+}
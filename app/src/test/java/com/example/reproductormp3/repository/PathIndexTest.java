@@ -0,0 +1,64 @@
+package com.example.reproductormp3.repository;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PathIndexTest {
+
+    @Test
+    public void notLoadedAnswersMaybe() {
+        PathIndex index = new PathIndex();
+        assertTrue(index.mightContain("/music/a.mp3"));
+    }
+
+    @Test
+    public void loadedIndexRejectsUnknownPaths() {
+        PathIndex index = new PathIndex();
+        index.load(Arrays.asList("/music/a.mp3", "/music/b.mp3"));
+
+        assertTrue(index.mightContain("/music/a.mp3"));
+        assertTrue(index.mightContain("/music/b.mp3"));
+        assertFalse(index.mightContain("/music/c.mp3"));
+    }
+
+    @Test
+    public void pathsAddedBeforeLoadAreKept() {
+        PathIndex index = new PathIndex();
+        index.add("/music/new.mp3");
+        index.load(Arrays.asList("/music/a.mp3"));
+
+        assertTrue(index.mightContain("/music/new.mp3"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void growsWithoutLosingPaths() {
+        PathIndex index = new PathIndex();
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            paths.add("/storage/emulated/0/Music/song" + i + ".mp3");
+        }
+        index.load(paths);
+
+        assertEquals(10000, index.size());
+        for (String path : paths) {
+            assertTrue(index.mightContain(path));
+        }
+        assertFalse(index.mightContain("/storage/emulated/0/Music/song10000.mp3"));
+    }
+
+    @Test
+    public void clearKeepsIndexLoaded() {
+        PathIndex index = new PathIndex();
+        index.load(Arrays.asList("/music/a.mp3"));
+        index.clear();
+
+        assertTrue(index.isLoaded());
+        assertFalse(index.mightContain("/music/a.mp3"));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.reproductormp3.repository;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SharedLiveDataCacheTest {
+
+    private int created;
+
+    private LiveData<String> create() {
+        created++;
+        return new MutableLiveData<>();
+    }
+
+    @Test
+    public void sameKeySharesOneLiveData() {
+        SharedLiveDataCache cache = new SharedLiveDataCache();
+        LiveData<String> first = cache.get("byArtist", this::create, 7L);
+        LiveData<String> second = cache.get("byArtist", this::create, 7L);
+
+        assertSame(first, second);
+        assertEquals(1, created);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void differentNameOrArgumentsGetTheirOwn() {
+        SharedLiveDataCache cache = new SharedLiveDataCache();
+        LiveData<String> artist = cache.get("byArtist", this::create, 7L);
+        LiveData<String> otherArtist = cache.get("byArtist", this::create, 8L);
+        LiveData<String> album = cache.get("byAlbum", this::create, 7L);
+        LiveData<String> unknown = cache.get("byArtist", this::create, (Object) null);
+
+        assertNotSame(artist, otherArtist);
+        assertNotSame(artist, album);
+        assertNotSame(artist, unknown);
+        assertSame(unknown, cache.get("byArtist", this::create, (Object) null));
+        assertEquals(4, created);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.reproductormp3.ui.adapters;
+
+import android.content.Context;
+import android.widget.FrameLayout;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.reproductormp3.models.SongListItem;
+import com.example.reproductormp3.utils.DurationFormat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * onBindViewHolder sobre una fila ya creada no debe reservar memoria propia
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class SongAdapterBindTest {
+
+    private static final int BINDS = 50_000;
+    private static final int ROWS = 64;
+
+    @Test
+    public void bindDoesNotAllocateBeyondTheViews() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        Context context = ApplicationProvider.getApplicationContext();
+        SongAdapter adapter = new SongAdapter(context, null);
+        List<SongListItem> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            SongListItem song = new SongListItem();
+            song.setId(i + 1);
+            song.setTitle(i % 3 == 0 ? null : "Canción " + i);
+            song.setArtist(i % 5 == 0 ? null : "Artista " + i);
+            song.setDuration(i * 37_123L);
+            // Un mismo álbum: después del primer bind la carátula ya está pedida
+            song.setAlbumId(7);
+            song.setAlbumArtUri("content://media/external/audio/albumart/7");
+            rows.add(song);
+        }
+        // La primera lista del differ se aplica en el acto
+        adapter.setSongs(rows);
+        assertEquals(ROWS, adapter.getItemCount());
+        SongAdapter.SongViewHolder holder = adapter.onCreateViewHolder(new FrameLayout(context), 0);
+
+        // Calentamiento: carga de clases, JIT y la petición de la carátula
+        bindAll(adapter, holder, BINDS);
+        setTextAll(rows, holder, BINDS);
+
+        // Lo mismo que escribe el bind en los TextView, sin el adapter: lo que reserve
+        // el propio TextView no cuenta
+        long before = allocations.getThreadAllocatedBytes(thread);
+        setTextAll(rows, holder, BINDS);
+        long views = allocations.getThreadAllocatedBytes(thread) - before;
+
+        before = allocations.getThreadAllocatedBytes(thread);
+        bindAll(adapter, holder, BINDS);
+        long bind = allocations.getThreadAllocatedBytes(thread) - before;
+
+        // Un String.format, una lambda o un Uri.parse por bind son 16 bytes o más
+        assertTrue("el bind reservó " + bind + " bytes y los TextView solos " + views
+                + " en " + BINDS + " binds", bind - views < BINDS);
+    }
+
+    private static void bindAll(SongAdapter adapter, SongAdapter.SongViewHolder holder, int binds) {
+        for (int i = 0; i < binds; i++) {
+            adapter.onBindViewHolder(holder, i % ROWS);
+        }
+    }
+
+    private static void setTextAll(List<SongListItem> rows, SongAdapter.SongViewHolder holder, int binds) {
+        char[] durationText = new char[DurationFormat.MAX_LENGTH];
+        for (int i = 0; i < binds; i++) {
+            SongListItem song = rows.get(i % ROWS);
+            holder.tvSongTitle.setText(song.getDisplayTitle());
+            holder.tvArtist.setText(song.getArtist());
+            int length = DurationFormat.format(song.getDuration(), durationText);
+            holder.tvDuration.setText(durationText, 0, length);
+        }
+    }
+}
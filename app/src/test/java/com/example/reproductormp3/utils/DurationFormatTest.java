@@ -0,0 +1,69 @@
+package com.example.reproductormp3.utils;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class DurationFormatTest {
+
+    private static final int CALLS = 100_000;
+
+    @Test
+    public void formatsLikeMinutesAndPaddedSeconds() {
+        assertEquals("0:00", DurationFormat.format(0));
+        assertEquals("0:09", DurationFormat.format(9_999));
+        assertEquals("3:25", DurationFormat.format(205_000));
+        assertEquals("125:00", DurationFormat.format(7_500_000));
+        assertEquals("0:00", DurationFormat.format(-5_000));
+    }
+
+    @Test
+    public void bufferIsReusedFromTheStart() {
+        char[] buffer = new char[DurationFormat.MAX_LENGTH];
+        int length = DurationFormat.format(7_500_000, buffer);
+        assertEquals("125:00", new String(buffer, 0, length));
+        length = DurationFormat.format(61_000, buffer);
+        assertEquals("1:01", new String(buffer, 0, length));
+        length = DurationFormat.format(Long.MAX_VALUE, buffer);
+        assertTrue(length <= DurationFormat.MAX_LENGTH);
+    }
+
+    /**
+     * Escribir en el buffer no reserva memoria. El bind completo de la fila se mide
+     * en SongAdapterBindTest.
+     */
+    @Test
+    public void formatIntoBufferDoesNotAllocate() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+        char[] durationText = new char[DurationFormat.MAX_LENGTH];
+
+        // Calentamiento: carga de clases y JIT
+        long sink = formatAll(durationText, CALLS);
+
+        long before = allocations.getThreadAllocatedBytes(thread);
+        sink += formatAll(durationText, CALLS);
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue(sink != 0);
+        // La medición misma reserva unos pocos bytes fijos; cualquier objeto por llamada
+        // (16 bytes o más) supera de lejos un byte por llamada
+        assertTrue("reservó " + allocated + " bytes en " + CALLS + " llamadas", allocated < CALLS);
+    }
+
+    private static long formatAll(char[] durationText, int calls) {
+        long sink = 0;
+        for (int i = 0; i < calls; i++) {
+            sink += DurationFormat.format(i * 37_123L, durationText);
+        }
+        return sink;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.reproductormp3.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FtsQueryTest {
+
+    @Test
+    public void wordsBecomePrefixTerms() {
+        assertEquals("cancion* de* amor*", FtsQuery.toMatchExpression("Cancion de  Amor"));
+    }
+
+    @Test
+    public void accentsAreKeptForTheTokenizer() {
+        assertEquals("canción*", FtsQuery.toMatchExpression("canción"));
+    }
+
+    @Test
+    public void operatorsAndPunctuationAreDropped() {
+        assertEquals("rock* or* pop*", FtsQuery.toMatchExpression("\"rock\" OR pop*"));
+        assertEquals("ac* dc*", FtsQuery.toMatchExpression("AC/DC"));
+    }
+
+    @Test
+    public void emptyInputHasNoExpression() {
+        assertNull(FtsQuery.toMatchExpression(null));
+        assertNull(FtsQuery.toMatchExpression("  -*() "));
+    }
+}